@@ -0,0 +1,55 @@
+package uk.gov.ons.ctp.common.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import uk.gov.ons.ctp.common.event.model.CaseUpdate;
+import uk.gov.ons.ctp.common.event.model.EventPayload;
+
+/**
+ * Payloads for the benchmarks, read from the JSON resources under <code>payloads</code>, which are
+ * the same as the event-publisher test fixtures.
+ */
+final class BenchmarkPayloads {
+
+  private BenchmarkPayloads() {}
+
+  /**
+   * Load the payload for a topic type.
+   *
+   * @param topicType the topic type.
+   * @return a new payload, of the type expected by the topic type.
+   */
+  static EventPayload load(TopicType topicType) {
+    String resource = "/payloads/" + topicType.getPayloadType().getSimpleName() + ".json";
+    try (InputStream in = BenchmarkPayloads.class.getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing benchmark payload " + resource);
+      }
+      String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      return topicType.getBuilder().createPayload(json);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Load a case update with a sample of the given size, standing in for the large samples held by
+   * some surveys.
+   *
+   * @param sampleSize the number of sample attributes.
+   * @return a new case update.
+   */
+  static CaseUpdate caseUpdate(int sampleSize) {
+    CaseUpdate caseUpdate = (CaseUpdate) load(TopicType.CASE_UPDATE);
+    Map<String, String> sample = new LinkedHashMap<>(caseUpdate.getSample());
+    for (int i = sample.size(); i < sampleSize; i++) {
+      sample.put("attribute" + i, "Sample value " + i + " for Flat " + i + ", Magical Apartments");
+    }
+    caseUpdate.setSample(sample);
+    return caseUpdate;
+  }
+}
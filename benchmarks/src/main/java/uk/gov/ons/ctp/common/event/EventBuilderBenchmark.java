@@ -0,0 +1,81 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.event.EventBuilder.SendInfo;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+/**
+ * Building, serialising and rebuilding from backup JSON, for the event of every topic type.
+ *
+ * <p>Run with <code>-prof gc</code> to see allocation rates as well as throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = ForkOptions.ADD_OPENS)
+@State(Scope.Benchmark)
+public class EventBuilderBenchmark {
+
+  @Param({
+    "CASE_UPDATE",
+    "FULFILMENT",
+    "REFUSAL",
+    "UAC_AUTHENTICATION",
+    "EQ_LAUNCH",
+    "UAC_UPDATE",
+    "SURVEY_UPDATE",
+    "COLLECTION_EXERCISE_UPDATE",
+    "NEW_CASE",
+    "INVALID_CASE"
+  })
+  private TopicType topicType;
+
+  private EventBuilder builder;
+  private SendInfo sendInfo;
+  private GenericEvent event;
+  private String backupJson;
+  private EventSerialiser serialiser;
+
+  @Setup
+  public void setup() throws JsonProcessingException {
+    builder = topicType.getBuilder();
+    sendInfo =
+        new SendInfo(
+            BenchmarkPayloads.load(topicType), Source.CONTACT_CENTRE_API.name(), Channel.CC);
+    event = builder.create(sendInfo);
+    backupJson = new CustomObjectMapper().writeValueAsString(event);
+    serialiser = new EventSerialiser();
+  }
+
+  @Benchmark
+  public GenericEvent build() {
+    return builder.create(sendInfo);
+  }
+
+  @Benchmark
+  public ByteString serialise() {
+    return serialiser.toByteString(event);
+  }
+
+  @Benchmark
+  public SendInfo rebuildFromBackup() {
+    return builder.create(backupJson);
+  }
+}
@@ -0,0 +1,59 @@
+package uk.gov.ons.ctp.common.event;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.event.model.EventPayload;
+
+/**
+ * The whole of {@link EventPublisher#sendEvent(TopicType, Source, Channel, EventPayload)} for every
+ * topic type, with a sender which serialises the event but does not send it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = ForkOptions.ADD_OPENS)
+@State(Scope.Benchmark)
+public class EventPublisherBenchmark {
+
+  @Param({
+    "CASE_UPDATE",
+    "FULFILMENT",
+    "REFUSAL",
+    "UAC_AUTHENTICATION",
+    "EQ_LAUNCH",
+    "UAC_UPDATE",
+    "SURVEY_UPDATE",
+    "COLLECTION_EXERCISE_UPDATE",
+    "NEW_CASE",
+    "INVALID_CASE"
+  })
+  private TopicType topicType;
+
+  private EventPublisher eventPublisher;
+  private EventPayload payload;
+
+  @Setup
+  public void setup() {
+    eventPublisher = EventPublisher.createWithoutEventPersistence(new NoOpEventSender());
+    payload = BenchmarkPayloads.load(topicType);
+  }
+
+  @Benchmark
+  public UUID sendEvent() {
+    return eventPublisher.sendEvent(topicType, Source.CONTACT_CENTRE_API, Channel.CC, payload);
+  }
+}
@@ -0,0 +1,15 @@
+package uk.gov.ons.ctp.common.event;
+
+/** JVM options for the processes which the benchmarks are forked into. */
+final class ForkOptions {
+
+  /**
+   * Opens java.lang to the benchmarks, as the surefire argLine in the parent pom does for the unit
+   * tests. The structured logging arguments of the framework copy values with Orika, whose
+   * Javassist class generation calls the protected {@link Object#clone()} reflectively. Java 17
+   * refuses that unless java.lang is opened, so the first event logged would fail without it.
+   */
+  static final String ADD_OPENS = "--add-opens=java.base/java.lang=ALL-UNNAMED";
+
+  private ForkOptions() {}
+}
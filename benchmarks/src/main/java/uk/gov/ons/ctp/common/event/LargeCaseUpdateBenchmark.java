@@ -0,0 +1,78 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.protobuf.ByteString;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.event.EventBuilder.SendInfo;
+import uk.gov.ons.ctp.common.event.model.CaseUpdate;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+/**
+ * The stages of {@link EventBuilderBenchmark} and {@link EventPublisherBenchmark} for case updates
+ * with samples of increasing size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = ForkOptions.ADD_OPENS)
+@State(Scope.Benchmark)
+public class LargeCaseUpdateBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  private int sampleSize;
+
+  private EventBuilder builder = TopicType.CASE_UPDATE.getBuilder();
+  private CaseUpdate caseUpdate;
+  private SendInfo sendInfo;
+  private GenericEvent event;
+  private String backupJson;
+  private EventSerialiser serialiser;
+  private EventPublisher eventPublisher;
+
+  @Setup
+  public void setup() throws JsonProcessingException {
+    caseUpdate = BenchmarkPayloads.caseUpdate(sampleSize);
+    sendInfo = new SendInfo(caseUpdate, Source.CONTACT_CENTRE_API.name(), Channel.CC);
+    event = builder.create(sendInfo);
+    backupJson = new CustomObjectMapper().writeValueAsString(event);
+    serialiser = new EventSerialiser();
+    eventPublisher = EventPublisher.createWithoutEventPersistence(new NoOpEventSender());
+  }
+
+  @Benchmark
+  public GenericEvent build() {
+    return builder.create(sendInfo);
+  }
+
+  @Benchmark
+  public ByteString serialise() {
+    return serialiser.toByteString(event);
+  }
+
+  @Benchmark
+  public SendInfo rebuildFromBackup() {
+    return builder.create(backupJson);
+  }
+
+  @Benchmark
+  public UUID sendEvent() {
+    return eventPublisher.sendEvent(
+        TopicType.CASE_UPDATE, Source.CONTACT_CENTRE_API, Channel.CC, caseUpdate);
+  }
+}
@@ -0,0 +1,21 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.google.pubsub.v1.PubsubMessage;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Sender which builds the pub/sub message for each event, as the real senders do, and then drops
+ * it. This keeps serialisation in the measured path while leaving out the network.
+ */
+class NoOpEventSender implements EventSender {
+  private final PubSubMessageFactory messageFactory =
+      new PubSubMessageFactory(EventSerialiser.shared(), false);
+
+  // written so that the message cannot be optimised away
+  volatile PubsubMessage lastMessage;
+
+  @Override
+  public void sendEvent(EventTopic eventTopic, GenericEvent genericEvent) {
+    lastMessage = messageFactory.toMessage(genericEvent);
+  }
+}
@@ -0,0 +1,33 @@
+package uk.gov.ons.ctp.common.event;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.Data;
+
+/**
+ * Configuration for coalescing in {@link EventPublisher}, in which only the newest of a burst of
+ * events for the same entity is published.
+ *
+ * <p>Only the topic types in {@code windowMillis} are coalesced, each held for its own window. An
+ * event is held for the window after the first event for its ordering key, such as the case id, and
+ * any later event for the same key within the window replaces it. Once {@code maxPending} events
+ * are held, further events for new keys are published straight away.
+ *
+ * <p>Only the topic types in {@link #COALESCIBLE} can be coalesced, since their events carry the
+ * whole current state of the entity named by their ordering key, so the newest makes the others
+ * redundant. Other events, such as fulfilment requests or refusals, are keyed by case id but each
+ * one matters, so coalescing them would lose events. {@link EventPublisher} rejects a configuration
+ * which names any other topic type.
+ */
+@Data
+public class CoalescingConfig {
+  /** Topic types whose newest event for an ordering key replaces any earlier ones. */
+  public static final Set<TopicType> COALESCIBLE =
+      EnumSet.of(
+          TopicType.CASE_UPDATE, TopicType.SURVEY_UPDATE, TopicType.COLLECTION_EXERCISE_UPDATE);
+
+  private Map<TopicType, Long> windowMillis = new EnumMap<>(TopicType.class);
+  private int maxPending = 10000;
+}
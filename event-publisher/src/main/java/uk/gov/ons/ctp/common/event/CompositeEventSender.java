@@ -0,0 +1,252 @@
+package uk.gov.ons.ctp.common.event;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Event sender which tries a list of senders in priority order, such as native pub/sub on the
+ * primary endpoint followed by a regional endpoint or the {@link PubSubEventSender}. A send only
+ * fails if every sender fails, in which case the publisher falls back to event persistence as
+ * usual.
+ *
+ * <p>With hedging enabled, a send which the current sender has not acknowledged within the hedge
+ * delay is also started on the next sender, which bounds the publish latency while one sender is
+ * slow. The event may then be published more than once, so consumers should deduplicate by message
+ * id.
+ *
+ * <p>Bulk sends go to the first sender as a batch, and only the events which fail or are slow are
+ * sent individually to the others.
+ *
+ * <p>Once bound to a meter registry, counts of fallbacks and hedged sends are recorded, and any
+ * senders which are meter binders are bound too.
+ */
+@Slf4j
+public class CompositeEventSender implements EventSender, MeterBinder {
+  static final String FALLBACK = PublisherMetrics.PREFIX + "sender.fallback";
+  static final String HEDGED = PublisherMetrics.PREFIX + "sender.hedged";
+
+  private final List<EventSender> senders;
+  private final long hedgeDelayMillis;
+  private final ScheduledExecutorService scheduler;
+  private volatile Counter fallbackCounter;
+  private volatile Counter hedgedCounter;
+
+  public CompositeEventSender(List<EventSender> senders) {
+    this(senders, new CompositeSenderConfig());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param senders the senders, in priority order.
+   * @param config configuration.
+   */
+  public CompositeEventSender(List<EventSender> senders, CompositeSenderConfig config) {
+    if (senders.isEmpty()) {
+      throw new IllegalArgumentException("At least one sender is needed");
+    }
+    this.senders = List.copyOf(senders);
+    this.hedgeDelayMillis = config.getHedgeDelayMillis();
+    this.scheduler =
+        hedgeDelayMillis > 0 && senders.size() > 1
+            ? Executors.newSingleThreadScheduledExecutor(
+                r -> {
+                  Thread thread = new Thread(r, "event-sender-hedge");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
+  }
+
+  @Override
+  public void sendEvent(EventTopic eventTopic, GenericEvent genericEvent) {
+    try {
+      sendEventAsync(eventTopic, genericEvent).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new EventPublishException("Failed to publish event", e.getCause());
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> sendEventAsync(EventTopic eventTopic, GenericEvent genericEvent) {
+    return new Attempt(eventTopic, genericEvent).start(null);
+  }
+
+  @Override
+  public List<CompletableFuture<Void>> sendEventsAsync(
+      EventTopic eventTopic, List<? extends GenericEvent> genericEvents) {
+    List<CompletableFuture<Void>> firstTries;
+    try {
+      firstTries = senders.get(0).sendEventsAsync(eventTopic, genericEvents);
+    } catch (Exception e) {
+      firstTries = null;
+    }
+    List<CompletableFuture<Void>> results = new ArrayList<>(genericEvents.size());
+    for (int i = 0; i < genericEvents.size(); i++) {
+      Attempt attempt = new Attempt(eventTopic, genericEvents.get(i));
+      results.add(attempt.start(firstTries == null ? null : firstTries.get(i)));
+    }
+    return results;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    fallbackCounter = registry.counter(FALLBACK);
+    hedgedCounter = registry.counter(HEDGED);
+    for (EventSender sender : senders) {
+      if (sender instanceof MeterBinder) {
+        ((MeterBinder) sender).bindTo(registry);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    Exception failure = null;
+    for (EventSender sender : senders) {
+      try {
+        sender.close();
+      } catch (Exception e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /** The sends of one event, which succeeds as soon as any sender succeeds. */
+  private class Attempt {
+    private final EventTopic eventTopic;
+    private final GenericEvent genericEvent;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final List<Throwable> failures = new ArrayList<>();
+
+    Attempt(EventTopic eventTopic, GenericEvent genericEvent) {
+      this.eventTopic = eventTopic;
+      this.genericEvent = genericEvent;
+    }
+
+    /**
+     * Start sending.
+     *
+     * @param firstTry send already started on the first sender, or null to start it here.
+     * @return future which completes when any sender succeeds, or all have failed.
+     */
+    CompletableFuture<Void> start(CompletableFuture<Void> firstTry) {
+      startNext(firstTry);
+      return result;
+    }
+
+    private void startNext(CompletableFuture<Void> started) {
+      // counted as running before taking a sender, so that a send which fails meanwhile cannot
+      // give up on the event while this one is still starting
+      running.incrementAndGet();
+      int index = next.getAndIncrement();
+      if (index >= senders.size()) {
+        if (running.decrementAndGet() == 0) {
+          fail();
+        }
+        return;
+      }
+      CompletableFuture<Void> send = started != null ? started : send(senders.get(index));
+      if (scheduler != null && index + 1 < senders.size()) {
+        scheduler.schedule(() -> hedge(index), hedgeDelayMillis, TimeUnit.MILLISECONDS);
+      }
+      send.whenComplete(
+          (v, e) -> {
+            running.decrementAndGet();
+            if (e == null) {
+              result.complete(null);
+            } else {
+              synchronized (failures) {
+                failures.add(e);
+              }
+              if (!result.isDone()) {
+                fallBack(index, e);
+              }
+            }
+          });
+    }
+
+    private CompletableFuture<Void> send(EventSender sender) {
+      try {
+        return sender.sendEventAsync(eventTopic, genericEvent);
+      } catch (Exception e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+
+    private void hedge(int index) {
+      if (!result.isDone() && next.get() == index + 1) {
+        log.debug(
+            "Send not acknowledged in time, hedging with next sender",
+            kv("eventTopic", eventTopic),
+            kv("sender", index + 1));
+        increment(hedgedCounter);
+        startNext(null);
+      }
+    }
+
+    private void fallBack(int index, Throwable e) {
+      if (index + 1 < senders.size()) {
+        log.warn(
+            "Send failed, falling back to next sender",
+            kv("eventTopic", eventTopic),
+            kv("sender", index + 1),
+            e);
+        increment(fallbackCounter);
+      }
+      startNext(null);
+    }
+
+    private void fail() {
+      EventPublishException failure;
+      synchronized (failures) {
+        failure =
+            new EventPublishException(
+                "Failed to publish event with any sender",
+                failures.isEmpty() ? null : unwrap(failures.get(failures.size() - 1)));
+        for (int i = 0; i < failures.size() - 1; i++) {
+          failure.addSuppressed(unwrap(failures.get(i)));
+        }
+      }
+      result.completeExceptionally(failure);
+    }
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+}
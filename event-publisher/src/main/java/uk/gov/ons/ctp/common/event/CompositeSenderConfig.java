@@ -0,0 +1,15 @@
+package uk.gov.ons.ctp.common.event;
+
+import lombok.Data;
+
+/**
+ * Configuration for a {@link CompositeEventSender}.
+ *
+ * <p>With {@code hedgeDelayMillis} above zero, a send which has not been acknowledged within that
+ * time is also started on the next sender, and the first to succeed wins. With zero, the next
+ * sender is only tried once the previous one has failed.
+ */
+@Data
+public class CompositeSenderConfig {
+  private long hedgeDelayMillis;
+}
@@ -0,0 +1,20 @@
+package uk.gov.ons.ctp.common.event;
+
+import lombok.Data;
+
+/**
+ * Configuration for the degraded mode of {@link EventPublisher}, in which events rejected by an
+ * open circuit breaker are buffered and persisted in batches.
+ *
+ * <p>The buffer is flushed every {@code flushIntervalMillis}, or sooner once {@code batchSize}
+ * events are waiting. When the buffer is full, events are persisted one at a time as usual.
+ *
+ * <p>A buffered event has not yet been persisted when <code>sendEvent</code> returns, so it is lost
+ * if the process dies first, or if the background persistence fails.
+ */
+@Data
+public class DegradedModeConfig {
+  private int capacity = 10000;
+  private int batchSize = 200;
+  private long flushIntervalMillis = 200L;
+}
@@ -41,7 +41,6 @@ import uk.gov.ons.ctp.common.event.model.UacAuthenticationEvent;
 import uk.gov.ons.ctp.common.event.model.UacEvent;
 import uk.gov.ons.ctp.common.event.model.UacPayload;
 import uk.gov.ons.ctp.common.event.model.UacUpdate;
-import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 
 /**
  * Build objects ready for the publisher to send events. The subclasses of the event builder handle
@@ -63,15 +62,26 @@ public abstract class EventBuilder {
 
   private static final String EVENT_VERSION = "0.5.0";
 
-  ObjectMapper objectMapper = new CustomObjectMapper();
+  ObjectMapper objectMapper = EventObjectMapper.get();
+
+  /**
+   * Create event ready for send, with a random message id.
+   *
+   * @param sendInfo object containing payload , source and channel.
+   * @return event
+   */
+  GenericEvent create(SendInfo sendInfo) {
+    return create(sendInfo, MessageIdGenerator.RANDOM);
+  }
 
   /**
    * Create event ready for send.
    *
    * @param sendInfo object containing payload , source and channel.
+   * @param messageIdGenerator generator of the event's message id.
    * @return event
    */
-  abstract GenericEvent create(SendInfo sendInfo);
+  abstract GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator);
 
   /**
    * Create information required to send the event based on the serialised backup event supplied.
@@ -89,6 +99,21 @@ public abstract class EventBuilder {
    */
   abstract EventPayload createPayload(String json);
 
+  /**
+   * Get the key which orders events of this type when they are published, so that events for the
+   * same entity are delivered in the order they were sent.
+   *
+   * @param genericEvent event built by this builder.
+   * @return ordering key, or null if events of this type are not ordered.
+   */
+  String orderingKey(GenericEvent genericEvent) {
+    return null;
+  }
+
+  static String keyOf(Object id) {
+    return id == null ? null : id.toString();
+  }
+
   <T extends GenericEvent> T deserialiseEventJson(String json, Class<T> clazz) {
     try {
       return objectMapper.readValue(json, clazz);
@@ -105,9 +130,11 @@ public abstract class EventBuilder {
     }
   }
 
-  static Header buildHeader(EventTopic topic, String source, Channel channel) {
+  static Header buildHeader(
+      EventTopic topic, String source, Channel channel, MessageIdGenerator messageIdGenerator) {
     String originatingUser;
-    UUID messageId = UUID.randomUUID();
+    Date dateTime = new Date();
+    UUID messageId = messageIdGenerator.generate(dateTime.getTime());
     if (Objects.equals(source, Source.RESPONDENT_HOME.name())) {
       originatingUser = Source.RESPONDENT_HOME.toString();
     } else {
@@ -118,7 +145,7 @@ public abstract class EventBuilder {
         .topic(topic)
         .source(source)
         .channel(channel)
-        .dateTime(new Date())
+        .dateTime(dateTime)
         .messageId(messageId)
         // correlationID could eventually come from the user in the future but for now generate
         // UUID. For now it will use the messageId
@@ -136,6 +163,12 @@ public abstract class EventBuilder {
     private EventPayload payload;
     private String source;
     private Channel channel;
+    /** Header of the original event when sending a backup, otherwise null. */
+    private Header header;
+
+    public SendInfo(EventPayload payload, String source, Channel channel) {
+      this(payload, source, channel, null);
+    }
   }
 
   SendInfo build(GenericEvent genericEvent, EventPayload payload) {
@@ -144,13 +177,14 @@ public abstract class EventBuilder {
             .payload(payload)
             .source(genericEvent.getHeader().getSource())
             .channel(genericEvent.getHeader().getChannel())
+            .header(genericEvent.getHeader())
             .build();
     return info;
   }
 
   public static class NullEventBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       return null;
     }
 
@@ -167,10 +201,14 @@ public abstract class EventBuilder {
 
   public static class FulfilmentBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       FulfilmentEvent fulfilmentRequestedEvent = new FulfilmentEvent();
       fulfilmentRequestedEvent.setHeader(
-          buildHeader(EventTopic.FULFILMENT, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.FULFILMENT,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       FulfilmentPayload fulfilmentPayload =
           new FulfilmentPayload((FulfilmentRequest) sendInfo.getPayload());
       fulfilmentRequestedEvent.setPayload(fulfilmentPayload);
@@ -188,14 +226,24 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, FulfilmentRequest.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(
+          ((FulfilmentEvent) genericEvent).getPayload().getFulfilmentRequest().getCaseId());
+    }
   }
 
   public static class EqLaunchBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       EqLaunchEvent eqLaunchedEvent = new EqLaunchEvent();
       eqLaunchedEvent.setHeader(
-          buildHeader(EventTopic.EQ_LAUNCH, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.EQ_LAUNCH,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       eqLaunchedEvent.getPayload().setEqLaunch((EqLaunch) sendInfo.getPayload());
       return eqLaunchedEvent;
     }
@@ -215,10 +263,14 @@ public abstract class EventBuilder {
 
   public static class UacAuthenticationBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       UacAuthenticationEvent respondentAuthenticationEvent = new UacAuthenticationEvent();
       respondentAuthenticationEvent.setHeader(
-          buildHeader(EventTopic.UAC_AUTHENTICATION, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.UAC_AUTHENTICATION,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       respondentAuthenticationEvent
           .getPayload()
           .setUacAuthentication((UacAuthentication) sendInfo.getPayload());
@@ -241,10 +293,14 @@ public abstract class EventBuilder {
 
   public static class CaseUpdateBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       CaseEvent caseEvent = new CaseEvent();
       caseEvent.setHeader(
-          buildHeader(EventTopic.CASE_UPDATE, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.CASE_UPDATE,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       CasePayload casePayload = new CasePayload((CaseUpdate) sendInfo.getPayload());
       caseEvent.setPayload(casePayload);
       return caseEvent;
@@ -261,14 +317,20 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, CaseUpdate.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(((CaseEvent) genericEvent).getPayload().getCaseUpdate().getCaseId());
+    }
   }
 
   public static class RefusalBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       RefusalEvent respondentRefusalEvent = new RefusalEvent();
       respondentRefusalEvent.setHeader(
-          buildHeader(EventTopic.REFUSAL, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.REFUSAL, sendInfo.getSource(), sendInfo.getChannel(), messageIdGenerator));
       RefusalPayload respondentRefusalPayload =
           new RefusalPayload((RefusalDetails) sendInfo.getPayload());
       respondentRefusalEvent.setPayload(respondentRefusalPayload);
@@ -286,14 +348,23 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, RefusalDetails.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(((RefusalEvent) genericEvent).getPayload().getRefusal().getCaseId());
+    }
   }
 
   public static class UacUpdateBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       UacEvent uacEvent = new UacEvent();
       uacEvent.setHeader(
-          buildHeader(EventTopic.UAC_UPDATE, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.UAC_UPDATE,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       UacPayload uacPayload = new UacPayload((UacUpdate) sendInfo.getPayload());
       uacEvent.setPayload(uacPayload);
       return uacEvent;
@@ -310,14 +381,23 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, UacUpdate.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(((UacEvent) genericEvent).getPayload().getUacUpdate().getCaseId());
+    }
   }
 
   public static class SurveyUpdateBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       SurveyUpdateEvent surveyUpdateEvent = new SurveyUpdateEvent();
       surveyUpdateEvent.setHeader(
-          buildHeader(EventTopic.SURVEY_UPDATE, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.SURVEY_UPDATE,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       SurveyUpdatePayload surveyUpdatePayload =
           new SurveyUpdatePayload((SurveyUpdate) sendInfo.getPayload());
       surveyUpdateEvent.setPayload(surveyUpdatePayload);
@@ -335,16 +415,24 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, SurveyUpdate.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(((SurveyUpdateEvent) genericEvent).getPayload().getSurveyUpdate().getSurveyId());
+    }
   }
 
   public static class CollectionExerciseUpdateBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       CollectionExerciseUpdateEvent collectionExerciseUpdateEvent =
           new CollectionExerciseUpdateEvent();
       collectionExerciseUpdateEvent.setHeader(
           buildHeader(
-              EventTopic.COLLECTION_EXERCISE_UPDATE, sendInfo.getSource(), sendInfo.getChannel()));
+              EventTopic.COLLECTION_EXERCISE_UPDATE,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       CollectionExerciseUpdatePayload collectionExerciseUpdateEventPayload =
           new CollectionExerciseUpdatePayload((CollectionExerciseUpdate) sendInfo.getPayload());
       collectionExerciseUpdateEvent.setPayload(collectionExerciseUpdateEventPayload);
@@ -363,14 +451,27 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, CollectionExerciseUpdate.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(
+          ((CollectionExerciseUpdateEvent) genericEvent)
+              .getPayload()
+              .getCollectionExerciseUpdate()
+              .getCollectionExerciseId());
+    }
   }
 
   public static class NewCaseBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       NewCaseEvent newCaseEvent = new NewCaseEvent();
       newCaseEvent.setHeader(
-          buildHeader(EventTopic.NEW_CASE, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.NEW_CASE,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       NewCasePayload newCasePayload =
           new NewCasePayload((NewCasePayloadContent) sendInfo.getPayload());
       newCaseEvent.setPayload(newCasePayload);
@@ -388,14 +489,23 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, NewCasePayloadContent.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(((NewCaseEvent) genericEvent).getPayload().getNewCase().getCaseId());
+    }
   }
 
   public static class InvalidCaseBuilder extends EventBuilder {
     @Override
-    GenericEvent create(SendInfo sendInfo) {
+    GenericEvent create(SendInfo sendInfo, MessageIdGenerator messageIdGenerator) {
       InvalidCaseEvent invalidCaseEvent = new InvalidCaseEvent();
       invalidCaseEvent.setHeader(
-          buildHeader(EventTopic.INVALID_CASE, sendInfo.getSource(), sendInfo.getChannel()));
+          buildHeader(
+              EventTopic.INVALID_CASE,
+              sendInfo.getSource(),
+              sendInfo.getChannel(),
+              messageIdGenerator));
       InvalidCasePayload invalidCasePayload =
           new InvalidCasePayload((InvalidCase) sendInfo.getPayload());
       invalidCaseEvent.setPayload(invalidCasePayload);
@@ -413,5 +523,10 @@ public abstract class EventBuilder {
     EventPayload createPayload(String json) {
       return deserialisePayloadJson(json, InvalidCase.class);
     }
+
+    @Override
+    String orderingKey(GenericEvent genericEvent) {
+      return keyOf(((InvalidCaseEvent) genericEvent).getPayload().getInvalidCase().getCaseId());
+    }
   }
 }
@@ -0,0 +1,130 @@
+package uk.gov.ons.ctp.common.event;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds events for a short window, keyed by topic type and ordering key, so that only the newest
+ * event for each key is published. Held events are published on a background thread when their
+ * window ends, or on close.
+ */
+@Slf4j
+class EventCoalescer implements AutoCloseable {
+  private final CoalescingConfig config;
+  private final Consumer<EventOutbox.Entry> publisher;
+  private final PublisherMetrics metrics;
+  private final Map<String, EventOutbox.Entry> pending = new HashMap<>();
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final LongAdder suppressed = new LongAdder();
+  private boolean closed;
+
+  EventCoalescer(
+      CoalescingConfig config, Consumer<EventOutbox.Entry> publisher, PublisherMetrics metrics) {
+    this.config = config;
+    this.publisher = publisher;
+    this.metrics = metrics;
+    this.scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            r -> {
+              Thread thread = new Thread(r, "event-coalescer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+  }
+
+  /**
+   * Hold an event if its topic type is coalesced, replacing any event already held for its key.
+   *
+   * @param entry the event.
+   * @return true if held, or false if it should be published now.
+   */
+  boolean offer(EventOutbox.Entry entry) {
+    TopicType topicType = entry.getTopicType();
+    Long windowMillis = config.getWindowMillis().get(topicType);
+    if (windowMillis == null) {
+      return false;
+    }
+    String orderingKey = topicType.orderingKey(entry.getGenericEvent());
+    if (orderingKey == null) {
+      return false;
+    }
+    String key = topicType.name() + ":" + orderingKey;
+
+    synchronized (pending) {
+      if (closed) {
+        return false;
+      }
+      if (pending.containsKey(key)) {
+        pending.put(key, entry);
+        suppressed.increment();
+        metrics.coalesced(topicType);
+        log.debug("Coalesced event", kv("topicType", topicType), kv("key", orderingKey));
+        return true;
+      }
+      if (pending.size() >= config.getMaxPending()) {
+        return false;
+      }
+      pending.put(key, entry);
+      scheduler.schedule(() -> flush(key), windowMillis, TimeUnit.MILLISECONDS);
+      return true;
+    }
+  }
+
+  /**
+   * Get the number of events which were replaced by a newer event, and so never published.
+   *
+   * @return the count.
+   */
+  long getSuppressedCount() {
+    return suppressed.sum();
+  }
+
+  /**
+   * Publish all held events straight away, and stop holding new ones.
+   *
+   * @throws InterruptedException if interrupted while waiting for a flush in progress.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    List<EventOutbox.Entry> remaining;
+    synchronized (pending) {
+      closed = true;
+      remaining = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    scheduler.shutdown();
+    scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    remaining.forEach(this::publish);
+    log.info("Event coalescer closed", kv("suppressed", suppressed.sum()));
+  }
+
+  private void flush(String key) {
+    EventOutbox.Entry entry;
+    synchronized (pending) {
+      entry = pending.remove(key);
+    }
+    if (entry != null) {
+      publish(entry);
+    }
+  }
+
+  private void publish(EventOutbox.Entry entry) {
+    try {
+      publisher.accept(entry);
+    } catch (Exception e) {
+      // failures are logged, and if possible persisted, by the publisher
+      log.debug("Coalesced event not sent", kv("topicType", entry.getTopicType()), e);
+    }
+  }
+}
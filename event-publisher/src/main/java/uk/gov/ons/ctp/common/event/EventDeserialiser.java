@@ -0,0 +1,56 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Deserialises pub/sub message bodies into the event class for their topic type, the reverse of
+ * {@link EventSerialiser}.
+ *
+ * <p>An {@link ObjectReader} is created for each topic type up front, and the JSON is read straight
+ * from the message bytes without an intermediate String. By default the shared {@link
+ * EventObjectMapper} is used.
+ *
+ * <p>Instances are thread safe.
+ */
+public class EventDeserialiser {
+  private final Map<TopicType, ObjectReader> readers = new EnumMap<>(TopicType.class);
+
+  public EventDeserialiser() {
+    this(EventObjectMapper.get());
+  }
+
+  public EventDeserialiser(ObjectMapper objectMapper) {
+    for (TopicType topicType : TopicType.values()) {
+      if (topicType.getEventType() != null) {
+        readers.put(topicType, objectMapper.readerFor(topicType.getEventType()));
+      }
+    }
+  }
+
+  /**
+   * Deserialise an event from JSON.
+   *
+   * @param topicType the type of the event.
+   * @param data the UTF-8 encoded JSON.
+   * @return the event, of the event class for the topic type.
+   * @throws EventPublishException if the JSON could not be read, or the topic type has no event
+   *     class.
+   */
+  public GenericEvent fromByteString(TopicType topicType, ByteString data) {
+    ObjectReader reader = readers.get(topicType);
+    if (reader == null) {
+      throw new EventPublishException("No event class for topic type " + topicType);
+    }
+    try {
+      return reader.readValue(data.newInput());
+    } catch (IOException e) {
+      throw new EventPublishException("Failed to deserialise " + topicType + " event from JSON", e);
+    }
+  }
+}
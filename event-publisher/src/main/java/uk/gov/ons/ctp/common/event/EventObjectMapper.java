@@ -0,0 +1,43 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+/**
+ * Holds the object mapper shared by the event serialiser, deserialiser and builders, so that the
+ * serialisers and deserialisers for each event class are built once per process rather than once
+ * per mapper.
+ *
+ * <p>The mapper has the {@link BlackbirdModule}, which replaces reflective field and method access
+ * with accessors generated at runtime, and leaves properties with their own serialiser, such as
+ * dates and raw values, as they are. The JSON is the same as from a plain {@link
+ * CustomObjectMapper}.
+ *
+ * <p>The shared mapper must not be reconfigured.
+ */
+public final class EventObjectMapper {
+  private static final ObjectMapper SHARED = create();
+
+  private EventObjectMapper() {}
+
+  /**
+   * Get the shared mapper.
+   *
+   * @return the mapper.
+   */
+  public static ObjectMapper get() {
+    return SHARED;
+  }
+
+  /**
+   * Create a new mapper configured in the same way as the shared one.
+   *
+   * @return the mapper.
+   */
+  public static ObjectMapper create() {
+    CustomObjectMapper objectMapper = new CustomObjectMapper();
+    objectMapper.registerModule(new BlackbirdModule());
+    return objectMapper;
+  }
+}
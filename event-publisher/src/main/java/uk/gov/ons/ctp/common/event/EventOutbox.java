@@ -0,0 +1,195 @@
+package uk.gov.ons.ctp.common.event;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.event.OutboxConfig.BackpressurePolicy;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Bounded queue of built events, drained by a fixed pool of worker threads which publish them.
+ *
+ * <p>When ordered by key, the events are instead queued on the lanes of a {@link KeyedExecutor}, so
+ * that events with the same ordering key are published one at a time in order.
+ *
+ * <p>On close no more events are accepted, and the workers publish whatever is already queued
+ * before stopping. Queueing an event and closing hold a shared and an exclusive lock respectively,
+ * so an event accepted by {@link #submit(Entry)} is always queued before the workers start to stop.
+ */
+@Slf4j
+class EventOutbox implements AutoCloseable {
+  private static final long POLL_MILLIS = 100;
+
+  @Value
+  static class Entry {
+    TopicType topicType;
+    EventTopic eventTopic;
+    GenericEvent genericEvent;
+  }
+
+  private final OutboxConfig config;
+  private final Consumer<Entry> publisher;
+  private final BlockingQueue<Entry> queue;
+  private final ExecutorService workers;
+  private final KeyedExecutor lanes;
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+  private volatile boolean closed;
+
+  EventOutbox(OutboxConfig config, Consumer<Entry> publisher) {
+    this.config = config;
+    this.publisher = publisher;
+    if (config.isOrderedByKey()) {
+      this.queue = null;
+      this.workers = null;
+      this.lanes =
+          new KeyedExecutor(
+              "event-outbox",
+              config.getWorkerCount(),
+              Math.max(1, config.getCapacity() / config.getWorkerCount()));
+      return;
+    }
+    this.lanes = null;
+    this.queue = new ArrayBlockingQueue<>(config.getCapacity());
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.workers =
+        Executors.newFixedThreadPool(
+            config.getWorkerCount(),
+            r -> {
+              Thread thread = new Thread(r, "event-outbox-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    for (int i = 0; i < config.getWorkerCount(); i++) {
+      workers.execute(this::drain);
+    }
+  }
+
+  /**
+   * Add an event to the outbox, applying the backpressure policy if it is full.
+   *
+   * @param entry the event to add.
+   * @return true if the event was queued, or false if it should be spilled to persistence.
+   * @throws EventPublishException if the outbox is closed, or is full with the fail fast policy.
+   */
+  boolean submit(Entry entry) {
+    try {
+      if (offer(entry, 0)) {
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventPublishException("Interrupted queueing event in event outbox", e);
+    }
+
+    BackpressurePolicy policy = config.getBackpressurePolicy();
+    log.warn("Event outbox full", kv("topicType", entry.getTopicType()), kv("policy", policy));
+    switch (policy) {
+      case BLOCK:
+        try {
+          if (lanes == null) {
+            // wait in short steps, so that close is never held up by a full queue
+            while (!offer(entry, POLL_MILLIS)) {}
+          } else {
+            lanes.execute(orderingKey(entry), () -> publish(entry));
+          }
+          return true;
+        } catch (RejectedExecutionException e) {
+          throw new EventPublishException("Event outbox is closed", e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new EventPublishException("Interrupted waiting for space in event outbox", e);
+        }
+      case SPILL:
+        return false;
+      default:
+        throw new EventPublishException("Event outbox is full");
+    }
+  }
+
+  int size() {
+    return lanes == null ? queue.size() : lanes.size();
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    closeLock.writeLock().lock();
+    try {
+      closed = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+    if (lanes != null) {
+      lanes.shutdown();
+      if (!lanes.awaitTermination(config.getShutdownTimeoutSeconds(), TimeUnit.SECONDS)) {
+        log.error("Event outbox did not drain before shutdown", kv("remaining", lanes.size()));
+        lanes.shutdownNow();
+      }
+      return;
+    }
+    workers.shutdown();
+    if (!workers.awaitTermination(config.getShutdownTimeoutSeconds(), TimeUnit.SECONDS)) {
+      log.error("Event outbox did not drain before shutdown", kv("remaining", queue.size()));
+      workers.shutdownNow();
+    }
+  }
+
+  private void drain() {
+    try {
+      while (!closed || !queue.isEmpty()) {
+        Entry entry = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (entry != null) {
+          publish(entry);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean offer(Entry entry, long timeoutMillis) throws InterruptedException {
+    closeLock.readLock().lock();
+    try {
+      if (closed) {
+        throw new EventPublishException("Event outbox is closed");
+      }
+      return lanes == null
+          ? queue.offer(entry, timeoutMillis, TimeUnit.MILLISECONDS)
+          : offerToLane(entry);
+    } finally {
+      closeLock.readLock().unlock();
+    }
+  }
+
+  private boolean offerToLane(Entry entry) {
+    try {
+      return lanes.offer(orderingKey(entry), () -> publish(entry));
+    } catch (RejectedExecutionException e) {
+      throw new EventPublishException("Event outbox is closed", e);
+    }
+  }
+
+  private static String orderingKey(Entry entry) {
+    return entry.getTopicType().orderingKey(entry.getGenericEvent());
+  }
+
+  private void publish(Entry entry) {
+    try {
+      publisher.accept(entry);
+    } catch (Exception e) {
+      // failures are logged, and if possible persisted, by the publisher
+      log.debug("Outbox event not sent", kv("topicType", entry.getTopicType()), e);
+    }
+  }
+}
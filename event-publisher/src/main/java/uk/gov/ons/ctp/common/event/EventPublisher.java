@@ -2,7 +2,24 @@ package uk.gov.ons.ctp.common.event;
 
 import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
 import uk.gov.ons.ctp.common.domain.Channel;
@@ -10,23 +27,115 @@ import uk.gov.ons.ctp.common.domain.Source;
 import uk.gov.ons.ctp.common.event.EventBuilder.SendInfo;
 import uk.gov.ons.ctp.common.event.model.EventPayload;
 import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.model.Header;
 import uk.gov.ons.ctp.common.event.persistence.EventBackupData;
 import uk.gov.ons.ctp.common.event.persistence.EventPersistence;
 
-/** Service responsible for the publication of events. */
+/**
+ * Service responsible for the publication of events.
+ *
+ * <p>Instances are made with one of the <code>create</code> methods, or with {@link #builder()} for
+ * the less common options. Only the event sender is required; any option which is not set is
+ * disabled.
+ *
+ * <p>When built with a meter registry, the time taken to build, publish and persist events is
+ * recorded, along with counts of published, failed and backed up events, tagged by topic type and
+ * event topic. A sender which is a {@link MeterBinder} is bound to the same registry, so that
+ * serialisation is timed too.
+ *
+ * <p>When built with a coalescing configuration, events sent with <code>sendEvent</code> for the
+ * configured topic types are held for a short window, and only the newest for each ordering key,
+ * such as the case id, is published. The replaced events are counted but never published. Held
+ * events are published from a background thread, through the outbox if there is one.
+ *
+ * <p>Message ids are random UUIDs, unless the publisher is built with another {@link
+ * MessageIdGenerator}, such as {@link MessageIdGenerator#TIME_ORDERED}.
+ */
 @Slf4j
-public class EventPublisher {
+public class EventPublisher implements AutoCloseable {
+  private static final int DEFAULT_ASYNC_THREADS = 8;
+  private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
 
   private EventSender sender;
   private CircuitBreaker circuitBreaker;
 
   private EventPersistence eventPersistence;
 
+  private Executor asyncExecutor;
+  private ExecutorService ownedAsyncExecutor;
+
+  private EventOutbox outbox;
+
+  private PersistenceBuffer persistenceBuffer;
+  private EventCoalescer coalescer;
+  private volatile boolean circuitOpen;
+
+  private PublisherMetrics metrics;
+
+  private MessageIdGenerator messageIdGenerator;
+
+  /**
+   * Constructor, used by the create methods and the builder.
+   *
+   * @param eventSender the impl of EventSender that will be used to ... send the event.
+   * @param eventPersistence persistence for events which fail to publish, or null if not required.
+   * @param circuitBreaker circuit breaker object, or null if not required.
+   * @param asyncExecutor executor for asynchronous sends, or null for a bounded pool owned by this
+   *     publisher.
+   * @param outboxConfig configuration for outbox mode, or null to publish on the calling thread.
+   * @param degradedModeConfig configuration for batching persistence while the circuit breaker is
+   *     open, or null to persist each event as it fails. Requires persistence and a circuit
+   *     breaker.
+   * @param meterRegistry registry for publishing metrics, or null if not required.
+   * @param coalescingConfig configuration for coalescing events, or null to publish every event.
+   *     Only the topic types in {@link CoalescingConfig#COALESCIBLE} can be coalesced.
+   * @param messageIdGenerator generator of the message ids of new events, or null for random UUIDs.
+   */
+  @Builder
   private EventPublisher(
-      EventSender eventSender, EventPersistence eventPersistence, CircuitBreaker circuitBreaker) {
+      EventSender eventSender,
+      EventPersistence eventPersistence,
+      CircuitBreaker circuitBreaker,
+      Executor asyncExecutor,
+      OutboxConfig outboxConfig,
+      DegradedModeConfig degradedModeConfig,
+      MeterRegistry meterRegistry,
+      CoalescingConfig coalescingConfig,
+      MessageIdGenerator messageIdGenerator) {
+    if (degradedModeConfig != null && (eventPersistence == null || circuitBreaker == null)) {
+      throw new IllegalArgumentException(
+          "Degraded mode needs both event persistence and a circuit breaker");
+    }
+    if (coalescingConfig != null) {
+      for (TopicType topicType : coalescingConfig.getWindowMillis().keySet()) {
+        if (!CoalescingConfig.COALESCIBLE.contains(topicType)) {
+          throw new IllegalArgumentException(
+              "Events of topic type " + topicType + " cannot be coalesced");
+        }
+      }
+    }
     this.sender = eventSender;
     this.eventPersistence = eventPersistence;
     this.circuitBreaker = circuitBreaker;
+    this.messageIdGenerator =
+        messageIdGenerator == null ? MessageIdGenerator.RANDOM : messageIdGenerator;
+    if (asyncExecutor == null) {
+      this.ownedAsyncExecutor = newAsyncExecutor();
+      this.asyncExecutor = ownedAsyncExecutor;
+    } else {
+      this.asyncExecutor = asyncExecutor;
+    }
+    this.metrics = new PublisherMetrics(meterRegistry, this::isCircuitOpen);
+    if (degradedModeConfig != null) {
+      this.persistenceBuffer = new PersistenceBuffer(degradedModeConfig, eventPersistence, metrics);
+    }
+    this.outbox = outboxConfig == null ? null : new EventOutbox(outboxConfig, this::publishQueued);
+    if (meterRegistry != null && eventSender instanceof MeterBinder) {
+      ((MeterBinder) eventSender).bindTo(meterRegistry);
+    }
+    if (coalescingConfig != null) {
+      this.coalescer = new EventCoalescer(coalescingConfig, this::publishCoalesced, metrics);
+    }
   }
 
   /**
@@ -37,7 +146,7 @@ public class EventPublisher {
    * @return an EventPubisher object.
    */
   public static EventPublisher createWithoutEventPersistence(EventSender eventSender) {
-    return new EventPublisher(eventSender, null, null);
+    return new EventPublisher(eventSender, null, null, null, null, null, null, null, null);
   }
 
   /**
@@ -57,7 +166,33 @@ public class EventPublisher {
    */
   public static EventPublisher create(
       EventSender eventSender, EventPersistence eventPersistence, CircuitBreaker circuitBreaker) {
-    return new EventPublisher(eventSender, eventPersistence, circuitBreaker);
+    return new EventPublisher(
+        eventSender, eventPersistence, circuitBreaker, null, null, null, null, null, null);
+  }
+
+  /**
+   * Create method for creating an EventPublisher with optional persistence, optional
+   * circuit-breaker behaviour and an executor for the asynchronous send methods.
+   *
+   * <p>The executor runs the blocking parts of an asynchronous send, which are the circuit-breaker
+   * protected publish and the backup to the persistent store. If null then the publisher uses its
+   * own pool of 8 threads, which is shut down on close. Once its queue of 1000 tasks is full, the
+   * blocking parts run on the calling thread instead.
+   *
+   * @param eventSender the impl of EventSender that will be used to ... send the event.
+   * @param eventPersistence is an EventPersistence implementation which does the actual event
+   *     persistence, or null if not required
+   * @param circuitBreaker circuit breaker object, or null if not required.
+   * @param asyncExecutor executor for asynchronous sends, or null for the default.
+   * @return an EventPubisher object.
+   */
+  public static EventPublisher create(
+      EventSender eventSender,
+      EventPersistence eventPersistence,
+      CircuitBreaker circuitBreaker,
+      Executor asyncExecutor) {
+    return new EventPublisher(
+        eventSender, eventPersistence, circuitBreaker, asyncExecutor, null, null, null, null, null);
   }
 
   /**
@@ -71,6 +206,19 @@ public class EventPublisher {
    * with no exception. If event persistence fails then an error is logged and an exception is
    * thrown.
    *
+   * <p>In degraded mode the behaviour differs while the circuit breaker is open. A rejected event
+   * is put in an in-memory buffer, and this method returns as soon as it is buffered, before the
+   * event has been persisted. The buffer is persisted in batches by a background thread. If both
+   * the batch and the individual persistence of an event fail, the event is lost. In that case it
+   * is only logged and counted as a failed backup, since no exception can reach the caller.
+   * Buffered events are also lost if the process dies before they are persisted. When the buffer is
+   * full or the publisher is closing, the event is persisted on the calling thread as described
+   * above.
+   *
+   * <p>In outbox mode the event is validated and built, then queued and published by a worker
+   * thread. A publish failure in the worker is handled in the same way, except that an exception
+   * can only be logged.
+   *
    * @param topicType the event type
    * @param source the source
    * @param channel the channel
@@ -117,9 +265,119 @@ public class EventPublisher {
     return sendEvent(topicType, source, channel, payload);
   }
 
+  /**
+   * Method to publish an event without blocking the calling thread.
+   *
+   * <p>The event is validated and built on the calling thread, so an invalid payload results in an
+   * exception being thrown immediately. The publish, and any backup to the persistent store
+   * following a publish failure, then run as stages of the returned future.
+   *
+   * <p>The failure behaviour matches that of <code>sendEvent</code>: if the publish fails and the
+   * event is persisted then the future completes normally, otherwise it completes exceptionally
+   * with an {@link EventPublishException}.
+   *
+   * @param topicType the event type
+   * @param source the source
+   * @param channel the channel
+   * @param payload message payload for event
+   * @return future holding the UUID message Id for event
+   */
+  public CompletableFuture<UUID> sendEventAsync(
+      TopicType topicType, Source source, Channel channel, EventPayload payload) {
+    log.debug(
+        "Enter sendEventAsync",
+        kv("topicType", topicType),
+        kv("source", source),
+        kv("channel", channel),
+        kv("payload", payload));
+
+    GenericEvent genericEvent =
+        buildEvent(topicType, new SendInfo(payload, source.name(), channel));
+    EventTopic eventTopic = EventTopic.forType(topicType);
+    UUID messageId = genericEvent.getHeader().getMessageId();
+
+    return publishAsync(eventTopic, genericEvent)
+        .exceptionallyAsync(
+            e -> {
+              handlePublishFailure(topicType, eventTopic, genericEvent, unwrap(e));
+              return null;
+            },
+            asyncExecutor)
+        .thenApply(v -> messageId);
+  }
+
+  /**
+   * Method to publish many events of the same type in one go.
+   *
+   * <p>All events are validated and built before any are published, so an invalid payload results
+   * in an exception being thrown and nothing being sent. The events are then handed to the sender
+   * together, so that they can be grouped into batches using the sender's count, size and delay
+   * thresholds, and this method waits until every event has been acknowledged or has failed.
+   *
+   * <p>Only the events that failed to publish are saved to the persistent store, if one is set.
+   * Unlike <code>sendEvent</code>, failures do not result in an exception; instead the outcome of
+   * each event is reported in the returned list.
+   *
+   * @param topicType the event type
+   * @param source the source
+   * @param channel the channel
+   * @param payloads message payloads for the events
+   * @return the outcome for each event, in the same order as the payloads.
+   */
+  public List<SendOutcome> sendEvents(
+      TopicType topicType, Source source, Channel channel, List<? extends EventPayload> payloads) {
+    log.debug(
+        "Enter sendEvents",
+        kv("topicType", topicType),
+        kv("source", source),
+        kv("channel", channel),
+        kv("count", payloads.size()));
+
+    List<GenericEvent> genericEvents = new ArrayList<>(payloads.size());
+    for (EventPayload payload : payloads) {
+      genericEvents.add(buildEvent(topicType, new SendInfo(payload, source.name(), channel)));
+    }
+    EventTopic eventTopic = EventTopic.forType(topicType);
+
+    List<CompletableFuture<Void>> futures = publishAll(eventTopic, genericEvents);
+
+    List<SendOutcome> outcomes = new ArrayList<>(genericEvents.size());
+    int failureCount = 0;
+    for (int i = 0; i < genericEvents.size(); i++) {
+      GenericEvent genericEvent = genericEvents.get(i);
+      UUID messageId = genericEvent.getHeader().getMessageId();
+      try {
+        futures.get(i).join();
+        outcomes.add(new SendOutcome(messageId, SendOutcome.Status.PUBLISHED, null));
+      } catch (Exception e) {
+        failureCount++;
+        try {
+          handlePublishFailure(topicType, eventTopic, genericEvent, unwrap(e));
+          outcomes.add(new SendOutcome(messageId, SendOutcome.Status.PERSISTED, unwrap(e)));
+        } catch (EventPublishException epe) {
+          outcomes.add(new SendOutcome(messageId, SendOutcome.Status.FAILED, epe));
+        }
+      }
+    }
+
+    log.info(
+        "Bulk send complete",
+        kv("topicType", topicType),
+        kv("eventTopic", eventTopic),
+        kv("count", genericEvents.size()),
+        kv("failureCount", failureCount));
+    return outcomes;
+  }
+
   /**
    * Send a backup event that would have previously been stored in cloud data storage.
    *
+   * <p>The event keeps the message id, correlation id and date time of the original event, which
+   * are held in the backed up event JSON, so that a consumer can recognise an event sent more than
+   * once as a duplicate.
+   *
+   * <p>This never goes through the outbox, so that the caller knows whether the event was sent.
+   *
    * @param event backup event , typically recovered from firestore.
    * @return UUID message Id for event
    */
@@ -130,7 +388,9 @@ public class EventPublisher {
       log.error("Unrecognised event type", kv("type", type));
       throw new UnsupportedOperationException("Unknown event: " + type);
     }
-    GenericEvent genericEvent = doSendEvent(type, sendInfo);
+    GenericEvent genericEvent = buildEvent(type, sendInfo);
+    restoreHeader(genericEvent.getHeader(), sendInfo.getHeader());
+    publishOrPersist(type, EventTopic.forType(type), genericEvent);
     UUID messageId = genericEvent.getHeader().getMessageId();
     UUID correlationId = genericEvent.getHeader().getCorrelationId();
 
@@ -139,7 +399,142 @@ public class EventPublisher {
     return messageId;
   }
 
+  /**
+   * Whether the circuit breaker was open at the last publish attempt, so that callers can choose to
+   * shed non-critical events during an outage. Always false without a circuit breaker.
+   *
+   * @return true if the circuit breaker is open.
+   */
+  public boolean isCircuitOpen() {
+    return circuitOpen;
+  }
+
+  /**
+   * Get the number of events which were replaced by a newer event for the same entity while being
+   * coalesced, and so never published. Always zero without coalescing.
+   *
+   * @return the count.
+   */
+  public long getCoalescedCount() {
+    return coalescer == null ? 0 : coalescer.getSuppressedCount();
+  }
+
+  /**
+   * Publish any events held for coalescing, stop the outbox, if there is one, after publishing any
+   * events which are still queued, and then persist any events buffered in degraded mode. Finally
+   * stop the default executor for asynchronous sends, once the sends already started have run.
+   *
+   * @throws InterruptedException if interrupted while waiting for the outbox or buffer to drain.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    if (coalescer != null) {
+      coalescer.close();
+    }
+    if (outbox != null) {
+      outbox.close();
+    }
+    if (persistenceBuffer != null) {
+      persistenceBuffer.close();
+    }
+    if (ownedAsyncExecutor != null) {
+      ownedAsyncExecutor.shutdown();
+      ownedAsyncExecutor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Create the default executor for asynchronous sends. It is kept apart from the common fork-join
+   * pool since publishing and persisting block on I/O, and its queue is bounded so that a pub/sub
+   * outage slows callers down rather than filling the heap.
+   */
+  private static ExecutorService newAsyncExecutor() {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            DEFAULT_ASYNC_THREADS,
+            DEFAULT_ASYNC_THREADS,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(DEFAULT_ASYNC_QUEUE_SIZE),
+            r -> {
+              Thread thread =
+                  new Thread(r, "event-publisher-async-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            },
+            // unlike CallerRunsPolicy, this still runs the task after shutdown, so the future
+            // it completes is never abandoned
+            (r, e) -> r.run());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static void restoreHeader(Header header, Header original) {
+    if (original == null) {
+      return;
+    }
+    if (original.getMessageId() != null) {
+      header.setMessageId(original.getMessageId());
+    }
+    if (original.getCorrelationId() != null) {
+      header.setCorrelationId(original.getCorrelationId());
+    }
+    if (original.getDateTime() != null) {
+      header.setDateTime(original.getDateTime());
+    }
+  }
+
   private GenericEvent doSendEvent(TopicType topicType, SendInfo sendInfo) {
+    GenericEvent genericEvent = buildEvent(topicType, sendInfo);
+    EventTopic eventTopic = EventTopic.forType(topicType);
+
+    if (coalescer != null
+        && coalescer.offer(new EventOutbox.Entry(topicType, eventTopic, genericEvent))) {
+      return genericEvent;
+    }
+    if (outbox == null) {
+      publishOrPersist(topicType, eventTopic, genericEvent);
+    } else if (!outbox.submit(new EventOutbox.Entry(topicType, eventTopic, genericEvent))) {
+      handlePublishFailure(
+          topicType, eventTopic, genericEvent, new EventPublishException("Event outbox is full"));
+    }
+
+    return genericEvent;
+  }
+
+  private void publishOrPersist(TopicType topicType, EventTopic eventTopic, GenericEvent event) {
+    try {
+      publish(eventTopic, event);
+    } catch (Exception e) {
+      handlePublishFailure(topicType, eventTopic, event, e);
+    }
+  }
+
+  private void publishQueued(EventOutbox.Entry entry) {
+    publishOrPersist(entry.getTopicType(), entry.getEventTopic(), entry.getGenericEvent());
+  }
+
+  private void publishCoalesced(EventOutbox.Entry entry) {
+    if (outbox == null) {
+      publishQueued(entry);
+      return;
+    }
+    EventPublishException failure;
+    try {
+      if (outbox.submit(entry)) {
+        return;
+      }
+      failure = new EventPublishException("Event outbox is full");
+    } catch (EventPublishException e) {
+      failure = e;
+    }
+    handlePublishFailure(
+        entry.getTopicType(), entry.getEventTopic(), entry.getGenericEvent(), failure);
+  }
+
+  private GenericEvent buildEvent(TopicType topicType, SendInfo sendInfo) {
+    long start = metrics.start();
     EventPayload payload = sendInfo.getPayload();
 
     if (!payload.getClass().equals(topicType.getPayloadType())) {
@@ -163,52 +558,79 @@ public class EventPublisher {
       throw new UnsupportedOperationException(errorMessage);
     }
 
-    GenericEvent genericEvent = topicType.getBuilder().create(sendInfo);
+    GenericEvent genericEvent = topicType.getBuilder().create(sendInfo, messageIdGenerator);
     if (genericEvent == null) {
       log.error("Payload for topicType not configured", kv("topicType", topicType));
       String errorMessage =
           payload.getClass().getName() + " for topicType '" + topicType + "' not supported yet";
       throw new UnsupportedOperationException(errorMessage);
     }
+    metrics.built(topicType, start);
+    return genericEvent;
+  }
 
-    try {
-      publish(eventTopic, genericEvent);
-    } catch (Exception e) {
-      boolean backup = eventPersistence != null;
-      log.error(
-          "Failed to send event",
+  private void handlePublishFailure(
+      TopicType topicType, EventTopic eventTopic, GenericEvent genericEvent, Throwable e) {
+    metrics.failed(topicType);
+    // While the circuit is open, skip straight to a batched backup without the per event logging
+    if (persistenceBuffer != null
+        && isCallNotPermitted(e)
+        && persistenceBuffer.offer(topicType, genericEvent)) {
+      log.debug(
+          "Circuit breaker open, event buffered for backup",
           kv("topicType", topicType),
-          kv("eventTopic", eventTopic),
-          kv("backup", backup),
-          e);
-      if (!backup) {
-        throw new EventPublishException("Failed to publish event", e);
-      }
+          kv("eventTopic", eventTopic));
+      return;
+    }
+
+    boolean backup = eventPersistence != null;
+    log.error(
+        "Failed to send event",
+        kv("topicType", topicType),
+        kv("eventTopic", eventTopic),
+        kv("backup", backup),
+        e);
+    if (!backup) {
+      throw new EventPublishException("Failed to publish event", e);
+    }
+    log.info(
+        "Will now backup event to firestore, since it failed to publish",
+        kv("topicType", topicType),
+        kv("eventTopic", eventTopic));
+
+    // Save event to persistent store
+    long start = metrics.start();
+    try {
+      eventPersistence.persistEvent(topicType, genericEvent);
+      metrics.persisted(topicType, start, true);
       log.info(
-          "Will now backup event to firestore, since it failed to publish",
+          "Event data saved to persistent store",
           kv("topicType", topicType),
           kv("eventTopic", eventTopic));
+    } catch (Exception epe) {
+      metrics.persisted(topicType, start, false);
+      // There is no hope. Neither pub/sub or Persistence are working
+      log.error(
+          "Backup event persistence failed following publish failure",
+          kv("topicType", topicType),
+          kv("eventTopic", eventTopic),
+          epe);
+      throw new EventPublishException(
+          "Backup event persistence failed following publish failure", e);
+    }
+  }
 
-      // Save event to persistent store
-      try {
-        eventPersistence.persistEvent(topicType, genericEvent);
-        log.info(
-            "Event data saved to persistent store",
-            kv("topicType", topicType),
-            kv("eventTopic", eventTopic));
-      } catch (Exception epe) {
-        // There is no hope. Neither pub/sub or Persistence are working
-        log.error(
-            "Backup event persistence failed following publish failure",
-            kv("topicType", topicType),
-            kv("eventTopic", eventTopic),
-            epe);
-        throw new EventPublishException(
-            "Backup event persistence failed following publish failure", e);
+  private static boolean isCallNotPermitted(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof CallNotPermittedException) {
+        return true;
       }
     }
+    return false;
+  }
 
-    return genericEvent;
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
   }
 
   private void publish(EventTopic eventTopic, GenericEvent genericEvent) {
@@ -219,9 +641,11 @@ public class EventPublisher {
         this.circuitBreaker.run(
             () -> {
               publish(eventTopic, genericEvent, "within circuit-breaker");
+              circuitOpen = false;
               return null;
             },
             throwable -> {
+              circuitOpen = isCallNotPermitted(throwable);
               throw new EventCircuitBreakerException(throwable);
             });
       } catch (EventCircuitBreakerException e) {
@@ -239,9 +663,120 @@ public class EventPublisher {
         kv("topicType", topicType),
         kv("eventTopic", eventTopic));
 
-    sender.sendEvent(eventTopic, genericEvent);
+    long start = metrics.start();
+    metrics.publishStarted();
+    boolean success = false;
+    try {
+      sender.sendEvent(eventTopic, genericEvent);
+      success = true;
+    } finally {
+      metrics.publishFinished(topicType, start, success);
+    }
 
     log.info(
         "Message successfully published", kv("topicType", topicType), kv("eventTopic", eventTopic));
   }
+
+  private List<CompletableFuture<Void>> publishAll(
+      EventTopic eventTopic, List<GenericEvent> genericEvents) {
+    if (circuitBreaker == null) {
+      return sendAll(eventTopic, genericEvents);
+    }
+
+    // Run the whole batch as a single circuit breaker call, which fails if any event fails.
+    // Sending and giving up hold the lock on sent, so the batch is either sent and its futures
+    // recorded, or never sent at all.
+    AtomicReference<List<CompletableFuture<Void>>> sent = new AtomicReference<>();
+    AtomicBoolean abandoned = new AtomicBoolean();
+    try {
+      this.circuitBreaker.run(
+          () -> {
+            List<CompletableFuture<Void>> futures;
+            synchronized (sent) {
+              if (abandoned.get()) {
+                throw new EventPublishException("Circuit breaker gave up before sending");
+              }
+              futures = sendAll(eventTopic, genericEvents);
+              sent.set(futures);
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            circuitOpen = false;
+            return null;
+          },
+          throwable -> {
+            circuitOpen = isCallNotPermitted(throwable);
+            throw new EventCircuitBreakerException(throwable);
+          });
+      return sent.get();
+    } catch (EventCircuitBreakerException e) {
+      log.debug("{}: {}", e.getMessage(), e.getCause().getMessage());
+      List<CompletableFuture<Void>> futures;
+      synchronized (sent) {
+        abandoned.set(true);
+        futures = sent.get();
+      }
+      if (futures == null) {
+        // nothing was handed to the sender, so every event has failed
+        return genericEvents.stream()
+            .map(ev -> CompletableFuture.<Void>failedFuture(e))
+            .collect(Collectors.toList());
+      }
+      // Events already handed to the sender may still be acknowledged after the circuit breaker
+      // gave up, so their outcomes are left to settle rather than being persisted as duplicates
+      return futures;
+    }
+  }
+
+  private List<CompletableFuture<Void>> sendAll(
+      EventTopic eventTopic, List<GenericEvent> genericEvents) {
+    log.info(
+        "Publishing messages",
+        kv("topicType", eventTopic.getType()),
+        kv("eventTopic", eventTopic),
+        kv("count", genericEvents.size()));
+    try {
+      long start = metrics.start();
+      List<CompletableFuture<Void>> futures = sender.sendEventsAsync(eventTopic, genericEvents);
+      futures.forEach(future -> timePublish(eventTopic.getType(), start, future));
+      return futures;
+    } catch (Exception e) {
+      return genericEvents.stream()
+          .map(ev -> CompletableFuture.<Void>failedFuture(e))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private CompletableFuture<Void> publishAsync(EventTopic eventTopic, GenericEvent genericEvent) {
+    if (circuitBreaker != null) {
+      // The circuit breaker API is synchronous, so it has to be run off the calling thread
+      return CompletableFuture.runAsync(() -> publish(eventTopic, genericEvent), asyncExecutor);
+    }
+
+    TopicType topicType = eventTopic.getType();
+    log.info("Publishing message async", kv("topicType", topicType), kv("eventTopic", eventTopic));
+
+    CompletableFuture<Void> future;
+    try {
+      long start = metrics.start();
+      future = timePublish(topicType, start, sender.sendEventAsync(eventTopic, genericEvent));
+    } catch (Exception e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    return future.whenComplete(
+        (v, e) -> {
+          if (e == null) {
+            log.info(
+                "Message successfully published",
+                kv("topicType", topicType),
+                kv("eventTopic", eventTopic));
+          }
+        });
+  }
+
+  private CompletableFuture<Void> timePublish(
+      TopicType topicType, long start, CompletableFuture<Void> future) {
+    metrics.publishStarted();
+    future.whenComplete((v, e) -> metrics.publishFinished(topicType, start, e == null));
+    return future;
+  }
 }
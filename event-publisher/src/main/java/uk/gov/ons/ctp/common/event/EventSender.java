@@ -1,10 +1,50 @@
 package uk.gov.ons.ctp.common.event;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import uk.gov.ons.ctp.common.event.model.GenericEvent;
 
 public interface EventSender {
 
   void sendEvent(EventTopic eventTopic, GenericEvent genericEvent);
 
+  /**
+   * Send an event without waiting for it to be acknowledged.
+   *
+   * <p>The default implementation calls <code>sendEvent</code> on the calling thread, so
+   * implementations backed by an asynchronous client should override it.
+   *
+   * @param eventTopic the topic to send to.
+   * @param genericEvent the event to send.
+   * @return future which completes when the event has been acknowledged, or completes exceptionally
+   *     if the send failed.
+   */
+  default CompletableFuture<Void> sendEventAsync(EventTopic eventTopic, GenericEvent genericEvent) {
+    try {
+      sendEvent(eventTopic, genericEvent);
+      return CompletableFuture.completedFuture(null);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Send many events to the same topic without waiting for them to be acknowledged.
+   *
+   * <p>Implementations backed by a batching client should hand all events to the client before
+   * flushing, so that they are grouped into as few requests as the batching thresholds allow.
+   *
+   * @param eventTopic the topic to send to.
+   * @param genericEvents the events to send.
+   * @return a future for each event, in the same order as the events.
+   */
+  default List<CompletableFuture<Void>> sendEventsAsync(
+      EventTopic eventTopic, List<? extends GenericEvent> genericEvents) {
+    return genericEvents.stream()
+        .map(genericEvent -> sendEventAsync(eventTopic, genericEvent))
+        .collect(Collectors.toList());
+  }
+
   default void close() throws Exception {}
 }
@@ -0,0 +1,95 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Serialises events to the UTF-8 JSON bytes sent as a pub/sub message body.
+ *
+ * <p>The JSON is written straight into a {@link ByteString.Output} rather than going through an
+ * intermediate String, and an {@link ObjectWriter} is cached for each event class. The initial
+ * buffer size for each event class follows the largest event of that class seen so far, so that
+ * large events such as case updates with big sample maps rarely need the buffer to grow.
+ *
+ * <p>By default the shared {@link EventObjectMapper} is used, and the writers for every event class
+ * are created up front so that the first events sent are not slowed by building serialisers.
+ *
+ * <p>Instances are thread safe. The senders all use the {@link #shared()} instance, so that the
+ * writers and buffer size hints are built up once per process.
+ */
+public class EventSerialiser {
+  private static final int MIN_BUFFER_SIZE = 256;
+  private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+  private static final EventSerialiser SHARED = new EventSerialiser();
+
+  private final ObjectMapper objectMapper;
+
+  private final ClassValue<EventWriter> writers =
+      new ClassValue<>() {
+        @Override
+        protected EventWriter computeValue(Class<?> type) {
+          return new EventWriter(objectMapper.writerFor(type));
+        }
+      };
+
+  public EventSerialiser() {
+    this(EventObjectMapper.get());
+    for (TopicType topicType : TopicType.values()) {
+      if (topicType.getEventType() != null) {
+        writers.get(topicType.getEventType());
+      }
+    }
+  }
+
+  public EventSerialiser(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Get the serialiser shared by the event senders, which uses the shared {@link
+   * EventObjectMapper}.
+   *
+   * @return the serialiser.
+   */
+  public static EventSerialiser shared() {
+    return SHARED;
+  }
+
+  /**
+   * Serialise an event to JSON.
+   *
+   * @param genericEvent the event to serialise.
+   * @return the UTF-8 encoded JSON.
+   * @throws EventPublishException if the event could not be serialised.
+   */
+  public ByteString toByteString(GenericEvent genericEvent) {
+    EventWriter eventWriter = writers.get(genericEvent.getClass());
+    ByteString.Output output = ByteString.newOutput(eventWriter.sizeHint);
+    try {
+      eventWriter.writer.writeValue(output, genericEvent);
+    } catch (IOException e) {
+      throw new EventPublishException("Failed to serialise event to JSON", e);
+    }
+    eventWriter.recordSize(output.size());
+    return output.toByteString();
+  }
+
+  private static class EventWriter {
+    private final ObjectWriter writer;
+    private volatile int sizeHint = MIN_BUFFER_SIZE;
+
+    EventWriter(ObjectWriter writer) {
+      this.writer = writer;
+    }
+
+    void recordSize(int size) {
+      // Benign race: a lost update only means a less accurate hint
+      if (size > sizeHint) {
+        sizeHint = Math.min(size, MAX_BUFFER_SIZE);
+      }
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package uk.gov.ons.ctp.common.event;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Event sender which delivers messages to in-memory subscriptions instead of pub/sub, for load
+ * testing the publishing path without a network or the pub/sub emulator.
+ *
+ * <p>Events are serialised into pub/sub messages just as the real senders do, and each message is
+ * copied to every open subscription to its topic. A message published to a topic with no
+ * subscriptions is dropped, as it would be by pub/sub.
+ *
+ * <p>Latency and a failure rate can be injected, and changed while running, so that the circuit
+ * breaker and event persistence fallback of {@link EventPublisher} can be exercised. Asynchronous
+ * sends complete after the latency without holding a thread.
+ */
+@Slf4j
+public class InMemoryEventSender implements EventSender {
+  private final InMemorySenderConfig config;
+  private final PubSubMessageFactory messageFactory;
+  private final Map<EventTopic, List<InMemorySubscription>> subscriptions =
+      new ConcurrentHashMap<>();
+  private final Map<EventTopic, AtomicLong> publishedCounts = new ConcurrentHashMap<>();
+  private final ExecutorService pushExecutor;
+
+  private volatile long latencyMillis;
+  private volatile long latencyJitterMillis;
+  private volatile double failureRate;
+
+  public InMemoryEventSender() {
+    this(new InMemorySenderConfig());
+  }
+
+  public InMemoryEventSender(InMemorySenderConfig config) {
+    this.config = config;
+    this.messageFactory = new PubSubMessageFactory(EventSerialiser.shared(), true);
+    this.latencyMillis = config.getLatencyMillis();
+    this.latencyJitterMillis = config.getLatencyJitterMillis();
+    this.failureRate = config.getFailureRate();
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.pushExecutor =
+        Executors.newCachedThreadPool(
+            r -> {
+              Thread thread = new Thread(r, "in-memory-push-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void sendEvent(EventTopic eventTopic, GenericEvent genericEvent) {
+    long delay = nextLatency();
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new EventPublishException("Interrupted during injected latency", e);
+      }
+    }
+    deliver(eventTopic, genericEvent);
+  }
+
+  @Override
+  public CompletableFuture<Void> sendEventAsync(EventTopic eventTopic, GenericEvent genericEvent) {
+    long delay = nextLatency();
+    if (delay <= 0) {
+      // deliver directly, as sendEvent would roll the latency again and may sleep on the caller
+      try {
+        deliver(eventTopic, genericEvent);
+        return CompletableFuture.completedFuture(null);
+      } catch (Exception e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    return CompletableFuture.runAsync(
+        () -> deliver(eventTopic, genericEvent),
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Create a pull subscription to a topic.
+   *
+   * @param eventTopic the topic.
+   * @return the subscription.
+   */
+  public InMemorySubscription subscribe(EventTopic eventTopic) {
+    List<InMemorySubscription> topicSubscriptions =
+        subscriptions.computeIfAbsent(eventTopic, t -> new CopyOnWriteArrayList<>());
+    InMemorySubscription subscription =
+        new InMemorySubscription(eventTopic, config.getQueueCapacity(), topicSubscriptions::remove);
+    topicSubscriptions.add(subscription);
+    return subscription;
+  }
+
+  /**
+   * Create a push subscription to a topic. Messages are handed to the handler one at a time, in the
+   * order they were published, until the subscription is closed.
+   *
+   * @param eventTopic the topic.
+   * @param handler receives each message; an exception from it is logged and the message dropped.
+   * @return the subscription.
+   */
+  public InMemorySubscription subscribe(EventTopic eventTopic, Consumer<PubsubMessage> handler) {
+    InMemorySubscription subscription = subscribe(eventTopic);
+    pushExecutor.execute(() -> push(subscription, handler));
+    return subscription;
+  }
+
+  /**
+   * Get the number of messages successfully published to a topic.
+   *
+   * @param eventTopic the topic.
+   * @return the count.
+   */
+  public long getPublishedCount(EventTopic eventTopic) {
+    AtomicLong count = publishedCounts.get(eventTopic);
+    return count == null ? 0 : count.get();
+  }
+
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  public void setLatencyJitterMillis(long latencyJitterMillis) {
+    this.latencyJitterMillis = latencyJitterMillis;
+  }
+
+  public void setFailureRate(double failureRate) {
+    this.failureRate = failureRate;
+  }
+
+  /**
+   * Store events which are too large to send inline in a blob store, sending a reference instead.
+   *
+   * @param claimCheck the claim check, or null to send every event inline.
+   */
+  public void setClaimCheck(ClaimCheck claimCheck) {
+    messageFactory.setClaimCheck(claimCheck);
+  }
+
+  /** Close every subscription and stop the push threads. */
+  @Override
+  public void close() {
+    subscriptions.values().forEach(list -> list.forEach(InMemorySubscription::close));
+    pushExecutor.shutdownNow();
+  }
+
+  private void deliver(EventTopic eventTopic, GenericEvent genericEvent) {
+    double rate = failureRate;
+    if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+      throw new EventPublishException("Injected publish failure");
+    }
+
+    PubsubMessage message = messageFactory.toMessage(genericEvent);
+    for (InMemorySubscription subscription : subscriptions.getOrDefault(eventTopic, List.of())) {
+      if (!subscription.offer(message)) {
+        throw new EventPublishException("Subscription to " + eventTopic.getTopic() + " is full");
+      }
+    }
+    publishedCounts.computeIfAbsent(eventTopic, t -> new AtomicLong()).incrementAndGet();
+  }
+
+  private long nextLatency() {
+    long jitter = latencyJitterMillis;
+    return latencyMillis + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+  }
+
+  private void push(InMemorySubscription subscription, Consumer<PubsubMessage> handler) {
+    try {
+      while (!subscription.isClosed()) {
+        PubsubMessage message = subscription.poll(100, TimeUnit.MILLISECONDS);
+        if (message != null) {
+          try {
+            handler.accept(message);
+          } catch (Exception e) {
+            log.warn(
+                "Push handler failed, message dropped", kv("topic", subscription.getTopic()), e);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package uk.gov.ons.ctp.common.event;
+
+import lombok.Data;
+
+/**
+ * Configuration for {@link InMemoryEventSender}.
+ *
+ * <p>Each publish is delayed by {@code latencyMillis} plus a random extra of up to {@code
+ * latencyJitterMillis}, and then fails with probability {@code failureRate}, between 0 and 1. A
+ * subscription holds at most {@code queueCapacity} messages, and a publish to a topic with a full
+ * subscription fails, although the message still reaches any other subscriptions with space.
+ */
+@Data
+public class InMemorySenderConfig {
+  private int queueCapacity = 10000;
+  private long latencyMillis;
+  private long latencyJitterMillis;
+  private double failureRate;
+}
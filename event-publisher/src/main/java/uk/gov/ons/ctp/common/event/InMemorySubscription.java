@@ -0,0 +1,84 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Subscription to a topic of an {@link InMemoryEventSender}, which receives a copy of every message
+ * published to the topic after it was created.
+ *
+ * <p>A pull subscription is read with {@link #poll(long, TimeUnit)} or {@link #pull(int)}. A push
+ * subscription hands each message to its handler on a thread of its own, and should not be read
+ * directly.
+ */
+public class InMemorySubscription implements AutoCloseable {
+  private final EventTopic topic;
+  private final BlockingQueue<PubsubMessage> queue;
+  private final Consumer<InMemorySubscription> onClose;
+  private volatile boolean closed;
+
+  InMemorySubscription(EventTopic topic, int capacity, Consumer<InMemorySubscription> onClose) {
+    this.topic = topic;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.onClose = onClose;
+  }
+
+  public EventTopic getTopic() {
+    return topic;
+  }
+
+  /**
+   * Wait for the next message.
+   *
+   * @param timeout how long to wait.
+   * @param unit unit of the timeout.
+   * @return the message, or null if none arrived in time.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public PubsubMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+    return queue.poll(timeout, unit);
+  }
+
+  /**
+   * Take the messages which are waiting, without blocking.
+   *
+   * @param maxMessages the most messages to take.
+   * @return the messages, oldest first, which may be empty.
+   */
+  public List<PubsubMessage> pull(int maxMessages) {
+    List<PubsubMessage> messages = new ArrayList<>(Math.min(maxMessages, queue.size()));
+    queue.drainTo(messages, maxMessages);
+    return messages;
+  }
+
+  /**
+   * Get the number of messages waiting.
+   *
+   * @return the backlog.
+   */
+  public int backlog() {
+    return queue.size();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /** Stop receiving messages. Messages already waiting can still be pulled. */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      onClose.accept(this);
+    }
+  }
+
+  boolean offer(PubsubMessage message) {
+    return queue.offer(message);
+  }
+}
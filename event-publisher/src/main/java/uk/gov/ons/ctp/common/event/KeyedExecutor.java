@@ -0,0 +1,213 @@
+package uk.gov.ons.ctp.common.event;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs tasks on a fixed number of lanes, each with a single thread and a bounded queue, choosing
+ * the lane from a key such as a case id. Tasks with the same key run one at a time in the order
+ * they were submitted, while tasks with different keys can run in parallel.
+ *
+ * <p>Tasks without a key are spread over the lanes in turn, and have no ordering. A task which
+ * throws is logged, and the lane carries on with the next task.
+ *
+ * <p>On shutdown no more tasks are accepted, and the lanes run whatever is already queued before
+ * stopping. A task is either queued before the shutdown, and so runs, or rejected.
+ */
+@Slf4j
+public class KeyedExecutor implements AutoCloseable {
+  private static final long POLL_MILLIS = 100;
+
+  private final Lane[] lanes;
+  private final AtomicInteger nextLane = new AtomicInteger();
+  private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+  private volatile boolean shutdown;
+
+  private class Lane implements Runnable {
+    private final BlockingQueue<Runnable> queue;
+    private final Thread thread;
+
+    Lane(String name, int queueCapacity) {
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.thread = new Thread(this, name);
+      thread.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!shutdown || !queue.isEmpty()) {
+          Runnable task = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          if (task != null) {
+            try {
+              task.run();
+            } catch (Exception e) {
+              log.warn("Keyed task failed", kv("lane", thread.getName()), e);
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Constructor, which starts the lane threads.
+   *
+   * @param name prefix for the names of the lane threads.
+   * @param laneCount number of lanes, and so the most tasks which run at once.
+   * @param queueCapacity number of tasks each lane can hold waiting to run.
+   */
+  public KeyedExecutor(String name, int laneCount, int queueCapacity) {
+    if (laneCount < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("Lane count and queue capacity must be at least 1");
+    }
+    this.lanes = new Lane[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+      lanes[i] = new Lane(name + "-" + (i + 1), queueCapacity);
+      lanes[i].thread.start();
+    }
+  }
+
+  /**
+   * Queue a task if there is space in its lane.
+   *
+   * @param key the ordering key, or null if the task is not ordered.
+   * @param task the task.
+   * @return true if queued, or false if the lane is full.
+   * @throws RejectedExecutionException if the executor has been shut down.
+   */
+  public boolean offer(String key, Runnable task) {
+    shutdownLock.readLock().lock();
+    try {
+      checkRunning();
+      return laneFor(key).queue.offer(task);
+    } finally {
+      shutdownLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Queue a task, waiting for space in its lane if necessary.
+   *
+   * @param key the ordering key, or null if the task is not ordered.
+   * @param task the task.
+   * @throws InterruptedException if interrupted while waiting for space.
+   * @throws RejectedExecutionException if the executor has been shut down, including while waiting.
+   */
+  public void execute(String key, Runnable task) throws InterruptedException {
+    Lane lane = laneFor(key);
+    // wait in short steps, so that shutdown is never held up by a full lane
+    while (!offer(lane, task, POLL_MILLIS)) {}
+  }
+
+  /**
+   * Get the lane for a key, which is the same for the life of the executor.
+   *
+   * @param key the ordering key.
+   * @return the index of the lane.
+   */
+  public int laneOf(String key) {
+    int hash = key.hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+  }
+
+  /**
+   * Get the number of tasks waiting to run.
+   *
+   * @return the total over all lanes.
+   */
+  public int size() {
+    int size = 0;
+    for (Lane lane : lanes) {
+      size += lane.queue.size();
+    }
+    return size;
+  }
+
+  /** Stop accepting tasks, leaving the lanes to run those already queued. */
+  public void shutdown() {
+    shutdownLock.writeLock().lock();
+    try {
+      shutdown = true;
+    } finally {
+      shutdownLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Wait for the lanes to finish after shutdown.
+   *
+   * @param timeout the longest time to wait.
+   * @param unit the unit of the timeout.
+   * @return true if every lane finished in time.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Lane lane : lanes) {
+      long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remaining > 0) {
+        lane.thread.join(remaining);
+      }
+      if (lane.thread.isAlive()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Stop the lanes without running the tasks still queued. */
+  public void shutdownNow() {
+    shutdown();
+    for (Lane lane : lanes) {
+      lane.queue.clear();
+      lane.thread.interrupt();
+    }
+  }
+
+  /**
+   * Shut down and wait for the tasks already queued to run.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    shutdown();
+    for (Lane lane : lanes) {
+      lane.thread.join();
+    }
+  }
+
+  private Lane laneFor(String key) {
+    if (key == null) {
+      return lanes[Math.floorMod(nextLane.getAndIncrement(), lanes.length)];
+    }
+    return lanes[laneOf(key)];
+  }
+
+  private boolean offer(Lane lane, Runnable task, long timeoutMillis) throws InterruptedException {
+    shutdownLock.readLock().lock();
+    try {
+      checkRunning();
+      return lane.queue.offer(task, timeoutMillis, TimeUnit.MILLISECONDS);
+    } finally {
+      shutdownLock.readLock().unlock();
+    }
+  }
+
+  private void checkRunning() {
+    if (shutdown) {
+      throw new RejectedExecutionException("Keyed executor is shut down");
+    }
+  }
+}
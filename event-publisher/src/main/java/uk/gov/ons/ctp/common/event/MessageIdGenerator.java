@@ -0,0 +1,36 @@
+package uk.gov.ons.ctp.common.event;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generator of the message ids in event headers. Each {@link EventPublisher} has its own, which is
+ * {@link #RANDOM} unless another is given to its builder.
+ */
+@FunctionalInterface
+public interface MessageIdGenerator {
+
+  /** Random version 4 UUIDs, drawn from the shared secure random number generator. */
+  MessageIdGenerator RANDOM = timeMillis -> UUID.randomUUID();
+
+  /**
+   * Time ordered version 7 UUIDs, which begin with the time in milliseconds so that ids sort in the
+   * order they were generated, to the millisecond. The random bits come from the calling thread's
+   * own generator, so threads never contend. The ids are unique but not unguessable.
+   */
+  MessageIdGenerator TIME_ORDERED =
+      timeMillis -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (timeMillis << 16) | 0x7000L | (random.nextInt() & 0x0fffL);
+        long leastSigBits = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+      };
+
+  /**
+   * Generate a message id.
+   *
+   * @param timeMillis the time of the event, in milliseconds since the epoch.
+   * @return the id.
+   */
+  UUID generate(long timeMillis);
+}
@@ -1,30 +1,40 @@
 package uk.gov.ons.ctp.common.event;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.core.CredentialsProvider;
+import com.google.api.gax.core.ExecutorProvider;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.cloud.pubsub.v1.Publisher;
-import com.google.protobuf.ByteString;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.TopicName;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
 import uk.gov.ons.ctp.common.event.model.GenericEvent;
-import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 
+/**
+ * Event sender which uses the native Google pub/sub client.
+ *
+ * <p>A long-lived publisher is held for each topic, so this sender should be closed when it is no
+ * longer required. If it is declared as a Spring bean then the inferred destroy method will call
+ * {@link #close()} when the application context is shut down.
+ */
 @Slf4j
-public class NativePubSubEventSender implements EventSender {
+public class NativePubSubEventSender implements EventSender, MeterBinder {
 
-  private ObjectMapper objectMapper;
-  private String projectId;
-  private TransportChannelProvider channelProvider;
-  private CredentialsProvider credentialsProvider;
-  private boolean usePubSub;
+  private PubSubMessageFactory messageFactory;
+  private PublisherPool publisherPool;
 
   public NativePubSubEventSender(
       String projectId,
@@ -32,47 +42,160 @@ public class NativePubSubEventSender implements EventSender {
       CredentialsProvider credentialsProvider,
       Boolean usePubSub)
       throws CTPException {
-    this.projectId = projectId;
-    this.channelProvider = channelProvider;
-    this.credentialsProvider = credentialsProvider;
-    this.usePubSub = usePubSub;
-    objectMapper = new CustomObjectMapper();
+    this(projectId, channelProvider, credentialsProvider, usePubSub, new PublisherConfig());
+  }
+
+  public NativePubSubEventSender(
+      String projectId,
+      TransportChannelProvider channelProvider,
+      CredentialsProvider credentialsProvider,
+      Boolean usePubSub,
+      PublisherConfig publisherConfig)
+      throws CTPException {
+    this(
+        new PublisherPool(
+            topic ->
+                buildPublisher(
+                    TopicName.of(projectId, topic.getTopic()),
+                    channelProvider,
+                    credentialsProvider,
+                    usePubSub,
+                    publisherConfig),
+            publisherConfig.getShutdownTimeoutSeconds()),
+        publisherConfig.isEnableMessageOrdering());
+  }
+
+  NativePubSubEventSender(PublisherPool publisherPool, boolean ordering) {
+    this.publisherPool = publisherPool;
+    messageFactory = new PubSubMessageFactory(EventSerialiser.shared(), ordering);
+  }
+
+  private static Publisher buildPublisher(
+      TopicName topicName,
+      TransportChannelProvider channelProvider,
+      CredentialsProvider credentialsProvider,
+      boolean usePubSub,
+      PublisherConfig publisherConfig)
+      throws IOException {
+    Publisher.Builder builder =
+        Publisher.newBuilder(topicName).setBatchingSettings(publisherConfig.batchingSettings());
+    ExecutorProvider executorProvider = publisherConfig.executorProvider();
+    if (executorProvider != null) {
+      builder.setExecutorProvider(executorProvider);
+    }
+    if (publisherConfig.isEnableMessageOrdering()) {
+      builder.setEnableMessageOrdering(true);
+    }
+    if (usePubSub) {
+      builder.setChannelProvider(channelProvider).setCredentialsProvider(credentialsProvider);
+    }
+    return builder.build();
   }
 
   @SneakyThrows
   @Override
   public void sendEvent(EventTopic topic, GenericEvent genericEvent) {
-
-    TopicName topicName = TopicName.of(projectId, topic.getTopic());
-    Publisher publisher = null;
     try {
-      // Create a publisher instance with default settings bound to the topic
-      if (usePubSub) {
-        publisher =
-            Publisher.newBuilder(topicName)
-                .setChannelProvider(channelProvider)
-                .setCredentialsProvider(credentialsProvider)
-                .build();
-      } else {
-        publisher = Publisher.newBuilder(topicName).build();
-      }
-
-      ByteString data = ByteString.copyFrom(objectMapper.writeValueAsString(genericEvent), "UTF-8");
-      PubsubMessage pubsubMessage = PubsubMessage.newBuilder().setData(data).build();
-
       // Once published, returns a server-assigned message id (unique within the topic)
-      ApiFuture<String> messageIdFuture = publisher.publish(pubsubMessage);
-      String messageId = messageIdFuture.get();
+      String messageId = publish(topic, genericEvent).get();
       log.info("Published message ID: " + messageId);
-    } catch (IOException | ExecutionException | InterruptedException e) {
+    } catch (ExecutionException | InterruptedException e) {
       log.error("Failed to publish event", e);
       throw e;
-    } finally {
-      if (publisher != null) {
-        // When finished with the publisher, shutdown to free up resources.
-        publisher.shutdown();
-        publisher.awaitTermination(1, TimeUnit.MINUTES);
-      }
     }
   }
+
+  @Override
+  public CompletableFuture<Void> sendEventAsync(EventTopic topic, GenericEvent genericEvent) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    ApiFuture<String> messageIdFuture;
+    try {
+      messageIdFuture = publish(topic, genericEvent);
+    } catch (Exception e) {
+      log.error("Failed to publish event", e);
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    ApiFutures.addCallback(
+        messageIdFuture,
+        new ApiFutureCallback<String>() {
+          @Override
+          public void onSuccess(String messageId) {
+            log.info("Published message ID: " + messageId);
+            result.complete(null);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            log.error("Failed to publish event", t);
+            result.completeExceptionally(t);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return result;
+  }
+
+  @Override
+  public List<CompletableFuture<Void>> sendEventsAsync(
+      EventTopic topic, List<? extends GenericEvent> genericEvents) {
+    List<CompletableFuture<Void>> futures =
+        genericEvents.stream()
+            .map(genericEvent -> sendEventAsync(topic, genericEvent))
+            .collect(Collectors.toList());
+
+    // Send any partially filled batch now, rather than waiting for the delay threshold
+    publisherPool.get(topic).publishAllOutstanding();
+    return futures;
+  }
+
+  private ApiFuture<String> publish(EventTopic topic, GenericEvent genericEvent) {
+    Publisher publisher = publisherPool.get(topic);
+
+    PubsubMessage pubsubMessage = messageFactory.toMessage(genericEvent);
+
+    ApiFuture<String> messageIdFuture = publisher.publish(pubsubMessage);
+    String orderingKey = pubsubMessage.getOrderingKey();
+    if (!orderingKey.isEmpty()) {
+      // A failure pauses publishing for the key, so let later events for it be tried again
+      ApiFutures.addCallback(
+          messageIdFuture,
+          new ApiFutureCallback<String>() {
+            @Override
+            public void onSuccess(String messageId) {}
+
+            @Override
+            public void onFailure(Throwable t) {
+              publisher.resumePublish(orderingKey);
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+    return messageIdFuture;
+  }
+
+  /** Shut down the publishers, waiting for any outstanding messages to be sent. */
+  @Override
+  public void close() throws Exception {
+    publisherPool.close();
+  }
+
+  /**
+   * Store events which are too large to send inline in a blob store, sending a reference instead.
+   *
+   * @param claimCheck the claim check, or null to send every event inline.
+   */
+  public void setClaimCheck(ClaimCheck claimCheck) {
+    messageFactory.setClaimCheck(claimCheck);
+  }
+
+  /**
+   * Record the time taken to serialise events.
+   *
+   * @param registry registry for the serialisation timers.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    messageFactory.bindTo(registry);
+  }
 }
@@ -0,0 +1,30 @@
+package uk.gov.ons.ctp.common.event;
+
+import lombok.Data;
+
+/**
+ * Configuration for the outbox mode of {@link EventPublisher}.
+ *
+ * <p>The backpressure policy decides what happens when an event is sent while the outbox is full.
+ * {@code BLOCK} waits for space, {@code FAIL_FAST} throws an {@link EventPublishException}, and
+ * {@code SPILL} saves the event straight to the publisher's event persistence as if it had failed
+ * to publish.
+ *
+ * <p>With {@code orderedByKey} set, events are queued on one of {@code workerCount} lanes chosen by
+ * their ordering key, such as the case id, so that events for the same entity are published in the
+ * order they were sent. Each lane then holds an equal share of {@code capacity}.
+ */
+@Data
+public class OutboxConfig {
+  public enum BackpressurePolicy {
+    BLOCK,
+    FAIL_FAST,
+    SPILL
+  }
+
+  private int capacity = 1000;
+  private int workerCount = 4;
+  private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+  private int shutdownTimeoutSeconds = 30;
+  private boolean orderedByKey;
+}
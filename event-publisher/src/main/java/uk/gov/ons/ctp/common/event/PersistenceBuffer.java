@@ -0,0 +1,155 @@
+package uk.gov.ons.ctp.common.event;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.persistence.EventPersistence;
+
+/**
+ * Buffer of events waiting to be persisted, which a background thread writes in batches grouped by
+ * topic type. If a batch cannot be written, each of its events is tried on its own.
+ *
+ * <p>Buffered events are held in memory only, so any still buffered when the process dies are lost.
+ * An event which cannot be persisted on its own either is logged and counted as a failed backup,
+ * since the caller has already been told that it was accepted.
+ *
+ * <p>Once close has started no more events are accepted, so that every event accepted is included
+ * in the final flush.
+ */
+@Slf4j
+class PersistenceBuffer implements AutoCloseable {
+
+  @Value
+  static class Entry {
+    TopicType topicType;
+    GenericEvent genericEvent;
+  }
+
+  private final DegradedModeConfig config;
+  private final EventPersistence eventPersistence;
+  private final BlockingQueue<Entry> queue;
+  private final ScheduledExecutorService flusher;
+  private final PublisherMetrics metrics;
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+  private boolean closing;
+
+  PersistenceBuffer(
+      DegradedModeConfig config, EventPersistence eventPersistence, PublisherMetrics metrics) {
+    this.config = config;
+    this.eventPersistence = eventPersistence;
+    this.metrics = metrics;
+    this.queue = new ArrayBlockingQueue<>(config.getCapacity());
+    this.flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "event-persistence-buffer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    flusher.scheduleWithFixedDelay(
+        this::flush,
+        config.getFlushIntervalMillis(),
+        config.getFlushIntervalMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Add an event to the buffer.
+   *
+   * @param topicType the event type.
+   * @param genericEvent the event.
+   * @return true if buffered, or false if the buffer is full or closed.
+   */
+  boolean offer(TopicType topicType, GenericEvent genericEvent) {
+    closeLock.readLock().lock();
+    try {
+      if (closing || !queue.offer(new Entry(topicType, genericEvent))) {
+        return false;
+      }
+      if (queue.size() >= config.getBatchSize()) {
+        flusher.execute(this::flush);
+      }
+      return true;
+    } finally {
+      closeLock.readLock().unlock();
+    }
+  }
+
+  int size() {
+    return queue.size();
+  }
+
+  synchronized void flush() {
+    List<Entry> batch = new ArrayList<>(config.getBatchSize());
+    while (queue.drainTo(batch, config.getBatchSize()) > 0) {
+      Map<TopicType, List<GenericEvent>> byType = new LinkedHashMap<>();
+      for (Entry entry : batch) {
+        byType
+            .computeIfAbsent(entry.getTopicType(), t -> new ArrayList<>())
+            .add(entry.getGenericEvent());
+      }
+      byType.forEach(this::persist);
+      batch.clear();
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    closeLock.writeLock().lock();
+    try {
+      closing = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+    flusher.shutdown();
+    flusher.awaitTermination(config.getFlushIntervalMillis() * 10, TimeUnit.MILLISECONDS);
+    flush();
+  }
+
+  private void persist(TopicType topicType, List<GenericEvent> genericEvents) {
+    long start = metrics.start();
+    try {
+      eventPersistence.persistEvents(topicType, genericEvents);
+      metrics.persisted(topicType, start, genericEvents.size(), true);
+      log.info(
+          "Buffered events saved to persistent store",
+          kv("topicType", topicType),
+          kv("count", genericEvents.size()));
+      return;
+    } catch (Exception e) {
+      log.warn(
+          "Batch persistence failed, persisting events one at a time",
+          kv("topicType", topicType),
+          kv("count", genericEvents.size()),
+          e);
+    }
+    for (GenericEvent genericEvent : genericEvents) {
+      start = metrics.start();
+      try {
+        eventPersistence.persistEvent(topicType, genericEvent);
+        metrics.persisted(topicType, start, true);
+      } catch (Exception e) {
+        metrics.persisted(topicType, start, false);
+        // There is no hope. Neither pub/sub or Persistence are working
+        log.error(
+            "Backup event persistence failed following publish failure",
+            kv("topicType", topicType),
+            kv("messageId", genericEvent.getHeader().getMessageId()),
+            e);
+      }
+    }
+  }
+}
@@ -1,36 +1,45 @@
 package uk.gov.ons.ctp.common.event;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
-import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.springframework.util.concurrent.ListenableFuture;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
 import uk.gov.ons.ctp.common.event.model.GenericEvent;
-import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 
-public class PubSubEventSender implements EventSender {
-  private static final ObjectMapper OBJECT_MAPPER = new CustomObjectMapper();
+public class PubSubEventSender implements EventSender, MeterBinder {
   private final PubSubTemplate pubSubTemplate;
+  private final PubSubMessageFactory messageFactory;
   private int timeout;
 
   public PubSubEventSender(PubSubTemplate pubSubTemplate, int timeout) {
+    this(pubSubTemplate, timeout, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param pubSubTemplate template to publish with.
+   * @param timeout seconds to wait for a publish to be acknowledged.
+   * @param ordering whether to give messages an ordering key, which needs message ordering to be
+   *     enabled for the template's publishers.
+   */
+  public PubSubEventSender(PubSubTemplate pubSubTemplate, int timeout, boolean ordering) {
     this.pubSubTemplate = pubSubTemplate;
     this.timeout = timeout;
+    this.messageFactory = new PubSubMessageFactory(EventSerialiser.shared(), ordering);
   }
 
   @Override
   public void sendEvent(EventTopic eventTopic, GenericEvent genericEvent) {
-    String body = convertObjectToJson(genericEvent);
-    String topic = eventTopic.getTopic();
+    PubsubMessage pubsubMessage = toMessage(genericEvent);
 
-    PubsubMessage pubsubMessage =
-        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(body)).build();
-
-    ListenableFuture<String> future = pubSubTemplate.publish(topic, pubsubMessage);
+    ListenableFuture<String> future = pubSubTemplate.publish(eventTopic.getTopic(), pubsubMessage);
 
     try {
       future.get(timeout, TimeUnit.SECONDS);
@@ -39,11 +48,37 @@ public class PubSubEventSender implements EventSender {
     }
   }
 
-  private String convertObjectToJson(Object obj) {
-    try {
-      return OBJECT_MAPPER.writeValueAsString(obj);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException("Failed converting Object To Json", e);
-    }
+  @Override
+  public CompletableFuture<Void> sendEventAsync(EventTopic eventTopic, GenericEvent genericEvent) {
+    PubsubMessage pubsubMessage = toMessage(genericEvent);
+
+    return pubSubTemplate
+        .publish(eventTopic.getTopic(), pubsubMessage)
+        .completable()
+        .orTimeout(timeout, TimeUnit.SECONDS)
+        .thenApply(messageId -> null);
+  }
+
+  private PubsubMessage toMessage(GenericEvent genericEvent) {
+    return messageFactory.toMessage(genericEvent);
+  }
+
+  /**
+   * Store events which are too large to send inline in a blob store, sending a reference instead.
+   *
+   * @param claimCheck the claim check, or null to send every event inline.
+   */
+  public void setClaimCheck(ClaimCheck claimCheck) {
+    messageFactory.setClaimCheck(claimCheck);
+  }
+
+  /**
+   * Record the time taken to serialise events.
+   *
+   * @param registry registry for the serialisation timers.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    messageFactory.bindTo(registry);
   }
 }
@@ -0,0 +1,152 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck.Ticket;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.model.Header;
+
+/**
+ * Builds the pub/sub message for an event.
+ *
+ * <p>As well as the JSON body, the message carries attributes copied from the event header, so that
+ * subscribers can filter and route events without reading the body. Header fields which are not set
+ * are left out.
+ *
+ * <p>When ordering is enabled the message is also given an ordering key, chosen by the {@link
+ * EventBuilder} for the topic type, such as the case id for case updates. The publisher must then
+ * have message ordering enabled, as publishing a message with an ordering key is otherwise
+ * rejected.
+ *
+ * <p>With a claim check set, an event whose JSON is too large is stored in its blob store instead.
+ * The message then carries the blob's reference and hash as attributes, and a body holding only the
+ * event header.
+ *
+ * <p>Once bound to a meter registry, the time taken to serialise each event is recorded.
+ *
+ * <p>Instances are thread safe.
+ */
+public class PubSubMessageFactory implements MeterBinder {
+  public static final String TOPIC_TYPE = "topicType";
+  public static final String SOURCE = "source";
+  public static final String CHANNEL = "channel";
+  public static final String MESSAGE_ID = "messageId";
+  public static final String CORRELATION_ID = "correlationId";
+  public static final String CLAIM_CHECK = "claimCheck";
+  public static final String CLAIM_CHECK_SHA256 = "claimCheckSha256";
+
+  private final EventSerialiser eventSerialiser;
+  private final boolean ordering;
+  private volatile Map<TopicType, Timer> serialiseTimers;
+  private volatile ClaimCheck claimCheck;
+
+  public PubSubMessageFactory(EventSerialiser eventSerialiser, boolean ordering) {
+    this.eventSerialiser = eventSerialiser;
+    this.ordering = ordering;
+  }
+
+  /**
+   * Build the message for an event.
+   *
+   * @param genericEvent the event.
+   * @return the message.
+   * @throws EventPublishException if the event could not be serialised.
+   */
+  public PubsubMessage toMessage(GenericEvent genericEvent) {
+    Header header = genericEvent.getHeader();
+    TopicType topicType =
+        header == null || header.getTopic() == null ? null : header.getTopic().getType();
+    ByteString data = serialise(genericEvent, topicType);
+    PubsubMessage.Builder message = PubsubMessage.newBuilder();
+    if (header == null) {
+      return message.setData(data).build();
+    }
+    ClaimCheck claimCheck = this.claimCheck;
+    if (claimCheck != null && claimCheck.isOversized(data.size())) {
+      Ticket ticket = claimCheck.checkIn(data.toByteArray());
+      putAttribute(message, CLAIM_CHECK, ticket.getReference());
+      putAttribute(message, CLAIM_CHECK_SHA256, ticket.getSha256());
+      data = eventSerialiser.toByteString(new GenericEvent(header));
+    }
+    message.setData(data);
+    putAttribute(message, TOPIC_TYPE, topicType);
+    putAttribute(message, SOURCE, header.getSource());
+    putAttribute(message, CHANNEL, header.getChannel());
+    putAttribute(message, MESSAGE_ID, header.getMessageId());
+    putAttribute(message, CORRELATION_ID, header.getCorrelationId());
+
+    if (ordering && topicType != null) {
+      String orderingKey = topicType.orderingKey(genericEvent);
+      if (orderingKey != null) {
+        message.setOrderingKey(orderingKey);
+      }
+    }
+    return message.build();
+  }
+
+  /**
+   * Set the claim check used for oversized events.
+   *
+   * @param claimCheck the claim check, or null to send every event inline.
+   */
+  public void setClaimCheck(ClaimCheck claimCheck) {
+    this.claimCheck = claimCheck;
+  }
+
+  /**
+   * Get the body of a message built by this factory, reading it back from the blob store if it was
+   * claim checked.
+   *
+   * @param message the message.
+   * @param claimCheck the claim check, or null if none is configured.
+   * @return the JSON body of the event.
+   * @throws EventPublishException if the message was claim checked, but the body could not be read
+   *     back or no claim check is configured.
+   */
+  public static ByteString bodyOf(PubsubMessage message, ClaimCheck claimCheck) {
+    String reference = message.getAttributesOrDefault(CLAIM_CHECK, null);
+    if (reference == null) {
+      return message.getData();
+    }
+    if (claimCheck == null) {
+      throw new EventPublishException("Message body is claim checked, but no claim check is set");
+    }
+    return ByteString.copyFrom(
+        claimCheck.checkOut(
+            new Ticket(reference, message.getAttributesOrDefault(CLAIM_CHECK_SHA256, null))));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Map<TopicType, Timer> timers = new EnumMap<>(TopicType.class);
+    for (TopicType topicType : TopicType.values()) {
+      timers.put(
+          topicType, registry.timer(PublisherMetrics.SERIALISE, PublisherMetrics.tags(topicType)));
+    }
+    serialiseTimers = timers;
+  }
+
+  private ByteString serialise(GenericEvent genericEvent, TopicType topicType) {
+    Map<TopicType, Timer> timers = serialiseTimers;
+    if (timers == null || topicType == null) {
+      return eventSerialiser.toByteString(genericEvent);
+    }
+    long start = System.nanoTime();
+    ByteString data = eventSerialiser.toByteString(genericEvent);
+    timers.get(topicType).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return data;
+  }
+
+  private static void putAttribute(PubsubMessage.Builder message, String name, Object value) {
+    if (value != null) {
+      message.putAttributes(name, value.toString());
+    }
+  }
+}
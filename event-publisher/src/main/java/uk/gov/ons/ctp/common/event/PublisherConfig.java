@@ -0,0 +1,66 @@
+package uk.gov.ons.ctp.common.event;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.ExecutorProvider;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import lombok.Data;
+import org.threeten.bp.Duration;
+
+/**
+ * Configuration for the native pub/sub {@link com.google.cloud.pubsub.v1.Publisher} instances held
+ * by the {@link PublisherPool}.
+ *
+ * <p>The defaults match those of the Google client library, so an unconfigured instance gives the
+ * same publishing behaviour as a default publisher.
+ *
+ * <p>Flow control limits of zero or less mean that the limit is not applied.
+ *
+ * <p>With message ordering enabled, events are published with an ordering key such as the case id,
+ * so that subscriptions with ordering enabled receive the events for each key in order.
+ */
+@Data
+public class PublisherConfig {
+  private long elementCountThreshold = 100L;
+  private long requestByteThreshold = 1000L;
+  private long delayThresholdMillis = 1L;
+  private long maxOutstandingElementCount;
+  private long maxOutstandingRequestBytes;
+  private LimitExceededBehavior limitExceededBehavior = LimitExceededBehavior.Ignore;
+  private int executorThreadCount;
+  private int shutdownTimeoutSeconds = 60;
+  private boolean enableMessageOrdering;
+
+  public BatchingSettings batchingSettings() {
+    FlowControlSettings.Builder flowControl =
+        FlowControlSettings.newBuilder().setLimitExceededBehavior(limitExceededBehavior);
+    if (maxOutstandingElementCount > 0) {
+      flowControl.setMaxOutstandingElementCount(maxOutstandingElementCount);
+    }
+    if (maxOutstandingRequestBytes > 0) {
+      flowControl.setMaxOutstandingRequestBytes(maxOutstandingRequestBytes);
+    }
+
+    return BatchingSettings.newBuilder()
+        .setElementCountThreshold(elementCountThreshold)
+        .setRequestByteThreshold(requestByteThreshold)
+        .setDelayThreshold(Duration.ofMillis(delayThresholdMillis))
+        .setFlowControlSettings(flowControl.build())
+        .build();
+  }
+
+  /**
+   * Get the executor provider for the publishers.
+   *
+   * @return executor provider, or null if the library default should be used.
+   */
+  public ExecutorProvider executorProvider() {
+    if (executorThreadCount <= 0) {
+      return null;
+    }
+    return InstantiatingExecutorProvider.newBuilder()
+        .setExecutorThreadCount(executorThreadCount)
+        .build();
+  }
+}
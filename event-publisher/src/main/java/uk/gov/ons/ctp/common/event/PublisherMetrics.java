@@ -0,0 +1,154 @@
+package uk.gov.ons.ctp.common.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Micrometer meters for the stages of publishing an event, tagged by topic type and event topic.
+ *
+ * <p>The meters for each topic type are registered up front, so recording only looks them up in an
+ * enum map. Without a registry every method does nothing, and {@link #start()} does not read the
+ * clock.
+ *
+ * <p>The counters and timers of every publisher on a registry are shared. The gauges read the state
+ * of one publisher, so each publisher's gauges carry a {@code publisher} tag numbered in order of
+ * creation. Without it, a second publisher on the same registry would be handed the first
+ * publisher's gauge, and its own state would never be reported.
+ */
+class PublisherMetrics {
+  static final String PREFIX = "event.publisher.";
+  static final String BUILD = PREFIX + "build";
+  static final String SERIALISE = PREFIX + "serialise";
+  static final String PUBLISH = PREFIX + "publish";
+  static final String PERSIST = PREFIX + "persist";
+  static final String PUBLISHED = PREFIX + "published";
+  static final String FAILED = PREFIX + "failed";
+  static final String BACKUP = PREFIX + "backup";
+  static final String BACKUP_FAILED = PREFIX + "backup.failed";
+  static final String IN_FLIGHT = PREFIX + "inflight";
+  static final String CIRCUIT_OPEN = PREFIX + "circuit.open";
+  static final String COALESCED = PREFIX + "coalesced";
+  static final String PUBLISHER_TAG = "publisher";
+
+  private static final AtomicInteger PUBLISHER_COUNT = new AtomicInteger();
+
+  private final boolean enabled;
+  private final Map<TopicType, Meters> meters = new EnumMap<>(TopicType.class);
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private static class Meters {
+    private final Timer build;
+    private final Timer publish;
+    private final Timer persist;
+    private final Counter published;
+    private final Counter failed;
+    private final Counter backup;
+    private final Counter backupFailed;
+    private final Counter coalesced;
+
+    Meters(MeterRegistry registry, Tags tags) {
+      build = registry.timer(BUILD, tags);
+      publish = registry.timer(PUBLISH, tags);
+      persist = registry.timer(PERSIST, tags);
+      published = registry.counter(PUBLISHED, tags);
+      failed = registry.counter(FAILED, tags);
+      backup = registry.counter(BACKUP, tags);
+      backupFailed = registry.counter(BACKUP_FAILED, tags);
+      coalesced = registry.counter(COALESCED, tags);
+    }
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param registry registry for the meters, or null to disable metrics.
+   * @param circuitOpen state of the circuit breaker, for the breaker gauge.
+   */
+  PublisherMetrics(MeterRegistry registry, BooleanSupplier circuitOpen) {
+    this.enabled = registry != null;
+    if (!enabled) {
+      return;
+    }
+    for (TopicType topicType : TopicType.values()) {
+      meters.put(topicType, new Meters(registry, tags(topicType)));
+    }
+    String publisher = Integer.toString(PUBLISHER_COUNT.incrementAndGet());
+    Gauge.builder(IN_FLIGHT, inFlight, AtomicInteger::get)
+        .description("Publishes waiting for acknowledgement")
+        .tag(PUBLISHER_TAG, publisher)
+        .register(registry);
+    Gauge.builder(CIRCUIT_OPEN, circuitOpen, s -> s.getAsBoolean() ? 1 : 0)
+        .description("1 while the circuit breaker is rejecting publishes")
+        .tag(PUBLISHER_TAG, publisher)
+        .strongReference(true)
+        .register(registry);
+  }
+
+  static Tags tags(TopicType topicType) {
+    EventTopic eventTopic = EventTopic.forType(topicType);
+    return Tags.of(
+        "topicType",
+        topicType.name(),
+        "eventTopic",
+        eventTopic == null ? "none" : eventTopic.getTopic());
+  }
+
+  long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  void built(TopicType topicType, long start) {
+    if (enabled) {
+      meters.get(topicType).build.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  void publishStarted() {
+    if (enabled) {
+      inFlight.incrementAndGet();
+    }
+  }
+
+  void publishFinished(TopicType topicType, long start, boolean success) {
+    if (enabled) {
+      inFlight.decrementAndGet();
+      Meters m = meters.get(topicType);
+      m.publish.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      if (success) {
+        m.published.increment();
+      }
+    }
+  }
+
+  void failed(TopicType topicType) {
+    if (enabled) {
+      meters.get(topicType).failed.increment();
+    }
+  }
+
+  void persisted(TopicType topicType, long start, boolean success) {
+    persisted(topicType, start, 1, success);
+  }
+
+  void persisted(TopicType topicType, long start, int count, boolean success) {
+    if (enabled) {
+      Meters m = meters.get(topicType);
+      m.persist.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      (success ? m.backup : m.backupFailed).increment(count);
+    }
+  }
+
+  void coalesced(TopicType topicType) {
+    if (enabled) {
+      meters.get(topicType).coalesced.increment();
+    }
+  }
+}
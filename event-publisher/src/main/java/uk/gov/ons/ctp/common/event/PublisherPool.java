@@ -0,0 +1,94 @@
+package uk.gov.ons.ctp.common.event;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import com.google.cloud.pubsub.v1.Publisher;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds a long-lived native pub/sub {@link Publisher} for each {@link EventTopic}.
+ *
+ * <p>Publishers are expensive to create, since each one opens a gRPC channel and starts its own
+ * executor, so they are created lazily on first use of a topic and then reused for every subsequent
+ * event on that topic. All publishers are shut down when the pool is closed.
+ *
+ * <p>Creating a publisher and closing the pool hold the same lock, so a publisher cannot be created
+ * while the pool is closing and then be missed by the shutdown.
+ */
+@Slf4j
+class PublisherPool implements AutoCloseable {
+
+  /** Creates the publisher for a topic. */
+  @FunctionalInterface
+  interface PublisherFactory {
+    Publisher create(EventTopic eventTopic) throws IOException;
+  }
+
+  private final Map<EventTopic, Publisher> publishers = new ConcurrentHashMap<>();
+  private final PublisherFactory factory;
+  private final int shutdownTimeoutSeconds;
+  private volatile boolean closed;
+
+  PublisherPool(PublisherFactory factory, int shutdownTimeoutSeconds) {
+    this.factory = factory;
+    this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+  }
+
+  /**
+   * Get the publisher for the topic, creating it if this is the first use of the topic.
+   *
+   * @param eventTopic the topic to publish to.
+   * @return the publisher bound to the topic.
+   */
+  Publisher get(EventTopic eventTopic) {
+    Publisher publisher = publishers.get(eventTopic);
+    if (publisher != null && !closed) {
+      return publisher;
+    }
+    synchronized (this) {
+      if (closed) {
+        throw new EventPublishException("Publisher pool has been closed");
+      }
+      return publishers.computeIfAbsent(eventTopic, this::create);
+    }
+  }
+
+  private Publisher create(EventTopic eventTopic) {
+    log.info("Creating publisher", kv("eventTopic", eventTopic));
+    try {
+      return factory.create(eventTopic);
+    } catch (IOException e) {
+      throw new EventPublishException("Failed to create publisher for " + eventTopic, e);
+    }
+  }
+
+  /** Shut down all publishers, waiting for any outstanding messages to be sent. */
+  @Override
+  public void close() throws InterruptedException {
+    List<Publisher> toClose;
+    synchronized (this) {
+      closed = true;
+      toClose = new ArrayList<>(publishers.values());
+      publishers.clear();
+    }
+
+    // Initiate shutdown of all publishers before waiting, so that they drain in parallel
+    for (Publisher publisher : toClose) {
+      publisher.shutdown();
+    }
+    for (Publisher publisher : toClose) {
+      if (!publisher.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+        log.warn(
+            "Publisher did not terminate in time",
+            kv("topic", publisher.getTopicNameString()),
+            kv("timeoutSeconds", shutdownTimeoutSeconds));
+      }
+    }
+  }
+}
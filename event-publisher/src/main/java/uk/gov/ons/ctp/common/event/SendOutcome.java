@@ -0,0 +1,28 @@
+package uk.gov.ons.ctp.common.event;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** The result of sending a single event as part of a bulk send. */
+@Data
+@AllArgsConstructor
+public class SendOutcome {
+
+  public enum Status {
+    /** The event was acknowledged by the messaging system. */
+    PUBLISHED,
+    /** The event failed to publish but was saved to the persistent store for later resending. */
+    PERSISTED,
+    /** The event failed to publish and could not be saved to the persistent store. */
+    FAILED
+  }
+
+  private UUID messageId;
+  private Status status;
+  private Throwable failure;
+
+  public boolean isFailed() {
+    return status == Status.FAILED;
+  }
+}
@@ -1,41 +1,71 @@
 package uk.gov.ons.ctp.common.event;
 
 import lombok.Getter;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
 import uk.gov.ons.ctp.common.event.model.CaseUpdate;
 import uk.gov.ons.ctp.common.event.model.CollectionExerciseUpdate;
+import uk.gov.ons.ctp.common.event.model.CollectionExerciseUpdateEvent;
 import uk.gov.ons.ctp.common.event.model.EqLaunch;
+import uk.gov.ons.ctp.common.event.model.EqLaunchEvent;
 import uk.gov.ons.ctp.common.event.model.EventPayload;
+import uk.gov.ons.ctp.common.event.model.FulfilmentEvent;
 import uk.gov.ons.ctp.common.event.model.FulfilmentRequest;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
 import uk.gov.ons.ctp.common.event.model.InvalidCase;
+import uk.gov.ons.ctp.common.event.model.InvalidCaseEvent;
+import uk.gov.ons.ctp.common.event.model.NewCaseEvent;
 import uk.gov.ons.ctp.common.event.model.NewCasePayloadContent;
 import uk.gov.ons.ctp.common.event.model.RefusalDetails;
+import uk.gov.ons.ctp.common.event.model.RefusalEvent;
 import uk.gov.ons.ctp.common.event.model.SurveyUpdate;
+import uk.gov.ons.ctp.common.event.model.SurveyUpdateEvent;
 import uk.gov.ons.ctp.common.event.model.UacAuthentication;
+import uk.gov.ons.ctp.common.event.model.UacAuthenticationEvent;
+import uk.gov.ons.ctp.common.event.model.UacEvent;
 import uk.gov.ons.ctp.common.event.model.UacUpdate;
 
 @Getter
 public enum TopicType {
-  CASE_UPDATE(CaseUpdate.class, EventBuilder.CASE_UPDATE),
-  FULFILMENT(FulfilmentRequest.class, EventBuilder.FULFILMENT),
-  REFUSAL(RefusalDetails.class, EventBuilder.REFUSAL),
-  UAC_AUTHENTICATION(UacAuthentication.class, EventBuilder.UAC_AUTHENTICATION),
-  EQ_LAUNCH(EqLaunch.class, EventBuilder.EQ_LAUNCH),
-  UAC_UPDATE(UacUpdate.class, EventBuilder.UAC_UPDATE),
-  SURVEY_UPDATE(SurveyUpdate.class, EventBuilder.SURVEY_UPDATE),
+  CASE_UPDATE(CaseUpdate.class, CaseEvent.class, EventBuilder.CASE_UPDATE),
+  FULFILMENT(FulfilmentRequest.class, FulfilmentEvent.class, EventBuilder.FULFILMENT),
+  REFUSAL(RefusalDetails.class, RefusalEvent.class, EventBuilder.REFUSAL),
+  UAC_AUTHENTICATION(
+      UacAuthentication.class, UacAuthenticationEvent.class, EventBuilder.UAC_AUTHENTICATION),
+  EQ_LAUNCH(EqLaunch.class, EqLaunchEvent.class, EventBuilder.EQ_LAUNCH),
+  UAC_UPDATE(UacUpdate.class, UacEvent.class, EventBuilder.UAC_UPDATE),
+  SURVEY_UPDATE(SurveyUpdate.class, SurveyUpdateEvent.class, EventBuilder.SURVEY_UPDATE),
   COLLECTION_EXERCISE_UPDATE(
-      CollectionExerciseUpdate.class, EventBuilder.COLLECTION_EXCERSISE_UPDATE),
-  NEW_CASE(NewCasePayloadContent.class, EventBuilder.NEW_CASE),
-  INVALID_CASE(InvalidCase.class, EventBuilder.INVALID_CASE);
+      CollectionExerciseUpdate.class,
+      CollectionExerciseUpdateEvent.class,
+      EventBuilder.COLLECTION_EXCERSISE_UPDATE),
+  NEW_CASE(NewCasePayloadContent.class, NewCaseEvent.class, EventBuilder.NEW_CASE),
+  INVALID_CASE(InvalidCase.class, InvalidCaseEvent.class, EventBuilder.INVALID_CASE);
 
   private Class<? extends EventPayload> payloadType;
+  private Class<? extends GenericEvent> eventType;
   private EventBuilder builder;
 
   private TopicType() {
     this.builder = EventBuilder.NONE;
   }
 
-  private TopicType(Class<? extends EventPayload> payloadType, EventBuilder builder) {
+  private TopicType(
+      Class<? extends EventPayload> payloadType,
+      Class<? extends GenericEvent> eventType,
+      EventBuilder builder) {
     this.payloadType = payloadType;
+    this.eventType = eventType;
     this.builder = builder;
   }
+
+  /**
+   * Get the key which orders events of this type, such as the case id for case updates, so that
+   * events for the same entity are published and handled in the order they were sent.
+   *
+   * @param genericEvent event of this type.
+   * @return the key, or null if events of this type are not ordered.
+   */
+  public String orderingKey(GenericEvent genericEvent) {
+    return builder.orderingKey(genericEvent);
+  }
 }
@@ -0,0 +1,34 @@
+package uk.gov.ons.ctp.common.event.claimcheck;
+
+import java.io.IOException;
+
+/** Store of opaque blobs, used by a {@link ClaimCheck} to hold oversized event bodies. */
+public interface BlobStore {
+
+  /**
+   * Store a blob. Storing the same key again may keep the blob already stored, so a key must only
+   * ever be used for the same content.
+   *
+   * @param key the key, made up of letters, digits, dots, dashes and underscores.
+   * @param data the content.
+   * @throws IOException if the blob could not be stored.
+   */
+  void put(String key, byte[] data) throws IOException;
+
+  /**
+   * Read a blob.
+   *
+   * @param key the key.
+   * @return the content.
+   * @throws IOException if the blob could not be read, including when there is none for the key.
+   */
+  byte[] get(String key) throws IOException;
+
+  /**
+   * Delete a blob, if there is one.
+   *
+   * @param key the key.
+   * @throws IOException if the blob could not be deleted.
+   */
+  void delete(String key) throws IOException;
+}
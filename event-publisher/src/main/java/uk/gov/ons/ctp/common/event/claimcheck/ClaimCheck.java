@@ -0,0 +1,96 @@
+package uk.gov.ons.ctp.common.event.claimcheck;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import lombok.Value;
+import uk.gov.ons.ctp.common.event.EventPublishException;
+
+/**
+ * Moves oversized event bodies into a {@link BlobStore}, leaving a ticket which holds the blob's
+ * reference and the SHA-256 hash of its content.
+ *
+ * <p>A blob is stored under its hash, so checking in the same content again, as happens when an
+ * event is republished, reuses the blob already stored. When checked out, the content is checked
+ * against the hash on the ticket.
+ *
+ * <p>Blobs are never deleted here, since any number of subscribers may need them. They should be
+ * expired by the store once older than the longest message retention of the subscriptions.
+ *
+ * <p>Instances are thread safe.
+ */
+public class ClaimCheck {
+
+  /** Reference to a checked in blob, and the hash of its content. */
+  @Value
+  public static class Ticket {
+    String reference;
+    String sha256;
+  }
+
+  private final BlobStore blobStore;
+  private final ClaimCheckConfig config;
+
+  public ClaimCheck(BlobStore blobStore, ClaimCheckConfig config) {
+    this.blobStore = blobStore;
+    this.config = config;
+  }
+
+  /**
+   * Check whether content is too large to send inline.
+   *
+   * @param size the size of the content in bytes.
+   * @return true if the content should be checked in.
+   */
+  public boolean isOversized(long size) {
+    return size > config.getThresholdBytes();
+  }
+
+  /**
+   * Store content in the blob store.
+   *
+   * @param data the content.
+   * @return the ticket for the content.
+   * @throws EventPublishException if the content could not be stored.
+   */
+  public Ticket checkIn(byte[] data) {
+    String sha256 = sha256(data);
+    try {
+      blobStore.put(sha256, data);
+    } catch (IOException e) {
+      throw new EventPublishException("Failed to store event body in blob store", e);
+    }
+    return new Ticket(sha256, sha256);
+  }
+
+  /**
+   * Read content back from the blob store.
+   *
+   * @param ticket the ticket from checking in the content.
+   * @return the content.
+   * @throws EventPublishException if the content could not be read, or does not match the hash.
+   */
+  public byte[] checkOut(Ticket ticket) {
+    byte[] data;
+    try {
+      data = blobStore.get(ticket.getReference());
+    } catch (IOException e) {
+      throw new EventPublishException(
+          "Failed to read event body " + ticket.getReference() + " from blob store", e);
+    }
+    if (!sha256(data).equals(ticket.getSha256())) {
+      throw new EventPublishException(
+          "Event body " + ticket.getReference() + " does not match its hash");
+    }
+    return data;
+  }
+
+  private static String sha256(byte[] data) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
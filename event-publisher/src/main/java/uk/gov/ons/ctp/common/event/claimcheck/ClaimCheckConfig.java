@@ -0,0 +1,12 @@
+package uk.gov.ons.ctp.common.event.claimcheck;
+
+import lombok.Data;
+
+/**
+ * Configuration for a {@link ClaimCheck}. Events whose JSON is larger than {@code thresholdBytes}
+ * are moved to the blob store.
+ */
+@Data
+public class ClaimCheckConfig {
+  private int thresholdBytes = 256 * 1024;
+}
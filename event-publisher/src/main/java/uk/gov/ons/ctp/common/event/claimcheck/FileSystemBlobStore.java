@@ -0,0 +1,62 @@
+package uk.gov.ons.ctp.common.event.claimcheck;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Blob store which keeps each blob in its own file under a directory, spread over subdirectories
+ * named after the first two characters of the key.
+ *
+ * <p>A blob is written to a temporary file which is then moved into place, so a reader never sees a
+ * partly written blob. The directory may be shared, for instance over NFS, between publishers and
+ * consumers.
+ */
+public class FileSystemBlobStore implements BlobStore {
+  private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+
+  private final Path directory;
+
+  public FileSystemBlobStore(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  @Override
+  public void put(String key, byte[] data) throws IOException {
+    Path target = pathOf(key);
+    if (Files.exists(target)) {
+      return;
+    }
+    Files.createDirectories(target.getParent());
+    Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+    try {
+      Files.write(temp, data);
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException e) {
+      // written by another publisher in the meantime
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  @Override
+  public byte[] get(String key) throws IOException {
+    return Files.readAllBytes(pathOf(key));
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+    Files.deleteIfExists(pathOf(key));
+  }
+
+  private Path pathOf(String key) {
+    if (!KEY_PATTERN.matcher(key).matches() || key.startsWith(".")) {
+      throw new IllegalArgumentException("Invalid blob key: " + key);
+    }
+    String shard = key.length() > 2 ? key.substring(0, 2) : "_";
+    return directory.resolve(shard).resolve(key);
+  }
+}
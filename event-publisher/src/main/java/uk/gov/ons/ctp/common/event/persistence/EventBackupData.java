@@ -11,6 +11,9 @@ import uk.gov.ons.ctp.common.event.TopicType;
  *
  * <p>If the underlying send mechanism fails to send an event then an instance of this object is
  * persisted into the backup event collection in Firestore for later resending.
+ *
+ * <p>An event too large for a Firestore document is held in a blob store by a claim check, in which
+ * case the event is null and the reference and hash of the blob are set instead.
  */
 @Data
 @NoArgsConstructor
@@ -22,4 +25,6 @@ public class EventBackupData {
   private Long messageSentDateTimeInMillis;
   private String id;
   private String event;
+  private String eventReference;
+  private String eventSha256;
 }
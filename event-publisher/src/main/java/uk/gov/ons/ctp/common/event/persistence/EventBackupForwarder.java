@@ -0,0 +1,18 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+/**
+ * Destination for events drained from a {@link LocalEventPersistence} log, typically {@code
+ * eventPublisher::sendEvent} to republish or {@code firestoreEventPersistence::storeBackup} to move
+ * the backup to Firestore.
+ */
+@FunctionalInterface
+public interface EventBackupForwarder {
+
+  /**
+   * Forward an event.
+   *
+   * @param eventData the event backup data.
+   * @throws Exception if the event could not be forwarded, in which case it is retried later.
+   */
+  void forward(EventBackupData eventData) throws Exception;
+}
@@ -0,0 +1,205 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.event.EventPublishException;
+import uk.gov.ons.ctp.common.event.EventPublisher;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck.Ticket;
+
+/**
+ * Republish the events held in the backup collection written by {@link FirestoreEventPersistence}.
+ *
+ * <p>Backups are read a page at a time in order of failure time, and each page is published with
+ * bounded parallelism and an overall rate limit. A published backup is then either marked with its
+ * sent time or deleted. After each page a checkpoint is saved, so that a later run carries on from
+ * where the last one stopped. A run stops at the end of the page in which a publish fails, on the
+ * basis that pub/sub is probably still unhealthy.
+ *
+ * <p>The publisher should be created without event persistence, so that a failed publish leaves the
+ * backup where it is rather than writing a new one. Backups which are added with an older failure
+ * time than the checkpoint, such as those forwarded from a {@link LocalEventPersistence} log, are
+ * only picked up after {@link #resetCheckpoint()}.
+ *
+ * <p>Backups whose event was moved to a blob store need the replayer to be given a {@link
+ * ClaimCheck} on the same store.
+ */
+@Slf4j
+public class EventBackupReplayer {
+  static final String ORDER_BY_FIELD = "messageFailureDateTimeInMillis";
+  static final String CHECKPOINT_KEY = "replay";
+
+  private enum Outcome {
+    REPLAYED,
+    SKIPPED,
+    FAILED
+  }
+
+  private final RetryableCloudDataStore cloudDataStore;
+  private final String backupSchema;
+  private final String checkpointSchema;
+  private final EventPublisher eventPublisher;
+  private final EventReplayConfig config;
+  private final ClaimCheck claimCheck;
+
+  public EventBackupReplayer(
+      RetryableCloudDataStore cloudDataStore,
+      String backupSchema,
+      EventPublisher eventPublisher,
+      EventReplayConfig config) {
+    this(cloudDataStore, backupSchema, eventPublisher, config, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param cloudDataStore store holding the backups.
+   * @param backupSchema the backup collection.
+   * @param eventPublisher publisher to republish with, which should not have event persistence.
+   * @param config configuration.
+   * @param claimCheck claim check for events moved to a blob store, or null if none are.
+   */
+  public EventBackupReplayer(
+      RetryableCloudDataStore cloudDataStore,
+      String backupSchema,
+      EventPublisher eventPublisher,
+      EventReplayConfig config,
+      ClaimCheck claimCheck) {
+    this.cloudDataStore = cloudDataStore;
+    this.backupSchema = backupSchema;
+    this.checkpointSchema = backupSchema + "-checkpoint";
+    this.eventPublisher = eventPublisher;
+    this.config = config;
+    this.claimCheck = claimCheck;
+  }
+
+  /**
+   * Republish backup events, starting after the last checkpoint.
+   *
+   * @return counts of the events handled.
+   * @throws CTPException if the backups or checkpoint could not be read or written.
+   */
+  public ReplayResult replay() throws CTPException {
+    ReplayCheckpoint checkpoint =
+        cloudDataStore
+            .retrieveObject(ReplayCheckpoint.class, checkpointSchema, CHECKPOINT_KEY)
+            .orElse(new ReplayCheckpoint());
+    log.info("Starting backup event replay", kv("schema", backupSchema), kv("from", checkpoint));
+
+    TokenBucket rateLimit =
+        new TokenBucket(config.getPermitsPerSecond(), Math.max(1, config.getParallelism()));
+    ExecutorService executor = Executors.newFixedThreadPool(config.getParallelism());
+    ReplayResult result = new ReplayResult();
+    try {
+      List<EventBackupData> page;
+      do {
+        page =
+            cloudDataStore.listPage(
+                EventBackupData.class,
+                backupSchema,
+                ORDER_BY_FIELD,
+                checkpoint.getMessageFailureDateTimeInMillis(),
+                checkpoint.getId(),
+                config.getPageSize());
+
+        List<CompletableFuture<Outcome>> outcomes = new ArrayList<>();
+        for (EventBackupData backup : page) {
+          outcomes.add(
+              backup.getMessageSentDateTimeInMillis() != null
+                  ? CompletableFuture.completedFuture(Outcome.SKIPPED)
+                  : CompletableFuture.supplyAsync(() -> replayOne(backup, rateLimit), executor));
+        }
+
+        // the checkpoint only moves past backups up to the first failure in the page
+        ReplayCheckpoint pageStart = checkpoint;
+        boolean failed = false;
+        for (int i = 0; i < page.size(); i++) {
+          Outcome outcome = outcomes.get(i).join();
+          switch (outcome) {
+            case REPLAYED:
+              result.setReplayed(result.getReplayed() + 1);
+              break;
+            case SKIPPED:
+              result.setSkipped(result.getSkipped() + 1);
+              break;
+            default:
+              result.setFailed(result.getFailed() + 1);
+              failed = true;
+          }
+          if (!failed) {
+            EventBackupData backup = page.get(i);
+            checkpoint =
+                new ReplayCheckpoint(backup.getMessageFailureDateTimeInMillis(), backup.getId());
+          }
+        }
+        if (!checkpoint.equals(pageStart)) {
+          cloudDataStore.storeObject(checkpointSchema, CHECKPOINT_KEY, checkpoint, CHECKPOINT_KEY);
+        }
+        if (failed) {
+          break;
+        }
+      } while (page.size() == config.getPageSize());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    log.info("Backup event replay finished", kv("schema", backupSchema), kv("result", result));
+    return result;
+  }
+
+  /**
+   * Forget the checkpoint, so that the next replay starts from the first backup.
+   *
+   * @throws CTPException if the checkpoint could not be deleted.
+   */
+  public void resetCheckpoint() throws CTPException {
+    cloudDataStore.deleteObject(checkpointSchema, CHECKPOINT_KEY);
+  }
+
+  /** Get the backup with its event read back from the blob store, leaving the original as is. */
+  private EventBackupData withEvent(EventBackupData backup) {
+    if (backup.getEventReference() == null) {
+      return backup;
+    }
+    if (claimCheck == null) {
+      throw new EventPublishException("Backup event is claim checked, but no claim check is set");
+    }
+    byte[] event =
+        claimCheck.checkOut(new Ticket(backup.getEventReference(), backup.getEventSha256()));
+    EventBackupData resolved = new EventBackupData();
+    resolved.setTopicType(backup.getTopicType());
+    resolved.setId(backup.getId());
+    resolved.setEvent(new String(event, StandardCharsets.UTF_8));
+    return resolved;
+  }
+
+  private Outcome replayOne(EventBackupData backup, TokenBucket rateLimit) {
+    try {
+      rateLimit.acquire();
+      eventPublisher.sendEvent(withEvent(backup));
+
+      if (config.isDeleteOnSuccess()) {
+        cloudDataStore.deleteObject(backupSchema, backup.getId());
+      } else {
+        backup.setMessageSentDateTimeInMillis(System.currentTimeMillis());
+        cloudDataStore.storeObject(backupSchema, backup.getId(), backup, backup.getId());
+      }
+      return Outcome.REPLAYED;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Outcome.FAILED;
+    } catch (Exception e) {
+      log.warn("Failed to replay backup event", kv("id", backup.getId()), e);
+      return Outcome.FAILED;
+    }
+  }
+}
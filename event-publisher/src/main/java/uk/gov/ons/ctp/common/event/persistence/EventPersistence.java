@@ -1,9 +1,25 @@
 package uk.gov.ons.ctp.common.event.persistence;
 
+import java.util.List;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.event.TopicType;
 import uk.gov.ons.ctp.common.event.model.GenericEvent;
 
 public interface EventPersistence {
   void persistEvent(TopicType topicType, GenericEvent genericEvent) throws CTPException;
+
+  /**
+   * Persist many events of the same type. Implementations backed by a remote store should override
+   * this to write the events together.
+   *
+   * @param topicType the event type.
+   * @param genericEvents the events.
+   * @throws CTPException if the events could not all be persisted.
+   */
+  default void persistEvents(TopicType topicType, List<? extends GenericEvent> genericEvents)
+      throws CTPException {
+    for (GenericEvent genericEvent : genericEvents) {
+      persistEvent(topicType, genericEvent);
+    }
+  }
 }
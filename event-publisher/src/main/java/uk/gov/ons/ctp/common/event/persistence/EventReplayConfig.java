@@ -0,0 +1,17 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import lombok.Data;
+
+/**
+ * Configuration for {@link EventBackupReplayer}.
+ *
+ * <p>{@code permitsPerSecond} caps the overall publish rate across all {@code parallelism} threads,
+ * so that a large backlog does not flood pub/sub as soon as it recovers.
+ */
+@Data
+public class EventReplayConfig {
+  private int pageSize = 100;
+  private int parallelism = 4;
+  private double permitsPerSecond = 50.0;
+  private boolean deleteOnSuccess;
+}
@@ -3,6 +3,10 @@ package uk.gov.ons.ctp.common.event.persistence;
 import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,15 +16,23 @@ import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.event.EventPublishException;
 import uk.gov.ons.ctp.common.event.TopicType;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck.Ticket;
 import uk.gov.ons.ctp.common.event.model.GenericEvent;
 import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 
-/** Save details into Firestore, about an event which failed to publish. */
+/**
+ * Save details into Firestore, about an event which failed to publish.
+ *
+ * <p>If a {@link ClaimCheck} is set, an event too large to store inline is moved to its blob store
+ * and only the reference is saved, keeping the document under the Firestore size limit.
+ */
 @Slf4j
 @Service
 public class FirestoreEventPersistence implements EventPersistence {
   private RetryableCloudDataStore cloudDataStore;
   private CustomObjectMapper objectMapper;
+  private ClaimCheck claimCheck;
 
   @Value("${spring.cloud.gcp.firestore.project-id}")
   String gcpProject;
@@ -42,6 +54,46 @@ public class FirestoreEventPersistence implements EventPersistence {
     this.objectMapper = objectMapper;
   }
 
+  /**
+   * Set the claim check for events too large to store inline.
+   *
+   * @param claimCheck the claim check, or null to store every event inline.
+   */
+  @Autowired(required = false)
+  public void setClaimCheck(ClaimCheck claimCheck) {
+    this.claimCheck = claimCheck;
+  }
+
+  /** @return the name of the collection that event backups are stored in. */
+  public String getEventBackupSchema() {
+    return eventBackupSchema;
+  }
+
+  private EventBackupData toBackup(
+      TopicType topicType, GenericEvent genericEvent, long failureTime) {
+    EventBackupData eventData = new EventBackupData();
+    eventData.setTopicType(topicType);
+    eventData.setMessageFailureDateTimeInMillis(failureTime);
+    eventData.setId(genericEvent.getHeader().getMessageId().toString());
+    eventData.setEvent(serialise(genericEvent));
+    return checkInIfOversized(eventData);
+  }
+
+  private EventBackupData checkInIfOversized(EventBackupData eventData) {
+    if (claimCheck == null || eventData.getEvent() == null) {
+      return eventData;
+    }
+    byte[] json = eventData.getEvent().getBytes(StandardCharsets.UTF_8);
+    if (claimCheck.isOversized(json.length)) {
+      Ticket ticket = claimCheck.checkIn(json);
+      eventData.setEvent(null);
+      eventData.setEventReference(ticket.getReference());
+      eventData.setEventSha256(ticket.getSha256());
+      log.debug("Moved oversized event to blob store", kv("id", eventData.getId()));
+    }
+    return eventData;
+  }
+
   private String serialise(Object obj) {
     try {
       return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
@@ -52,21 +104,50 @@ public class FirestoreEventPersistence implements EventPersistence {
 
   @Override
   public void persistEvent(TopicType topicType, GenericEvent genericEvent) throws CTPException {
-    String id = genericEvent.getHeader().getMessageId().toString();
+    storeBackup(toBackup(topicType, genericEvent, System.currentTimeMillis()));
+  }
 
-    log.debug("Storing event data in Firestore", kv("id", id));
+  /**
+   * Persist many events of the same type using batched Firestore writes.
+   *
+   * @param topicType the event type.
+   * @param genericEvents the events.
+   * @throws CTPException if the events could not all be stored.
+   */
+  @Override
+  public void persistEvents(TopicType topicType, List<? extends GenericEvent> genericEvents)
+      throws CTPException {
+    long failureTime = System.currentTimeMillis();
+    Map<String, EventBackupData> backups = new LinkedHashMap<>();
+    for (GenericEvent genericEvent : genericEvents) {
+      EventBackupData eventData = toBackup(topicType, genericEvent, failureTime);
+      backups.put(eventData.getId(), eventData);
+    }
 
-    EventBackupData eventData = new EventBackupData();
-    eventData.setTopicType(topicType);
-    eventData.setMessageFailureDateTimeInMillis(System.currentTimeMillis());
-    eventData.setId(id);
-    eventData.setEvent(serialise(genericEvent));
+    log.debug(
+        "Storing batch of event data in Firestore",
+        kv("topicType", topicType),
+        kv("count", backups.size()));
+
+    cloudDataStore.storeObjects(eventBackupSchema, backups);
+
+    log.debug("Stored batch of event data", kv("count", backups.size()));
+  }
+
+  /**
+   * Store backup data for an event which has already been recorded elsewhere, such as in a local
+   * event log, keeping its original failure time.
+   *
+   * @param eventData the backup data to store.
+   * @throws CTPException if the data could not be stored.
+   */
+  public void storeBackup(EventBackupData eventData) throws CTPException {
+    String id = eventData.getId();
+    checkInIfOversized(eventData);
+
+    log.debug("Storing event data in Firestore", kv("id", id));
 
-    cloudDataStore.storeObject(
-        eventBackupSchema,
-        genericEvent.getHeader().getMessageId().toString(),
-        eventData,
-        genericEvent.getHeader().getMessageId().toString());
+    cloudDataStore.storeObject(eventBackupSchema, id, eventData, id);
 
     log.debug("Stored event data", kv("id", id));
   }
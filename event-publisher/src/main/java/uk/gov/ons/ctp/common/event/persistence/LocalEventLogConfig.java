@@ -0,0 +1,27 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import lombok.Data;
+
+/**
+ * Configuration for {@link LocalEventPersistence}.
+ *
+ * <p>The fsync policy trades durability against the cost of a fallback write. {@code ALWAYS} forces
+ * each record to disk as it is written, {@code INTERVAL} forces the log every {@code
+ * fsyncIntervalMillis}, and {@code NEVER} leaves it to the operating system, which still survives a
+ * process crash but not a host failure.
+ */
+@Data
+public class LocalEventLogConfig {
+  public enum FsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    NEVER
+  }
+
+  private String directory;
+  private int segmentSizeBytes = 16 * 1024 * 1024;
+  private FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+  private long fsyncIntervalMillis = 1000L;
+  private long drainIntervalMillis = 5000L;
+  private int drainBatchSize = 100;
+}
@@ -0,0 +1,169 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.event.EventObjectMapper;
+import uk.gov.ons.ctp.common.event.TopicType;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.persistence.MappedEventLog.Entry;
+import uk.gov.ons.ctp.common.event.persistence.MappedEventLog.Position;
+
+/**
+ * Save details of an event which failed to publish into a memory-mapped log on local disk, so that
+ * the fallback does not depend on a second remote service.
+ *
+ * <p>Once {@link #startDraining(EventBackupForwarder)} has been called, a background thread
+ * periodically forwards logged events in the order they were written. If forwarding fails, draining
+ * stops and is retried from the same event on the next run. Delivery is at least once: an event
+ * forwarded just before a crash may be forwarded again after restart.
+ *
+ * <p>When draining republishes through an {@link uk.gov.ons.ctp.common.event.EventPublisher} which
+ * itself uses this persistence, an event which still cannot be published is logged again rather
+ * than being lost. Each run stops at the end of the log as it was when the run started, so events
+ * logged again are left for the next run rather than being retried straight away.
+ */
+@Slf4j
+public class LocalEventPersistence implements EventPersistence, AutoCloseable {
+  private final LocalEventLogConfig config;
+  private final MappedEventLog eventLog;
+  private final ObjectMapper objectMapper = EventObjectMapper.get();
+  private final ScheduledExecutorService scheduler;
+
+  private EventBackupForwarder forwarder;
+  private Position readPosition;
+
+  public LocalEventPersistence(LocalEventLogConfig config) throws IOException {
+    this.config = config;
+    this.eventLog =
+        new MappedEventLog(
+            Path.of(config.getDirectory()),
+            config.getSegmentSizeBytes(),
+            config.getFsyncPolicy() == LocalEventLogConfig.FsyncPolicy.ALWAYS);
+    this.readPosition = eventLog.loadCheckpoint();
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "local-event-log");
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    if (config.getFsyncPolicy() == LocalEventLogConfig.FsyncPolicy.INTERVAL) {
+      scheduler.scheduleWithFixedDelay(
+          eventLog::force,
+          config.getFsyncIntervalMillis(),
+          config.getFsyncIntervalMillis(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void persistEvent(TopicType topicType, GenericEvent genericEvent) throws CTPException {
+    String id = genericEvent.getHeader().getMessageId().toString();
+
+    try {
+      EventBackupData eventData = new EventBackupData();
+      eventData.setTopicType(topicType);
+      eventData.setMessageFailureDateTimeInMillis(System.currentTimeMillis());
+      eventData.setId(id);
+      eventData.setEvent(objectMapper.writeValueAsString(genericEvent));
+
+      eventLog.append(objectMapper.writeValueAsBytes(eventData));
+    } catch (IOException e) {
+      throw new CTPException(Fault.SYSTEM_ERROR, e, "Failed to write event %s to local log", id);
+    }
+
+    log.debug("Stored event data in local log", kv("id", id));
+  }
+
+  /**
+   * Start forwarding logged events in the background.
+   *
+   * @param forwarder where to forward the events.
+   */
+  public synchronized void startDraining(EventBackupForwarder forwarder) {
+    if (this.forwarder != null) {
+      throw new IllegalStateException("Draining already started");
+    }
+    this.forwarder = forwarder;
+    scheduler.scheduleWithFixedDelay(
+        this::drainQuietly, 0, config.getDrainIntervalMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Forward the events logged before this call until they have all been forwarded or forwarding
+   * fails.
+   *
+   * @param forwarder where to forward the events.
+   * @return the number of events forwarded.
+   * @throws IOException if the log could not be read.
+   */
+  synchronized int drain(EventBackupForwarder forwarder) throws IOException {
+    Position end = eventLog.endPosition();
+    int forwarded = 0;
+    List<Entry> entries;
+    while (!(entries = eventLog.read(readPosition, config.getDrainBatchSize())).isEmpty()) {
+      Position start = readPosition;
+      try {
+        for (Entry entry : entries) {
+          if (entry.getNext().isAfter(end)) {
+            // logged during this run, possibly by the forwarder itself
+            return forwarded;
+          }
+          forward(forwarder, entry);
+          readPosition = entry.getNext();
+          forwarded++;
+        }
+      } catch (Exception e) {
+        log.warn("Failed to forward event from local log, will retry", e);
+        return forwarded;
+      } finally {
+        if (!readPosition.equals(start)) {
+          eventLog.saveCheckpoint(readPosition);
+        }
+      }
+    }
+    return forwarded;
+  }
+
+  private void forward(EventBackupForwarder forwarder, Entry entry) throws Exception {
+    EventBackupData eventData;
+    try {
+      eventData = objectMapper.readValue(entry.getData(), EventBackupData.class);
+    } catch (IOException e) {
+      // can never be forwarded, so skip it rather than block the log
+      log.error("Discarding unreadable event from local log", kv("position", entry.getNext()), e);
+      return;
+    }
+    forwarder.forward(eventData);
+    log.debug("Forwarded event from local log", kv("id", eventData.getId()));
+  }
+
+  private void drainQuietly() {
+    try {
+      int forwarded = drain(forwarder);
+      if (forwarded > 0) {
+        log.info("Drained events from local log", kv("count", forwarded));
+      }
+    } catch (Exception e) {
+      log.error("Failed to drain local event log", e);
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    scheduler.shutdown();
+    scheduler.awaitTermination(config.getDrainIntervalMillis(), TimeUnit.MILLISECONDS);
+    eventLog.close();
+  }
+}
@@ -0,0 +1,322 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of records held in fixed size, memory-mapped segment files.
+ *
+ * <p>Each record is written as a 4 byte length, a 4 byte CRC32 of the data, and then the data. The
+ * length is written last, so a zero length marks the end of the data in a segment. When a record
+ * does not fit in the active segment a new segment is started.
+ *
+ * <p>On opening, writing carries on from the end of the last segment. A new segment is started
+ * instead if the last one is full, or if it ends in a record torn by a crash, so that record is
+ * never overwritten. A record with a bad CRC is treated as the end of its segment. Files in the
+ * directory which are not named as segments are ignored.
+ *
+ * <p>Read progress is held as a checkpoint file in the same directory, and segments which are
+ * wholly before the checkpoint are deleted.
+ */
+@Slf4j
+class MappedEventLog implements Closeable {
+  static final int RECORD_HEADER_SIZE = 8;
+
+  private static final String SEGMENT_PREFIX = "events-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final boolean forceEveryWrite;
+
+  private final TreeMap<Long, Path> segments = new TreeMap<>();
+  private long activeSegment = -1;
+  private MappedByteBuffer activeBuffer;
+  private int writeOffset;
+
+  private long readSegment = -1;
+  private MappedByteBuffer readBuffer;
+
+  /** Position of a record in the log. */
+  @Value
+  static class Position {
+    long segment;
+    int offset;
+
+    boolean isAfter(Position other) {
+      return segment > other.segment || (segment == other.segment && offset > other.offset);
+    }
+  }
+
+  /** A record read from the log, and the position of the record which follows it. */
+  @Value
+  static class Entry {
+    byte[] data;
+    Position next;
+  }
+
+  MappedEventLog(Path directory, int segmentSize, boolean forceEveryWrite) throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.forceEveryWrite = forceEveryWrite;
+
+    Files.createDirectories(directory);
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        Long sequence = sequenceOf(path);
+        if (sequence == null) {
+          log.warn("Ignoring unexpected file in event log directory", kv("file", path));
+          continue;
+        }
+        segments.put(sequence, path);
+      }
+    }
+    if (segments.isEmpty()) {
+      roll();
+    } else {
+      activeSegment = segments.lastKey();
+      reopen();
+      log.info(
+          "Opened existing event log",
+          kv("directory", directory),
+          kv("segmentCount", segments.size()),
+          kv("writeOffset", writeOffset));
+    }
+  }
+
+  /**
+   * Append a record to the log.
+   *
+   * @param data the record data.
+   * @throws IOException if the record could not be written.
+   */
+  synchronized void append(byte[] data) throws IOException {
+    int recordSize = RECORD_HEADER_SIZE + data.length;
+    if (recordSize > segmentSize) {
+      throw new IOException(
+          "Record of " + data.length + " bytes is too large for segment size " + segmentSize);
+    }
+    if (writeOffset + recordSize > activeBuffer.capacity()) {
+      roll();
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    activeBuffer.putInt(writeOffset + 4, (int) crc.getValue());
+    activeBuffer.put(writeOffset + RECORD_HEADER_SIZE, data);
+    activeBuffer.putInt(writeOffset, data.length);
+    if (forceEveryWrite) {
+      activeBuffer.force(writeOffset, recordSize);
+    }
+    writeOffset += recordSize;
+  }
+
+  /** Flush the active segment to disk. */
+  synchronized void force() {
+    activeBuffer.force();
+  }
+
+  /**
+   * Read records from the log.
+   *
+   * @param from position of the first record to read.
+   * @param maxRecords the maximum number of records to read.
+   * @return the records, which will be empty if there are no records at or after the position.
+   * @throws IOException if a segment could not be read.
+   */
+  synchronized List<Entry> read(Position from, int maxRecords) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    long segment = from.getSegment();
+    int offset = from.getOffset();
+    if (!segments.containsKey(segment)) {
+      Long next = segments.ceilingKey(segment);
+      if (next == null) {
+        return entries;
+      }
+      segment = next;
+      offset = 0;
+    }
+
+    while (entries.size() < maxRecords) {
+      boolean active = segment == activeSegment;
+      ByteBuffer buffer = active ? activeBuffer : readMapping(segment);
+      int limit = active ? writeOffset : buffer.capacity();
+      byte[] data = readRecord(buffer, offset, limit);
+      if (data == null) {
+        Long next = segments.higherKey(segment);
+        if (active || next == null) {
+          break;
+        }
+        segment = next;
+        offset = 0;
+        continue;
+      }
+      offset += RECORD_HEADER_SIZE + data.length;
+      entries.add(new Entry(data, new Position(segment, offset)));
+    }
+    return entries;
+  }
+
+  /**
+   * Get the position just after the last record written so far.
+   *
+   * @return the end of the log.
+   */
+  synchronized Position endPosition() {
+    return new Position(activeSegment, writeOffset);
+  }
+
+  /**
+   * Get the position that reading should start from, which is the last saved checkpoint or the
+   * start of the log.
+   *
+   * @return the read position.
+   * @throws IOException if the checkpoint could not be read.
+   */
+  synchronized Position loadCheckpoint() throws IOException {
+    Path path = directory.resolve(CHECKPOINT_FILE);
+    if (!Files.exists(path)) {
+      return new Position(segments.firstKey(), 0);
+    }
+    String[] parts = Files.readString(path, StandardCharsets.UTF_8).trim().split(" ");
+    return new Position(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+  }
+
+  /**
+   * Save the read position, and delete any segments which are wholly before it.
+   *
+   * @param position the position of the next record to read.
+   * @throws IOException if the checkpoint could not be saved.
+   */
+  synchronized void saveCheckpoint(Position position) throws IOException {
+    Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+    Files.writeString(tmp, position.getSegment() + " " + position.getOffset());
+    Files.move(
+        tmp,
+        directory.resolve(CHECKPOINT_FILE),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+
+    while (!segments.isEmpty() && segments.firstKey() < position.getSegment()) {
+      long segment = segments.firstKey();
+      Files.deleteIfExists(segments.remove(segment));
+      if (segment == readSegment) {
+        readSegment = -1;
+        readBuffer = null;
+      }
+      log.debug("Deleted drained event log segment", kv("segment", segment));
+    }
+  }
+
+  synchronized int segmentCount() {
+    return segments.size();
+  }
+
+  @Override
+  public synchronized void close() {
+    activeBuffer.force();
+  }
+
+  private void roll() throws IOException {
+    if (activeBuffer != null) {
+      activeBuffer.force();
+    }
+    long next = activeSegment + 1;
+    Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, next, SEGMENT_SUFFIX));
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      activeBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+    segments.put(next, path);
+    activeSegment = next;
+    writeOffset = 0;
+  }
+
+  /**
+   * Carry on writing at the end of the last segment, or start a new segment if it is full or ends
+   * in a torn record.
+   */
+  private void reopen() throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel =
+        FileChannel.open(
+            segments.get(activeSegment), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+    int end = 0;
+    byte[] data;
+    while ((data = readRecord(buffer, end, buffer.capacity())) != null) {
+      end += RECORD_HEADER_SIZE + data.length;
+    }
+    boolean full = end + RECORD_HEADER_SIZE >= buffer.capacity();
+    if (full || buffer.getInt(end) != 0 || buffer.getInt(end + 4) != 0) {
+      roll();
+      return;
+    }
+    activeBuffer = buffer;
+    writeOffset = end;
+  }
+
+  private ByteBuffer readMapping(long segment) throws IOException {
+    if (segment != readSegment) {
+      try (FileChannel channel = FileChannel.open(segments.get(segment), StandardOpenOption.READ)) {
+        readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      readSegment = segment;
+    }
+    return readBuffer;
+  }
+
+  private static byte[] readRecord(ByteBuffer buffer, int offset, int limit) {
+    if (offset + RECORD_HEADER_SIZE > limit) {
+      return null;
+    }
+    int length = buffer.getInt(offset);
+    if (length <= 0 || offset + RECORD_HEADER_SIZE + length > limit) {
+      return null;
+    }
+    byte[] data = new byte[length];
+    buffer.get(offset + RECORD_HEADER_SIZE, data);
+
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+      log.warn("Corrupt record found in event log", kv("offset", offset));
+      return null;
+    }
+    return data;
+  }
+
+  private static Long sequenceOf(Path path) {
+    String name = path.getFileName().toString();
+    try {
+      return Long.parseLong(
+          name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
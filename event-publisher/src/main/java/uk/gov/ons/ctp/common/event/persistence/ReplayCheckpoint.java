@@ -0,0 +1,17 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position of the last backup event handled by an {@link EventBackupReplayer}, in the order of the
+ * backup collection. Null fields mean replay starts from the beginning.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayCheckpoint {
+  private Long messageFailureDateTimeInMillis;
+  private String id;
+}
@@ -0,0 +1,16 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import lombok.Data;
+
+/** Counts of backup events handled by a run of {@link EventBackupReplayer}. */
+@Data
+public class ReplayResult {
+  private int replayed;
+  private int skipped;
+  private int failed;
+
+  /** @return true if the run reached the end of the backups without any failures. */
+  public boolean isComplete() {
+    return failed == 0;
+  }
+}
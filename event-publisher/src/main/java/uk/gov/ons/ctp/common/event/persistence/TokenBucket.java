@@ -0,0 +1,45 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter. Tokens refill continuously at the configured rate up to the capacity,
+ * and a caller which finds the bucket empty reserves the next token and sleeps until it is due, so
+ * waiting callers are served in order.
+ */
+class TokenBucket {
+  private final double tokensPerNano;
+  private final double capacity;
+
+  private double tokens;
+  private long lastRefillNanos;
+
+  TokenBucket(double tokensPerSecond, int capacity) {
+    if (tokensPerSecond <= 0 || capacity <= 0) {
+      throw new IllegalArgumentException("Rate and capacity must be positive");
+    }
+    this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.capacity = capacity;
+    this.tokens = capacity;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  /**
+   * Take a token, waiting until one is available.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  void acquire() throws InterruptedException {
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+      lastRefillNanos = now;
+      tokens -= 1;
+      waitNanos = tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+    }
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+}
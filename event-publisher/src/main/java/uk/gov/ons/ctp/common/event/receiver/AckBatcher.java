@@ -0,0 +1,68 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects ack ids, and hands them to the message source in batches.
+ *
+ * <p>A failed ack or nack is only logged, since the messages will be redelivered once their ack
+ * deadline passes.
+ */
+@Slf4j
+class AckBatcher {
+  interface Sink {
+    void send(List<String> ackIds) throws Exception;
+  }
+
+  private final String name;
+  private final Sink sink;
+  private final int batchSize;
+  private List<String> pending = new ArrayList<>();
+
+  AckBatcher(String name, Sink sink, int batchSize) {
+    this.name = name;
+    this.sink = sink;
+    this.batchSize = batchSize;
+  }
+
+  void add(String ackId) {
+    List<String> batch = null;
+    synchronized (this) {
+      pending.add(ackId);
+      if (pending.size() >= batchSize) {
+        batch = take();
+      }
+    }
+    if (batch != null) {
+      send(batch);
+    }
+  }
+
+  void flush() {
+    List<String> batch;
+    synchronized (this) {
+      batch = take();
+    }
+    if (!batch.isEmpty()) {
+      send(batch);
+    }
+  }
+
+  private List<String> take() {
+    List<String> batch = pending;
+    pending = new ArrayList<>(batchSize);
+    return batch;
+  }
+
+  private void send(List<String> batch) {
+    try {
+      sink.send(batch);
+    } catch (Exception e) {
+      log.warn("Failed to send batch", kv("type", name), kv("count", batch.size()), e);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import lombok.Data;
+
+/**
+ * Configuration for a {@link Deduplicator}.
+ *
+ * <p>The most recent {@code windowSize} message ids are held exactly. With the Bloom filter
+ * enabled, older ids are also remembered, in a series of filters starting at {@code
+ * bloomInitialCapacity} ids. Each new filter is twice the size of the last with half the false
+ * positive rate, so the overall rate stays below twice {@code bloomFalsePositiveRate}. Once there
+ * are {@code bloomMaxFilters} filters the oldest is dropped, which bounds the memory used.
+ */
+@Data
+public class DeduplicationConfig {
+  private int windowSize = 100000;
+  private boolean bloomFilterEnabled;
+  private long bloomInitialCapacity = 1000000L;
+  private double bloomFalsePositiveRate = 0.0001;
+  private int bloomMaxFilters = 6;
+}
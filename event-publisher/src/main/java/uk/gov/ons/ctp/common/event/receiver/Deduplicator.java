@@ -0,0 +1,161 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Drops events which have already been handled, recognised by the message id in their header.
+ *
+ * <p>Recent ids are held in an LRU window, and optionally in a {@link ScalableBloomFilter} as well,
+ * so that duplicates arriving long after the original are still caught. A Bloom filter can give a
+ * false positive, in which case a new event is dropped as a duplicate, so it should only be enabled
+ * for events where that is acceptable.
+ *
+ * <p>An id is only remembered once its event has been handled successfully, so an event whose
+ * handler fails is not dropped when it is redelivered. Two copies of an event which are handled at
+ * the same time may both get through.
+ *
+ * <p>Events published again from a backup keep their original message id, so a backup replayed more
+ * than once, or an event which was in fact published before it was backed up, is caught.
+ */
+@Slf4j
+public class Deduplicator {
+  static final String METRIC = "event.receiver.dedup";
+
+  private final Map<UUID, Boolean> window;
+  private final ScalableBloomFilter bloomFilter;
+  private final LongAdder checks = new LongAdder();
+  private final LongAdder duplicates = new LongAdder();
+  private final Counter missCounter;
+  private final Counter windowHitCounter;
+  private final Counter bloomHitCounter;
+
+  public Deduplicator(DeduplicationConfig config) {
+    this(config, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param config configuration.
+   * @param meterRegistry registry for the hit and miss counters, or null if not required.
+   */
+  public Deduplicator(DeduplicationConfig config, MeterRegistry meterRegistry) {
+    int windowSize = config.getWindowSize();
+    this.window =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > windowSize;
+          }
+        };
+    this.bloomFilter =
+        config.isBloomFilterEnabled()
+            ? new ScalableBloomFilter(
+                config.getBloomInitialCapacity(),
+                config.getBloomFalsePositiveRate(),
+                config.getBloomMaxFilters())
+            : null;
+
+    if (meterRegistry == null) {
+      missCounter = null;
+      windowHitCounter = null;
+      bloomHitCounter = null;
+    } else {
+      missCounter = meterRegistry.counter(METRIC, "result", "miss");
+      windowHitCounter = meterRegistry.counter(METRIC, "result", "window");
+      bloomHitCounter = meterRegistry.counter(METRIC, "result", "bloom");
+    }
+  }
+
+  /**
+   * Wrap a handler so that duplicate events are acked without being handled.
+   *
+   * @param <T> the event class.
+   * @param handler the handler.
+   * @return the deduplicating handler.
+   */
+  public <T extends GenericEvent> EventHandler<T> wrap(EventHandler<T> handler) {
+    return event -> {
+      UUID messageId = event.getHeader() == null ? null : event.getHeader().getMessageId();
+      if (isDuplicate(messageId)) {
+        log.debug("Dropping duplicate event", kv("messageId", messageId));
+        return;
+      }
+      handler.handle(event);
+      record(messageId);
+    };
+  }
+
+  /**
+   * Check whether a message id has been seen before.
+   *
+   * @param messageId the id, which is never a duplicate if null.
+   * @return true if the id has been recorded.
+   */
+  public boolean isDuplicate(UUID messageId) {
+    if (messageId == null) {
+      return false;
+    }
+    checks.increment();
+    boolean inWindow;
+    synchronized (window) {
+      inWindow = window.get(messageId) != null;
+    }
+    if (inWindow) {
+      duplicates.increment();
+      increment(windowHitCounter);
+      return true;
+    }
+    if (bloomFilter != null && bloomFilter.mightContain(messageId)) {
+      duplicates.increment();
+      increment(bloomHitCounter);
+      return true;
+    }
+    increment(missCounter);
+    return false;
+  }
+
+  /**
+   * Remember a message id, once its event has been handled.
+   *
+   * @param messageId the id, which is ignored if null.
+   */
+  public void record(UUID messageId) {
+    if (messageId == null) {
+      return;
+    }
+    synchronized (window) {
+      window.put(messageId, Boolean.TRUE);
+    }
+    if (bloomFilter != null) {
+      bloomFilter.put(messageId);
+    }
+  }
+
+  /**
+   * Get the proportion of checks which found a duplicate.
+   *
+   * @return the hit rate, or 0 if nothing has been checked.
+   */
+  public double getHitRate() {
+    long total = checks.sum();
+    return total == 0 ? 0 : (double) duplicates.sum() / total;
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+}
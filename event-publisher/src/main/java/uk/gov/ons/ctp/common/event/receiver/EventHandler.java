@@ -0,0 +1,20 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Handles events received by an {@link EventReceiver}.
+ *
+ * @param <T> the event class.
+ */
+@FunctionalInterface
+public interface EventHandler<T extends GenericEvent> {
+
+  /**
+   * Handle an event. The message is acked if this returns normally, and nacked if it throws.
+   *
+   * @param event the event.
+   * @throws Exception if the event could not be handled, and should be redelivered.
+   */
+  void handle(T event) throws Exception;
+}
@@ -0,0 +1,489 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.event.EventDeserialiser;
+import uk.gov.ons.ctp.common.event.KeyedExecutor;
+import uk.gov.ons.ctp.common.event.PubSubMessageFactory;
+import uk.gov.ons.ctp.common.event.TopicType;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+/**
+ * Receives events from a subscription, and dispatches each one to the handler registered for its
+ * topic type.
+ *
+ * <p>The topic type of a message is taken from the attribute set by {@link PubSubMessageFactory}. A
+ * message without the attribute goes to the only registered handler, if there is just one.
+ *
+ * <p>A single thread pulls messages, and handlers run on a pool of {@code concurrency} threads. The
+ * number of messages pulled but not yet handled is capped, so a slow handler slows the pulling
+ * rather than letting messages pile up in memory. A message is acked once its handler returns, and
+ * nacked if the handler throws, so that it is redelivered. Acks and nacks are sent in batches. A
+ * message which can never be handled, because it has an unknown topic type, no handler is
+ * registered for its topic type, or its body cannot be deserialised, is logged and acked so that it
+ * is not redelivered forever.
+ *
+ * <p>Until a message is acked or nacked its lease is extended, as the pub/sub client library's
+ * subscriber does. When it is pulled, and every {@code ackExtensionIntervalMillis} after that, its
+ * ack deadline is set to {@code ackDeadlineSeconds} from then, so that a message waiting for a
+ * handler or taking a long time to handle is not redelivered meanwhile. A message is given up after
+ * {@code maxAckExtensionSeconds}, and is then redelivered once its deadline passes.
+ *
+ * <p>With {@code orderedByKey} set, the handlers instead run on the lanes of a {@link
+ * KeyedExecutor}, so that events with the same ordering key, such as the case id, are handled one
+ * at a time in the order they were pulled. The key is taken from the message's ordering key if it
+ * has one, which needs the publisher to have message ordering enabled. Otherwise the message is
+ * read on the pulling thread to find the key, which limits throughput. Once a message is nacked,
+ * later messages with its key are nacked without being handled until it is delivered again, so that
+ * they are not handled ahead of it. A key is held like this for at most {@code nackHoldMillis}, in
+ * case the nacked message is never redelivered, for instance because it went to a dead letter
+ * topic.
+ *
+ * <p>A message whose body was moved to a blob store by a claim check is read back from the store,
+ * which needs the receiver to be given a {@link ClaimCheck} on the same store.
+ *
+ * <p>Pub/sub delivers at least once, so a handler may see the same event twice. Handlers which
+ * cannot tolerate this can be wrapped with a {@link Deduplicator}.
+ *
+ * <pre>
+ * EventReceiver receiver =
+ *     new EventReceiver(source, config)
+ *         .register(TopicType.CASE_UPDATE, CaseEvent.class, caseService::onCaseUpdate);
+ * receiver.start();
+ * </pre>
+ */
+@Slf4j
+public class EventReceiver implements AutoCloseable {
+  private final MessageSource source;
+  private final ReceiverConfig config;
+  private final EventDeserialiser deserialiser;
+  private final ClaimCheck claimCheck;
+  private final Map<TopicType, EventHandler<GenericEvent>> handlers =
+      new EnumMap<>(TopicType.class);
+  private final Semaphore outstanding;
+  private final AckBatcher acks;
+  private final AckBatcher nacks;
+  private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+  private final Map<String, Long> leases = new ConcurrentHashMap<>();
+
+  private ExecutorService workers;
+  private KeyedExecutor lanes;
+  private ScheduledExecutorService flusher;
+  private Thread poller;
+  private volatile boolean running;
+
+  /** A key whose later messages wait for a nacked message to be delivered again. */
+  @Value
+  private static class Hold {
+    String messageId;
+    long expiry;
+  }
+
+  public EventReceiver(MessageSource source, ReceiverConfig config) {
+    this(source, config, new EventDeserialiser());
+  }
+
+  public EventReceiver(
+      MessageSource source, ReceiverConfig config, EventDeserialiser deserialiser) {
+    this(source, config, deserialiser, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param source where to pull messages from.
+   * @param config configuration.
+   * @param deserialiser deserialiser for the message bodies.
+   * @param claimCheck claim check for bodies moved to a blob store, or null if none are.
+   */
+  public EventReceiver(
+      MessageSource source,
+      ReceiverConfig config,
+      EventDeserialiser deserialiser,
+      ClaimCheck claimCheck) {
+    this.source = source;
+    this.config = config;
+    this.deserialiser = deserialiser;
+    this.claimCheck = claimCheck;
+    this.outstanding = new Semaphore(config.getMaxOutstandingMessages());
+    this.acks = new AckBatcher("ack", source::ack, config.getAckBatchSize());
+    this.nacks = new AckBatcher("nack", source::nack, config.getAckBatchSize());
+  }
+
+  /**
+   * Register the handler for a topic type. Handlers must be registered before the receiver is
+   * started.
+   *
+   * @param <T> the event class.
+   * @param topicType the topic type.
+   * @param eventClass the event class of the topic type.
+   * @param handler the handler.
+   * @return this receiver.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized <T extends GenericEvent> EventReceiver register(
+      TopicType topicType, Class<T> eventClass, EventHandler<? super T> handler) {
+    if (poller != null) {
+      throw new IllegalStateException("Receiver already started");
+    }
+    if (!eventClass.equals(topicType.getEventType())) {
+      throw new IllegalArgumentException(
+          "Event class " + eventClass.getSimpleName() + " does not match topic type " + topicType);
+    }
+    handlers.put(topicType, (EventHandler<GenericEvent>) handler);
+    return this;
+  }
+
+  /** Start pulling and handling messages. */
+  public synchronized void start() {
+    if (poller != null) {
+      throw new IllegalStateException("Receiver already started");
+    }
+    if (handlers.isEmpty()) {
+      throw new IllegalStateException("No handlers registered");
+    }
+    running = true;
+
+    if (config.isOrderedByKey()) {
+      lanes =
+          new KeyedExecutor(
+              "event-receiver", config.getConcurrency(), config.getMaxOutstandingMessages());
+    } else {
+      AtomicInteger threadCount = new AtomicInteger();
+      workers =
+          Executors.newFixedThreadPool(
+              config.getConcurrency(),
+              r -> {
+                Thread thread = new Thread(r, "event-receiver-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "event-receiver-ack");
+              thread.setDaemon(true);
+              return thread;
+            });
+    flusher.scheduleWithFixedDelay(
+        this::flush,
+        config.getAckFlushIntervalMillis(),
+        config.getAckFlushIntervalMillis(),
+        TimeUnit.MILLISECONDS);
+    flusher.scheduleWithFixedDelay(
+        this::extendLeases,
+        config.getAckExtensionIntervalMillis(),
+        config.getAckExtensionIntervalMillis(),
+        TimeUnit.MILLISECONDS);
+
+    poller = new Thread(this::pollLoop, "event-receiver-pull");
+    poller.setDaemon(true);
+    poller.start();
+    log.info("Event receiver started", kv("topicTypes", handlers.keySet()));
+  }
+
+  /**
+   * Stop pulling, wait for the handlers of messages already pulled, send any remaining acks and
+   * nacks, and close the message source. A message pulled once the receiver is closing is nacked
+   * rather than handled.
+   *
+   * @throws Exception if interrupted while waiting, or the message source failed to close.
+   */
+  @Override
+  public synchronized void close() throws Exception {
+    if (poller != null) {
+      running = false;
+      poller.interrupt();
+      poller.join(TimeUnit.SECONDS.toMillis(config.getShutdownTimeoutSeconds()));
+      if (poller.isAlive()) {
+        log.warn("Event receiver still pulling after shutdown timeout");
+      }
+      boolean finished;
+      if (lanes == null) {
+        workers.shutdown();
+        finished = workers.awaitTermination(config.getShutdownTimeoutSeconds(), TimeUnit.SECONDS);
+      } else {
+        lanes.shutdown();
+        finished = lanes.awaitTermination(config.getShutdownTimeoutSeconds(), TimeUnit.SECONDS);
+      }
+      if (!finished) {
+        log.warn("Event handlers still running after shutdown timeout");
+      }
+      flusher.shutdown();
+      flush();
+    }
+    source.close();
+  }
+
+  private void pollLoop() {
+    while (running) {
+      int permits;
+      try {
+        outstanding.acquire();
+      } catch (InterruptedException e) {
+        break;
+      }
+      permits = 1 + drainPermits(config.getPullBatchSize() - 1);
+
+      List<ReceivedMessage> messages;
+      try {
+        messages = source.pull(permits);
+      } catch (Exception e) {
+        outstanding.release(permits);
+        if (!running) {
+          break;
+        }
+        log.warn("Failed to pull messages, will retry", e);
+        if (!pause()) {
+          break;
+        }
+        continue;
+      }
+
+      outstanding.release(permits - messages.size());
+      lease(messages);
+      for (ReceivedMessage message : messages) {
+        if (!running) {
+          reject(message);
+        } else if (lanes == null) {
+          try {
+            workers.execute(() -> process(message, null));
+          } catch (RejectedExecutionException e) {
+            reject(message);
+          }
+        } else {
+          dispatchByKey(message);
+        }
+      }
+    }
+  }
+
+  private void dispatchByKey(ReceivedMessage message) {
+    String key = message.getMessage().getOrderingKey();
+    GenericEvent event = null;
+    if (key.isEmpty()) {
+      try {
+        TopicType topicType = topicTypeOf(message);
+        event = deserialiser.fromByteString(topicType, bodyOf(message));
+        key = topicType.orderingKey(event);
+      } catch (Exception e) {
+        // leave the failure to be handled by the lane
+        key = null;
+      }
+    }
+    String orderingKey = key;
+    GenericEvent decoded = event;
+    try {
+      // the outstanding message limit stops the lanes filling up, so this does not block
+      lanes.execute(orderingKey, () -> processInOrder(orderingKey, message, decoded));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      reject(message);
+    } catch (RejectedExecutionException e) {
+      reject(message);
+    }
+  }
+
+  /** Called on the key's lane, so only one message with a given key is seen at a time. */
+  private void processInOrder(String key, ReceivedMessage message, GenericEvent decoded) {
+    if (key == null) {
+      process(message, decoded);
+      return;
+    }
+    String messageId = message.getMessage().getMessageId();
+    Hold hold = holds.get(key);
+    if (hold != null
+        && !hold.getMessageId().equals(messageId)
+        && System.currentTimeMillis() < hold.getExpiry()) {
+      log.debug(
+          "Nacking event until earlier event is redelivered",
+          kv("messageId", messageId),
+          kv("awaiting", hold.getMessageId()));
+      reject(message);
+      return;
+    }
+    if (process(message, decoded)) {
+      holds.remove(key);
+    } else {
+      holds.put(key, new Hold(messageId, System.currentTimeMillis() + config.getNackHoldMillis()));
+    }
+  }
+
+  private void reject(ReceivedMessage message) {
+    nack(message);
+    outstanding.release();
+  }
+
+  private void ack(ReceivedMessage message) {
+    leases.remove(message.getAckId());
+    acks.add(message.getAckId());
+  }
+
+  private void nack(ReceivedMessage message) {
+    leases.remove(message.getAckId());
+    nacks.add(message.getAckId());
+  }
+
+  /** Hold newly pulled messages, and set their ack deadline straight away. */
+  private void lease(List<ReceivedMessage> messages) {
+    if (messages.isEmpty()) {
+      return;
+    }
+    long expiry =
+        System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.getMaxAckExtensionSeconds());
+    List<String> ackIds = new ArrayList<>(messages.size());
+    for (ReceivedMessage message : messages) {
+      leases.put(message.getAckId(), expiry);
+      ackIds.add(message.getAckId());
+    }
+    try {
+      flusher.execute(() -> modifyAckDeadline(ackIds));
+    } catch (RejectedExecutionException e) {
+      // closing, so the messages are about to be nacked
+    }
+  }
+
+  /** Extend the ack deadline of every message held, except those held for too long. */
+  private void extendLeases() {
+    long now = System.currentTimeMillis();
+    List<String> ackIds = new ArrayList<>();
+    for (Map.Entry<String, Long> lease : leases.entrySet()) {
+      if (now < lease.getValue()) {
+        ackIds.add(lease.getKey());
+      } else if (leases.remove(lease.getKey(), lease.getValue())) {
+        log.warn(
+            "Stopped extending ack deadline of event still being handled",
+            kv("ackId", lease.getKey()));
+      }
+    }
+    for (int from = 0; from < ackIds.size(); from += config.getAckBatchSize()) {
+      modifyAckDeadline(
+          ackIds.subList(from, Math.min(from + config.getAckBatchSize(), ackIds.size())));
+    }
+  }
+
+  private void modifyAckDeadline(List<String> ackIds) {
+    try {
+      source.modifyAckDeadline(ackIds, config.getAckDeadlineSeconds());
+    } catch (Exception e) {
+      log.warn("Failed to extend ack deadlines", kv("count", ackIds.size()), e);
+    }
+  }
+
+  private int drainPermits(int max) {
+    int taken = 0;
+    while (taken < max && outstanding.tryAcquire()) {
+      taken++;
+    }
+    return taken;
+  }
+
+  private boolean pause() {
+    try {
+      Thread.sleep(config.getPullRetryDelayMillis());
+      return true;
+    } catch (InterruptedException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Handle a message, and ack it, or nack it if it could not be handled. A message which can never
+   * be handled is discarded.
+   *
+   * @return true if the message was handled or discarded.
+   */
+  private boolean process(ReceivedMessage message, GenericEvent decoded) {
+    try {
+      TopicType topicType;
+      EventHandler<GenericEvent> handler;
+      try {
+        topicType = topicTypeOf(message);
+        handler = handlers.get(topicType);
+        if (handler == null) {
+          throw new IllegalArgumentException("No handler registered for " + topicType);
+        }
+      } catch (IllegalArgumentException e) {
+        return discard(message, e);
+      }
+
+      GenericEvent event = decoded;
+      if (event == null) {
+        // a claim checked body may fail to be read from the blob store, which can be retried
+        ByteString body = bodyOf(message);
+        try {
+          event = deserialiser.fromByteString(topicType, body);
+        } catch (Exception e) {
+          return discard(message, e);
+        }
+      }
+
+      handler.handle(event);
+      ack(message);
+      return true;
+    } catch (Exception e) {
+      log.warn(
+          "Failed to handle event, will nack",
+          kv("messageId", message.getMessage().getMessageId()),
+          e);
+      nack(message);
+      return false;
+    } finally {
+      outstanding.release();
+    }
+  }
+
+  /** Ack a message which can never be handled, so that it is not redelivered. */
+  private boolean discard(ReceivedMessage message, Exception cause) {
+    log.error(
+        "Discarding event which cannot be handled",
+        kv("messageId", message.getMessage().getMessageId()),
+        kv("attributes", message.getMessage().getAttributesMap()),
+        cause);
+    ack(message);
+    return true;
+  }
+
+  private ByteString bodyOf(ReceivedMessage message) {
+    return PubSubMessageFactory.bodyOf(message.getMessage(), claimCheck);
+  }
+
+  private TopicType topicTypeOf(ReceivedMessage message) {
+    String topicType =
+        message.getMessage().getAttributesOrDefault(PubSubMessageFactory.TOPIC_TYPE, null);
+    if (topicType != null) {
+      try {
+        return TopicType.valueOf(topicType);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown topic type " + topicType, e);
+      }
+    }
+    if (handlers.size() == 1) {
+      return handlers.keySet().iterator().next();
+    }
+    throw new IllegalArgumentException("Message has no topic type attribute");
+  }
+
+  private void flush() {
+    acks.flush();
+    nacks.flush();
+  }
+}
@@ -0,0 +1,45 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.List;
+
+/** A pub/sub subscription, as seen by an {@link EventReceiver}. */
+public interface MessageSource extends AutoCloseable {
+
+  /**
+   * Pull messages from the subscription, waiting a short time if none are available.
+   *
+   * @param maxMessages the most messages to return.
+   * @return the messages, which may be empty.
+   * @throws Exception if the pull failed.
+   */
+  List<ReceivedMessage> pull(int maxMessages) throws Exception;
+
+  /**
+   * Acknowledge messages, so that they are not delivered again.
+   *
+   * @param ackIds the ack ids of the messages.
+   * @throws Exception if the acknowledgement failed.
+   */
+  void ack(List<String> ackIds) throws Exception;
+
+  /**
+   * Negatively acknowledge messages, so that they are redelivered straight away.
+   *
+   * @param ackIds the ack ids of the messages.
+   * @throws Exception if the request failed.
+   */
+  void nack(List<String> ackIds) throws Exception;
+
+  /**
+   * Set the ack deadline of messages, so that they are not redelivered while still being handled.
+   *
+   * @param ackIds the ack ids of the messages.
+   * @param ackDeadlineSeconds the new deadline, in seconds from now.
+   * @throws Exception if the request failed.
+   */
+  void modifyAckDeadline(List<String> ackIds, int ackDeadlineSeconds) throws Exception;
+
+  @Override
+  default void close() throws Exception {}
+}
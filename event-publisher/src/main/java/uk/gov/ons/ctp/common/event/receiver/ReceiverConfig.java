@@ -0,0 +1,31 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import lombok.Data;
+
+/**
+ * Configuration for an {@link EventReceiver}.
+ *
+ * <p>Handlers run on {@code concurrency} threads, and no more than {@code maxOutstandingMessages}
+ * messages are pulled but not yet handled. Acks and nacks are sent once {@code ackBatchSize} are
+ * waiting, or every {@code ackFlushIntervalMillis}. Every {@code ackExtensionIntervalMillis}, the
+ * ack deadline of each message not yet acked or nacked is set to {@code ackDeadlineSeconds} from
+ * then, until it has been held for {@code maxAckExtensionSeconds}. With {@code orderedByKey} set,
+ * events with the same ordering key are handled one at a time, in order, and after a nack the key's
+ * later messages are nacked until the failed message is redelivered, or {@code nackHoldMillis} has
+ * passed.
+ */
+@Data
+public class ReceiverConfig {
+  private int concurrency = 4;
+  private int maxOutstandingMessages = 1000;
+  private int pullBatchSize = 100;
+  private int ackBatchSize = 100;
+  private long ackFlushIntervalMillis = 100L;
+  private long pullRetryDelayMillis = 1000L;
+  private int ackDeadlineSeconds = 60;
+  private long ackExtensionIntervalMillis = 20_000L;
+  private int maxAckExtensionSeconds = 3600;
+  private int shutdownTimeoutSeconds = 30;
+  private boolean orderedByKey;
+  private long nackHoldMillis = 600_000L;
+}
@@ -0,0 +1,62 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+
+/**
+ * Bloom filter which adds a larger, stricter filter each time the newest one is full, and drops the
+ * oldest once there are too many.
+ */
+class ScalableBloomFilter {
+  private static final Funnel<UUID> UUID_FUNNEL =
+      (uuid, sink) ->
+          sink.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+
+  private final int maxFilters;
+  private final Deque<Stage> stages = new ArrayDeque<>();
+
+  private static class Stage {
+    private final BloomFilter<UUID> filter;
+    private final long capacity;
+    private final double falsePositiveRate;
+
+    Stage(long capacity, double falsePositiveRate) {
+      this.filter = BloomFilter.create(UUID_FUNNEL, capacity, falsePositiveRate);
+      this.capacity = capacity;
+      this.falsePositiveRate = falsePositiveRate;
+    }
+  }
+
+  ScalableBloomFilter(long initialCapacity, double falsePositiveRate, int maxFilters) {
+    this.maxFilters = maxFilters;
+    stages.addLast(new Stage(initialCapacity, falsePositiveRate / 2));
+  }
+
+  synchronized boolean mightContain(UUID id) {
+    for (Stage stage : stages) {
+      if (stage.filter.mightContain(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  synchronized void put(UUID id) {
+    Stage newest = stages.getLast();
+    if (newest.filter.approximateElementCount() >= newest.capacity) {
+      newest = new Stage(newest.capacity * 2, newest.falsePositiveRate / 2);
+      stages.addLast(newest);
+      if (stages.size() > maxFilters) {
+        stages.removeFirst();
+      }
+    }
+    newest.filter.put(id);
+  }
+
+  synchronized int filterCount() {
+    return stages.size();
+  }
+}
@@ -0,0 +1,81 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import com.google.api.gax.core.CredentialsProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.pubsub.v1.stub.GrpcSubscriberStub;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.cloud.pubsub.v1.stub.SubscriberStubSettings;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PullRequest;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Message source which uses synchronous pull requests of the native Google pub/sub client, so that
+ * the receiver controls how many messages are outstanding and when acks are sent.
+ */
+public class SubscriberStubMessageSource implements MessageSource {
+  private final SubscriberStub stub;
+  private final String subscription;
+
+  public SubscriberStubMessageSource(
+      String projectId,
+      String subscriptionId,
+      TransportChannelProvider channelProvider,
+      CredentialsProvider credentialsProvider)
+      throws IOException {
+    this(
+        GrpcSubscriberStub.create(
+            SubscriberStubSettings.newBuilder()
+                .setTransportChannelProvider(channelProvider)
+                .setCredentialsProvider(credentialsProvider)
+                .build()),
+        ProjectSubscriptionName.format(projectId, subscriptionId));
+  }
+
+  SubscriberStubMessageSource(SubscriberStub stub, String subscription) {
+    this.stub = stub;
+    this.subscription = subscription;
+  }
+
+  @Override
+  public List<ReceivedMessage> pull(int maxMessages) {
+    PullRequest request =
+        PullRequest.newBuilder().setSubscription(subscription).setMaxMessages(maxMessages).build();
+    return stub.pullCallable().call(request).getReceivedMessagesList();
+  }
+
+  @Override
+  public void ack(List<String> ackIds) {
+    stub.acknowledgeCallable()
+        .call(
+            AcknowledgeRequest.newBuilder()
+                .setSubscription(subscription)
+                .addAllAckIds(ackIds)
+                .build());
+  }
+
+  @Override
+  public void nack(List<String> ackIds) {
+    modifyAckDeadline(ackIds, 0);
+  }
+
+  @Override
+  public void modifyAckDeadline(List<String> ackIds, int ackDeadlineSeconds) {
+    stub.modifyAckDeadlineCallable()
+        .call(
+            ModifyAckDeadlineRequest.newBuilder()
+                .setSubscription(subscription)
+                .addAllAckIds(ackIds)
+                .setAckDeadlineSeconds(ackDeadlineSeconds)
+                .build());
+  }
+
+  @Override
+  public void close() {
+    stub.close();
+  }
+}
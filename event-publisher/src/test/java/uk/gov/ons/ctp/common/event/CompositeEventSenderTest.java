@@ -0,0 +1,182 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.model.FulfilmentEvent;
+
+@ExtendWith(MockitoExtension.class)
+public class CompositeEventSenderTest {
+
+  @Mock private EventSender primary;
+  @Mock private EventSender secondary;
+
+  private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private CompositeEventSender sender;
+  private FulfilmentEvent event;
+
+  @BeforeEach
+  public void setup() {
+    event = FixtureHelper.loadPackageFixtures(FulfilmentEvent[].class).get(0);
+    sender = new CompositeEventSender(List.of(primary, secondary));
+    sender.bindTo(registry);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    sender.close();
+  }
+
+  @Test
+  public void shouldUsePrimaryWhenItSucceeds() {
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(done());
+
+    sender.sendEvent(EventTopic.FULFILMENT, event);
+
+    verify(secondary, never()).sendEventAsync(any(), any());
+  }
+
+  @Test
+  public void shouldFallBackWhenPrimaryFails() {
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(failed("primary"));
+    when(secondary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(done());
+
+    sender.sendEvent(EventTopic.FULFILMENT, event);
+
+    assertEquals(1, registry.counter(CompositeEventSender.FALLBACK).count());
+  }
+
+  @Test
+  public void shouldFallBackWhenPrimaryThrows() {
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event))
+        .thenThrow(new IllegalStateException("primary"));
+    when(secondary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(done());
+
+    sender.sendEvent(EventTopic.FULFILMENT, event);
+
+    verify(secondary).sendEventAsync(EventTopic.FULFILMENT, event);
+  }
+
+  @Test
+  public void shouldFailWhenAllSendersFail() {
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(failed("primary"));
+    when(secondary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(failed("secondary"));
+
+    EventPublishException e =
+        assertThrows(
+            EventPublishException.class, () -> sender.sendEvent(EventTopic.FULFILMENT, event));
+
+    assertEquals("secondary", e.getCause().getMessage());
+    assertEquals("primary", e.getSuppressed()[0].getMessage());
+  }
+
+  @Test
+  public void shouldHedgeWhenPrimaryIsSlow() throws Exception {
+    CompositeSenderConfig config = new CompositeSenderConfig();
+    config.setHedgeDelayMillis(20);
+    sender = new CompositeEventSender(List.of(primary, secondary), config);
+    sender.bindTo(registry);
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event))
+        .thenReturn(new CompletableFuture<>());
+    when(secondary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(done());
+
+    sender.sendEventAsync(EventTopic.FULFILMENT, event).get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, registry.counter(CompositeEventSender.HEDGED).count());
+  }
+
+  @Test
+  public void shouldWaitForHedgeWhichIsSlowToStartWhenPrimaryFails() throws Exception {
+    CompositeSenderConfig config = new CompositeSenderConfig();
+    config.setHedgeDelayMillis(20);
+    sender = new CompositeEventSender(List.of(primary, secondary), config);
+    CompletableFuture<Void> primaryResult = new CompletableFuture<>();
+    CountDownLatch hedging = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(primaryResult);
+    when(secondary.sendEventAsync(EventTopic.FULFILMENT, event))
+        .thenAnswer(
+            invocation -> {
+              hedging.countDown();
+              release.await();
+              return done();
+            });
+
+    CompletableFuture<Void> result = sender.sendEventAsync(EventTopic.FULFILMENT, event);
+    assertTrue(hedging.await(5, TimeUnit.SECONDS));
+    primaryResult.completeExceptionally(new RuntimeException("primary"));
+
+    assertFalse(result.isDone());
+    release.countDown();
+    result.get(5, TimeUnit.SECONDS);
+    verify(secondary, times(1)).sendEventAsync(EventTopic.FULFILMENT, event);
+  }
+
+  @Test
+  public void shouldNotHedgeWhenPrimaryIsQuick() throws Exception {
+    CompositeSenderConfig config = new CompositeSenderConfig();
+    config.setHedgeDelayMillis(20);
+    sender = new CompositeEventSender(List.of(primary, secondary), config);
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(done());
+
+    sender.sendEventAsync(EventTopic.FULFILMENT, event).get(5, TimeUnit.SECONDS);
+    Thread.sleep(50);
+
+    verify(secondary, never()).sendEventAsync(any(), any());
+  }
+
+  @Test
+  public void shouldSendBatchToPrimaryAndFallBackForFailures() {
+    FulfilmentEvent other = FixtureHelper.loadPackageFixtures(FulfilmentEvent[].class).get(0);
+    other.getHeader().setSource("other");
+    when(primary.sendEventsAsync(EventTopic.FULFILMENT, List.of(event, other)))
+        .thenReturn(List.of(done(), failed("primary")));
+    when(secondary.sendEventAsync(eq(EventTopic.FULFILMENT), eq(other))).thenReturn(done());
+
+    List<CompletableFuture<Void>> results =
+        sender.sendEventsAsync(EventTopic.FULFILMENT, List.of(event, other));
+
+    results.forEach(CompletableFuture::join);
+    verify(secondary, never()).sendEventAsync(EventTopic.FULFILMENT, event);
+  }
+
+  @Test
+  public void shouldCompleteExceptionallyWhenAsyncSendFails() {
+    when(primary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(failed("primary"));
+    when(secondary.sendEventAsync(EventTopic.FULFILMENT, event)).thenReturn(failed("secondary"));
+
+    CompletableFuture<Void> result = sender.sendEventAsync(EventTopic.FULFILMENT, event);
+
+    CompletionException e = assertThrows(CompletionException.class, result::join);
+    assertTrue(e.getCause() instanceof EventPublishException);
+  }
+
+  private static CompletableFuture<Void> done() {
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private static CompletableFuture<Void> failed(String message) {
+    return CompletableFuture.failedFuture(new RuntimeException(message));
+  }
+}
@@ -0,0 +1,43 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.protobuf.ByteString;
+import java.lang.reflect.Array;
+import org.junit.jupiter.api.Test;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+
+public class EventDeserialiserTest {
+
+  private EventSerialiser serialiser = new EventSerialiser();
+  private EventDeserialiser deserialiser = new EventDeserialiser();
+
+  @Test
+  public void shouldRoundTripEveryTopicType() {
+    for (TopicType topicType : TopicType.values()) {
+      GenericEvent event = loadEvent(topicType.getEventType());
+
+      GenericEvent read = deserialiser.fromByteString(topicType, serialiser.toByteString(event));
+
+      assertEquals(topicType.getEventType(), read.getClass());
+      assertEquals(event, read, "Round trip failed for " + topicType);
+    }
+  }
+
+  @Test
+  public void shouldRejectInvalidJson() {
+    assertThrows(
+        EventPublishException.class,
+        () ->
+            deserialiser.fromByteString(
+                TopicType.CASE_UPDATE, ByteString.copyFromUtf8("{\"header\": ")));
+  }
+
+  private static <T extends GenericEvent> T loadEvent(Class<T> clazz) {
+    @SuppressWarnings("unchecked")
+    var arrClazz = (Class<T[]>) Array.newInstance(clazz, 0).getClass();
+    return FixtureHelper.loadPackageFixtures(arrClazz).get(0);
+  }
+}
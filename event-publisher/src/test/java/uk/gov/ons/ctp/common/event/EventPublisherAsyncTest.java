@@ -0,0 +1,167 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.ons.ctp.common.event.EventPublisherTestUtil.assertHeader;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.event.model.EqLaunch;
+import uk.gov.ons.ctp.common.event.model.EqLaunchEvent;
+import uk.gov.ons.ctp.common.event.model.UacUpdate;
+import uk.gov.ons.ctp.common.event.persistence.FirestoreEventPersistence;
+
+/** EventPublisher tests for asynchronous sending. */
+@ExtendWith(MockitoExtension.class)
+public class EventPublisherAsyncTest {
+
+  @Mock private EventSender sender;
+  @Mock private FirestoreEventPersistence eventPersistence;
+  @Mock private CircuitBreaker circuitBreaker;
+
+  @Captor private ArgumentCaptor<EqLaunchEvent> eqLaunchedEventCaptor;
+
+  private EventPublisher eventPublisher;
+  private EqLaunch eqLaunch;
+
+  @BeforeEach
+  public void setup() {
+    eventPublisher = EventPublisher.create(sender, eventPersistence, null, Runnable::run);
+    eqLaunch = FixtureHelper.loadPackageFixtures(EqLaunch[].class).get(0);
+  }
+
+  @Test
+  public void shouldSendEventAsync() throws Exception {
+    when(sender.sendEventAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    UUID messageId =
+        eventPublisher
+            .sendEventAsync(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch)
+            .get();
+
+    verify(sender).sendEventAsync(eq(EventTopic.EQ_LAUNCH), eqLaunchedEventCaptor.capture());
+    EqLaunchEvent event = eqLaunchedEventCaptor.getValue();
+    assertHeader(
+        event, messageId.toString(), EventTopic.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH);
+    assertEquals(eqLaunch, event.getPayload().getEqLaunch());
+    verify(sender, never()).sendEvent(any(), any());
+    verify(eventPersistence, never()).persistEvent(any(), any());
+  }
+
+  @Test
+  public void shouldPersistEventWhenAsyncPublishFails() throws Exception {
+    when(sender.sendEventAsync(any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Publish fail")));
+
+    UUID messageId =
+        eventPublisher
+            .sendEventAsync(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch)
+            .get();
+
+    verify(eventPersistence).persistEvent(eq(TopicType.EQ_LAUNCH), eqLaunchedEventCaptor.capture());
+    assertEquals(messageId, eqLaunchedEventCaptor.getValue().getHeader().getMessageId());
+  }
+
+  @Test
+  public void shouldFailFutureWhenAsyncPublishAndPersistenceFail() throws Exception {
+    when(sender.sendEventAsync(any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Publish fail")));
+    doThrow(new CTPException(Fault.SYSTEM_ERROR, "Firestore broken"))
+        .when(eventPersistence)
+        .persistEvent(any(), any());
+
+    CompletableFuture<UUID> future =
+        eventPublisher.sendEventAsync(
+            TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertTrue(e.getCause() instanceof EventPublishException, e.getCause().toString());
+  }
+
+  @Test
+  public void shouldFailFutureWhenAsyncPublishFailsWithoutPersistence() {
+    eventPublisher = EventPublisher.create(sender, null, null, Runnable::run);
+    when(sender.sendEventAsync(any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Publish fail")));
+
+    CompletableFuture<UUID> future =
+        eventPublisher.sendEventAsync(
+            TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertTrue(e.getCause().getMessage().matches("Failed to publish .*"), e.getMessage());
+  }
+
+  @Test
+  public void shouldRejectIncompatiblePayloadBeforeSending() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            eventPublisher.sendEventAsync(
+                TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, new UacUpdate()));
+    verify(sender, never()).sendEventAsync(any(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldSendAsyncThroughCircuitBreaker() throws Exception {
+    eventPublisher = EventPublisher.create(sender, eventPersistence, circuitBreaker, Runnable::run);
+    doAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get())
+        .when(circuitBreaker)
+        .run(any(), any());
+
+    eventPublisher
+        .sendEventAsync(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch)
+        .get();
+
+    verify(circuitBreaker).run(any(), any());
+    verify(sender).sendEvent(eq(EventTopic.EQ_LAUNCH), any());
+    verify(eventPersistence, never()).persistEvent(any(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldPublishThroughCircuitBreakerOnOwnThreadsByDefault() throws Exception {
+    eventPublisher = EventPublisher.create(sender, eventPersistence, circuitBreaker);
+    AtomicReference<String> threadName = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              threadName.set(Thread.currentThread().getName());
+              return ((Supplier<Object>) invocation.getArgument(0)).get();
+            })
+        .when(circuitBreaker)
+        .run(any(), any());
+
+    eventPublisher
+        .sendEventAsync(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch)
+        .get();
+    eventPublisher.close();
+
+    assertTrue(threadName.get().startsWith("event-publisher-async-"), threadName.get());
+    verify(sender).sendEvent(eq(EventTopic.EQ_LAUNCH), any());
+  }
+}
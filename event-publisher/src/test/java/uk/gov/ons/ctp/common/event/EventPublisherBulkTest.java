@@ -0,0 +1,223 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.event.SendOutcome.Status;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+import uk.gov.ons.ctp.common.event.model.CaseUpdate;
+import uk.gov.ons.ctp.common.event.model.EventPayload;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.model.UacUpdate;
+import uk.gov.ons.ctp.common.event.persistence.FirestoreEventPersistence;
+
+/** EventPublisher tests for sending many events in one call. */
+@ExtendWith(MockitoExtension.class)
+public class EventPublisherBulkTest {
+
+  @Mock private EventSender sender;
+  @Mock private FirestoreEventPersistence eventPersistence;
+  @Mock private CircuitBreaker circuitBreaker;
+
+  @Captor private ArgumentCaptor<List<GenericEvent>> eventsCaptor;
+  @Captor private ArgumentCaptor<CaseEvent> caseEventCaptor;
+
+  private EventPublisher eventPublisher;
+  private List<CaseUpdate> payloads;
+
+  @BeforeEach
+  public void setup() {
+    eventPublisher = EventPublisher.create(sender, eventPersistence, null);
+    CaseUpdate caseUpdate = FixtureHelper.loadPackageFixtures(CaseUpdate[].class).get(0);
+    payloads = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      CaseUpdate payload = new CaseUpdate();
+      payload.setCaseId("case-" + i);
+      payload.setSample(caseUpdate.getSample());
+      payloads.add(payload);
+    }
+  }
+
+  @Test
+  public void shouldPublishAllEventsTogether() throws Exception {
+    mockSendResults(null, null, null);
+
+    List<SendOutcome> outcomes =
+        eventPublisher.sendEvents(TopicType.CASE_UPDATE, Source.CASE_SERVICE, Channel.RM, payloads);
+
+    verify(sender).sendEventsAsync(eq(EventTopic.CASE_UPDATE), eventsCaptor.capture());
+    List<GenericEvent> sent = eventsCaptor.getValue();
+    assertEquals(3, sent.size());
+    assertEquals(3, outcomes.size());
+    for (int i = 0; i < 3; i++) {
+      CaseEvent event = (CaseEvent) sent.get(i);
+      assertEquals(payloads.get(i), event.getPayload().getCaseUpdate());
+      assertEquals(event.getHeader().getMessageId(), outcomes.get(i).getMessageId());
+      assertEquals(Status.PUBLISHED, outcomes.get(i).getStatus());
+    }
+    verify(eventPersistence, never()).persistEvent(any(), any());
+  }
+
+  @Test
+  public void shouldPersistOnlyFailedEvents() throws Exception {
+    mockSendResults(null, new RuntimeException("Publish fail"), null);
+
+    List<SendOutcome> outcomes =
+        eventPublisher.sendEvents(TopicType.CASE_UPDATE, Source.CASE_SERVICE, Channel.RM, payloads);
+
+    assertEquals(Status.PUBLISHED, outcomes.get(0).getStatus());
+    assertEquals(Status.PERSISTED, outcomes.get(1).getStatus());
+    assertEquals(Status.PUBLISHED, outcomes.get(2).getStatus());
+
+    verify(eventPersistence, times(1))
+        .persistEvent(eq(TopicType.CASE_UPDATE), caseEventCaptor.capture());
+    assertEquals(
+        outcomes.get(1).getMessageId(), caseEventCaptor.getValue().getHeader().getMessageId());
+  }
+
+  @Test
+  public void shouldReportFailureWhenPersistenceFails() throws Exception {
+    mockSendResults(new RuntimeException("Publish fail"), null, null);
+    doThrow(new CTPException(Fault.SYSTEM_ERROR, "Firestore broken"))
+        .when(eventPersistence)
+        .persistEvent(any(), any());
+
+    List<SendOutcome> outcomes =
+        eventPublisher.sendEvents(TopicType.CASE_UPDATE, Source.CASE_SERVICE, Channel.RM, payloads);
+
+    assertTrue(outcomes.get(0).isFailed());
+    assertTrue(outcomes.get(0).getFailure() instanceof EventPublishException);
+    assertEquals(Status.PUBLISHED, outcomes.get(1).getStatus());
+    assertEquals(Status.PUBLISHED, outcomes.get(2).getStatus());
+  }
+
+  @Test
+  public void shouldReportFailureWithoutPersistence() {
+    eventPublisher = EventPublisher.createWithoutEventPersistence(sender);
+    mockSendResults(null, null, new RuntimeException("Publish fail"));
+
+    List<SendOutcome> outcomes =
+        eventPublisher.sendEvents(TopicType.CASE_UPDATE, Source.CASE_SERVICE, Channel.RM, payloads);
+
+    assertEquals(Status.PUBLISHED, outcomes.get(0).getStatus());
+    assertEquals(Status.PUBLISHED, outcomes.get(1).getStatus());
+    assertEquals(Status.FAILED, outcomes.get(2).getStatus());
+  }
+
+  @Test
+  public void shouldNotSendAnythingWhenAPayloadIsInvalid() {
+    List<EventPayload> mixed = new ArrayList<>(payloads);
+    mixed.add(new UacUpdate());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            eventPublisher.sendEvents(
+                TopicType.CASE_UPDATE, Source.CASE_SERVICE, Channel.RM, mixed));
+    verify(sender, never()).sendEventsAsync(any(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldPersistAllEventsWhenCircuitBreakerIsOpen() throws Exception {
+    eventPublisher = EventPublisher.create(sender, eventPersistence, circuitBreaker);
+    doAnswer(
+            invocation ->
+                ((Function<Throwable, Object>) invocation.getArgument(1))
+                    .apply(new RuntimeException("circuit open")))
+        .when(circuitBreaker)
+        .run(any(), any());
+
+    List<SendOutcome> outcomes =
+        eventPublisher.sendEvents(TopicType.CASE_UPDATE, Source.CASE_SERVICE, Channel.RM, payloads);
+
+    verify(sender, never()).sendEventsAsync(any(), any());
+    verify(eventPersistence, times(3)).persistEvent(eq(TopicType.CASE_UPDATE), any());
+    outcomes.forEach(o -> assertEquals(Status.PERSISTED, o.getStatus()));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldWaitForSendsStillInFlightWhenCircuitBreakerGivesUp() throws Exception {
+    eventPublisher = EventPublisher.create(sender, eventPersistence, circuitBreaker);
+    CompletableFuture<Void> inFlight = new CompletableFuture<>();
+    CountDownLatch sent = new CountDownLatch(1);
+    CountDownLatch gaveUp = new CountDownLatch(1);
+    when(sender.sendEventsAsync(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              sent.countDown();
+              return List.of(
+                  CompletableFuture.completedFuture(null),
+                  inFlight,
+                  CompletableFuture.failedFuture(new RuntimeException("Publish fail")));
+            });
+    doAnswer(
+            invocation -> {
+              // the publish carries on in the background while the circuit breaker times out
+              CompletableFuture.runAsync(
+                  () -> ((Supplier<Object>) invocation.getArgument(0)).get());
+              sent.await(5, TimeUnit.SECONDS);
+              gaveUp.countDown();
+              return ((Function<Throwable, Object>) invocation.getArgument(1))
+                  .apply(new TimeoutException("too slow"));
+            })
+        .when(circuitBreaker)
+        .run(any(), any());
+
+    CompletableFuture<List<SendOutcome>> result =
+        CompletableFuture.supplyAsync(
+            () ->
+                eventPublisher.sendEvents(
+                    TopicType.CASE_UPDATE, Source.CASE_SERVICE, Channel.RM, payloads));
+    assertTrue(gaveUp.await(5, TimeUnit.SECONDS));
+    inFlight.complete(null);
+    List<SendOutcome> outcomes = result.get(5, TimeUnit.SECONDS);
+
+    assertEquals(Status.PUBLISHED, outcomes.get(0).getStatus());
+    assertEquals(Status.PUBLISHED, outcomes.get(1).getStatus());
+    assertEquals(Status.PERSISTED, outcomes.get(2).getStatus());
+    verify(eventPersistence, times(1)).persistEvent(eq(TopicType.CASE_UPDATE), any());
+  }
+
+  private void mockSendResults(Exception... failures) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (Exception failure : failures) {
+      futures.add(
+          failure == null
+              ? CompletableFuture.completedFuture(null)
+              : CompletableFuture.failedFuture(failure));
+    }
+    when(sender.sendEventsAsync(any(), any())).thenReturn(futures);
+  }
+}
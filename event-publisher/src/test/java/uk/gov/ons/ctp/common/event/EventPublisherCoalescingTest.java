@@ -0,0 +1,133 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+import uk.gov.ons.ctp.common.event.model.CaseUpdate;
+import uk.gov.ons.ctp.common.event.model.EqLaunch;
+
+/** EventPublisher tests for coalescing. */
+@ExtendWith(MockitoExtension.class)
+public class EventPublisherCoalescingTest {
+
+  @Mock private EventSender sender;
+
+  @Captor private ArgumentCaptor<CaseEvent> caseEventCaptor;
+
+  private CoalescingConfig coalescingConfig = new CoalescingConfig();
+  private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private EventPublisher eventPublisher;
+
+  @BeforeEach
+  public void setup() {
+    coalescingConfig.getWindowMillis().put(TopicType.CASE_UPDATE, 200L);
+    eventPublisher =
+        EventPublisher.builder()
+            .eventSender(sender)
+            .coalescingConfig(coalescingConfig)
+            .meterRegistry(registry)
+            .build();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    eventPublisher.close();
+  }
+
+  @Test
+  public void shouldPublishOnlyNewestEventForCase() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      sendCaseUpdate("case-1", "survey-" + i);
+    }
+    sendCaseUpdate("case-2", "survey-0");
+
+    verify(sender, timeout(5000).times(2))
+        .sendEvent(eq(EventTopic.CASE_UPDATE), caseEventCaptor.capture());
+    List<CaseEvent> published = caseEventCaptor.getAllValues();
+    assertEquals("case-1", caseUpdate(published.get(0)).getCaseId());
+    assertEquals("survey-4", caseUpdate(published.get(0)).getSurveyId());
+    assertEquals("case-2", caseUpdate(published.get(1)).getCaseId());
+    assertEquals(4, eventPublisher.getCoalescedCount());
+    assertEquals(
+        4,
+        registry
+            .counter(PublisherMetrics.COALESCED, PublisherMetrics.tags(TopicType.CASE_UPDATE))
+            .count());
+  }
+
+  @Test
+  public void shouldPublishOtherTopicTypesStraightAway() throws Exception {
+    EqLaunch eqLaunch = FixtureHelper.loadPackageFixtures(EqLaunch[].class).get(0);
+
+    eventPublisher.sendEvent(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+
+    verify(sender).sendEvent(eq(EventTopic.EQ_LAUNCH), any());
+  }
+
+  @Test
+  public void shouldPublishHeldEventsOnClose() throws Exception {
+    coalescingConfig.getWindowMillis().put(TopicType.CASE_UPDATE, 60000L);
+    sendCaseUpdate("case-1", "survey-0");
+    sendCaseUpdate("case-1", "survey-1");
+    verify(sender, never()).sendEvent(any(), any());
+
+    eventPublisher.close();
+
+    verify(sender, times(1)).sendEvent(eq(EventTopic.CASE_UPDATE), caseEventCaptor.capture());
+    assertEquals("survey-1", caseUpdate(caseEventCaptor.getValue()).getSurveyId());
+  }
+
+  @Test
+  public void shouldPublishStraightAwayWhenTooManyHeld() throws Exception {
+    coalescingConfig.setMaxPending(1);
+    sendCaseUpdate("case-1", "survey-0");
+
+    sendCaseUpdate("case-2", "survey-0");
+
+    verify(sender).sendEvent(eq(EventTopic.CASE_UPDATE), caseEventCaptor.capture());
+    assertEquals("case-2", caseUpdate(caseEventCaptor.getValue()).getCaseId());
+  }
+
+  @Test
+  public void shouldRejectCoalescingOfEventsWhichAreNotLatestState() {
+    for (TopicType topicType : List.of(TopicType.FULFILMENT, TopicType.UAC_UPDATE)) {
+      CoalescingConfig config = new CoalescingConfig();
+      config.getWindowMillis().put(topicType, 200L);
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> EventPublisher.builder().eventSender(sender).coalescingConfig(config).build());
+    }
+  }
+
+  private void sendCaseUpdate(String caseId, String surveyId) {
+    CaseUpdate caseUpdate = FixtureHelper.loadPackageFixtures(CaseUpdate[].class).get(0);
+    caseUpdate.setCaseId(caseId);
+    caseUpdate.setSurveyId(surveyId);
+    eventPublisher.sendEvent(TopicType.CASE_UPDATE, Source.RESPONDENT_HOME, Channel.RH, caseUpdate);
+  }
+
+  private static CaseUpdate caseUpdate(CaseEvent caseEvent) {
+    return caseEvent.getPayload().getCaseUpdate();
+  }
+}
@@ -0,0 +1,201 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.event.model.EqLaunch;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.persistence.FirestoreEventPersistence;
+
+/** EventPublisher tests for batching persistence while the circuit breaker is open. */
+@ExtendWith(MockitoExtension.class)
+public class EventPublisherDegradedModeTest {
+
+  @Mock private EventSender sender;
+  @Mock private FirestoreEventPersistence eventPersistence;
+  @Mock private CircuitBreaker circuitBreaker;
+
+  @Captor private ArgumentCaptor<List<GenericEvent>> eventsCaptor;
+
+  private DegradedModeConfig degradedModeConfig = new DegradedModeConfig();
+  private EventPublisher eventPublisher;
+  private EqLaunch eqLaunch;
+
+  @BeforeEach
+  public void setup() {
+    // long interval so that only close() flushes the buffer
+    degradedModeConfig.setFlushIntervalMillis(60000);
+    eventPublisher =
+        EventPublisher.builder()
+            .eventSender(sender)
+            .eventPersistence(eventPersistence)
+            .circuitBreaker(circuitBreaker)
+            .degradedModeConfig(degradedModeConfig)
+            .build();
+    eqLaunch = FixtureHelper.loadPackageFixtures(EqLaunch[].class).get(0);
+  }
+
+  @Test
+  public void shouldBatchPersistWhileCircuitOpen() throws Exception {
+    mockCircuitBreakerFailure(
+        CallNotPermittedException.createCallNotPermittedException(
+            io.github.resilience4j.circuitbreaker.CircuitBreaker.ofDefaults("test")));
+
+    for (int i = 0; i < 3; i++) {
+      send();
+    }
+    assertTrue(eventPublisher.isCircuitOpen());
+    verify(eventPersistence, never()).persistEvents(any(), any());
+
+    eventPublisher.close();
+
+    verify(eventPersistence).persistEvents(eq(TopicType.EQ_LAUNCH), eventsCaptor.capture());
+    assertEquals(3, eventsCaptor.getValue().size());
+    verify(eventPersistence, never()).persistEvent(any(), any());
+  }
+
+  @Test
+  public void shouldPersistIndividuallyWhenBatchFails() throws Exception {
+    mockCircuitBreakerFailure(
+        CallNotPermittedException.createCallNotPermittedException(
+            io.github.resilience4j.circuitbreaker.CircuitBreaker.ofDefaults("test")));
+    doThrow(new CTPException(Fault.SYSTEM_ERROR, "batch failed"))
+        .when(eventPersistence)
+        .persistEvents(any(), any());
+
+    send();
+    send();
+    eventPublisher.close();
+
+    verify(eventPersistence, times(2)).persistEvent(eq(TopicType.EQ_LAUNCH), any());
+  }
+
+  @Test
+  public void shouldCountBackupsOnlyOncePersisted() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    eventPublisher = createPublisher(registry);
+    mockCircuitBreakerFailure(
+        CallNotPermittedException.createCallNotPermittedException(
+            io.github.resilience4j.circuitbreaker.CircuitBreaker.ofDefaults("test")));
+
+    send();
+    send();
+    assertEquals(0, counter(registry, PublisherMetrics.BACKUP));
+
+    eventPublisher.close();
+    assertEquals(2, counter(registry, PublisherMetrics.BACKUP));
+    assertEquals(0, counter(registry, PublisherMetrics.BACKUP_FAILED));
+  }
+
+  @Test
+  public void shouldCountEventsLostWhenPersistenceFails() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    eventPublisher = createPublisher(registry);
+    mockCircuitBreakerFailure(
+        CallNotPermittedException.createCallNotPermittedException(
+            io.github.resilience4j.circuitbreaker.CircuitBreaker.ofDefaults("test")));
+    doThrow(new CTPException(Fault.SYSTEM_ERROR, "batch failed"))
+        .when(eventPersistence)
+        .persistEvents(any(), any());
+    doThrow(new CTPException(Fault.SYSTEM_ERROR, "single failed"))
+        .when(eventPersistence)
+        .persistEvent(any(), any());
+
+    send();
+    send();
+    eventPublisher.close();
+
+    assertEquals(0, counter(registry, PublisherMetrics.BACKUP));
+    assertEquals(2, counter(registry, PublisherMetrics.BACKUP_FAILED));
+  }
+
+  @Test
+  public void shouldPersistOnCallingThreadOnceClosed() throws Exception {
+    mockCircuitBreakerFailure(
+        CallNotPermittedException.createCallNotPermittedException(
+            io.github.resilience4j.circuitbreaker.CircuitBreaker.ofDefaults("test")));
+    eventPublisher.close();
+
+    send();
+
+    verify(eventPersistence).persistEvent(eq(TopicType.EQ_LAUNCH), any());
+    verify(eventPersistence, never()).persistEvents(any(), any());
+  }
+
+  @Test
+  public void shouldPersistImmediatelyWhenCallFailsWithCircuitClosed() throws Exception {
+    mockCircuitBreakerFailure(new RuntimeException("Publish fail"));
+
+    send();
+
+    assertFalse(eventPublisher.isCircuitOpen());
+    verify(eventPersistence).persistEvent(eq(TopicType.EQ_LAUNCH), any());
+  }
+
+  @Test
+  public void shouldRejectDegradedModeWithoutCircuitBreaker() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            EventPublisher.builder()
+                .eventSender(sender)
+                .eventPersistence(eventPersistence)
+                .degradedModeConfig(degradedModeConfig)
+                .build());
+  }
+
+  private EventPublisher createPublisher(SimpleMeterRegistry registry) {
+    return EventPublisher.builder()
+        .eventSender(sender)
+        .eventPersistence(eventPersistence)
+        .circuitBreaker(circuitBreaker)
+        .degradedModeConfig(degradedModeConfig)
+        .meterRegistry(registry)
+        .build();
+  }
+
+  private static double counter(SimpleMeterRegistry registry, String name) {
+    return registry
+        .get(name)
+        .tags("topicType", TopicType.EQ_LAUNCH.name(), "eventTopic", "event_eq-launch")
+        .counter()
+        .count();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void mockCircuitBreakerFailure(Throwable failure) {
+    doAnswer(invocation -> ((Function<Throwable, Object>) invocation.getArgument(1)).apply(failure))
+        .when(circuitBreaker)
+        .run(any(), any());
+  }
+
+  private void send() {
+    eventPublisher.sendEvent(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+  }
+}
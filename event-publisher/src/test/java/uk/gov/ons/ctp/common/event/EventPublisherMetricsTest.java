@@ -0,0 +1,136 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.event.model.EqLaunch;
+import uk.gov.ons.ctp.common.event.persistence.FirestoreEventPersistence;
+
+/** EventPublisher tests for publishing metrics. */
+@ExtendWith(MockitoExtension.class)
+public class EventPublisherMetricsTest {
+
+  @Mock private EventSender sender;
+  @Mock private FirestoreEventPersistence eventPersistence;
+
+  private MeterRegistry registry = new SimpleMeterRegistry();
+  private EventPublisher eventPublisher;
+  private EqLaunch eqLaunch;
+
+  @BeforeEach
+  public void setup() {
+    eventPublisher =
+        EventPublisher.builder()
+            .eventSender(sender)
+            .eventPersistence(eventPersistence)
+            .meterRegistry(registry)
+            .build();
+    eqLaunch = FixtureHelper.loadPackageFixtures(EqLaunch[].class).get(0);
+  }
+
+  @Test
+  public void shouldRecordSuccessfulPublish() {
+    send();
+
+    assertEquals(1, timerCount(PublisherMetrics.BUILD));
+    assertEquals(1, timerCount(PublisherMetrics.PUBLISH));
+    assertEquals(1, counter(PublisherMetrics.PUBLISHED));
+    assertEquals(0, counter(PublisherMetrics.FAILED));
+    assertEquals(0, registry.get(PublisherMetrics.IN_FLIGHT).gauge().value());
+    assertEquals(0, registry.get(PublisherMetrics.CIRCUIT_OPEN).gauge().value());
+  }
+
+  @Test
+  public void shouldRecordBackupOfFailedPublish() {
+    doThrow(new RuntimeException("pubsub down")).when(sender).sendEvent(any(), any());
+
+    send();
+
+    assertEquals(0, counter(PublisherMetrics.PUBLISHED));
+    assertEquals(1, counter(PublisherMetrics.FAILED));
+    assertEquals(1, counter(PublisherMetrics.BACKUP));
+    assertEquals(1, timerCount(PublisherMetrics.PERSIST));
+  }
+
+  @Test
+  public void shouldRecordFailedBackup() throws Exception {
+    doThrow(new RuntimeException("pubsub down")).when(sender).sendEvent(any(), any());
+    doThrow(new CTPException(Fault.SYSTEM_ERROR, "firestore down"))
+        .when(eventPersistence)
+        .persistEvent(any(), any());
+
+    assertThrows(EventPublishException.class, this::send);
+
+    assertEquals(1, counter(PublisherMetrics.FAILED));
+    assertEquals(0, counter(PublisherMetrics.BACKUP));
+    assertEquals(1, counter(PublisherMetrics.BACKUP_FAILED));
+  }
+
+  @Test
+  public void shouldTrackAsyncPublishInFlight() {
+    CompletableFuture<Void> ack = new CompletableFuture<>();
+    when(sender.sendEventAsync(eq(EventTopic.EQ_LAUNCH), any())).thenReturn(ack);
+
+    CompletableFuture<?> result =
+        eventPublisher.sendEventAsync(
+            TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+    assertEquals(1, registry.get(PublisherMetrics.IN_FLIGHT).gauge().value());
+
+    ack.complete(null);
+    result.join();
+    assertEquals(0, registry.get(PublisherMetrics.IN_FLIGHT).gauge().value());
+    assertEquals(1, counter(PublisherMetrics.PUBLISHED));
+  }
+
+  private void send() {
+    eventPublisher.sendEvent(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+  }
+
+  private long timerCount(String name) {
+    return registry.get(name).tag("topicType", TopicType.EQ_LAUNCH.name()).timer().count();
+  }
+
+  @Test
+  public void shouldReportInFlightOfEachPublisherOnSharedRegistry() {
+    EventSender otherSender = mock(EventSender.class);
+    EventPublisher other =
+        EventPublisher.builder().eventSender(otherSender).meterRegistry(registry).build();
+    CompletableFuture<Void> ack = new CompletableFuture<>();
+    when(otherSender.sendEventAsync(eq(EventTopic.EQ_LAUNCH), any())).thenReturn(ack);
+
+    other.sendEventAsync(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+
+    double total =
+        registry.get(PublisherMetrics.IN_FLIGHT).gauges().stream().mapToDouble(Gauge::value).sum();
+    assertEquals(2, registry.get(PublisherMetrics.IN_FLIGHT).gauges().size());
+    assertEquals(1, total);
+    ack.complete(null);
+  }
+
+  private double counter(String name) {
+    return registry
+        .get(name)
+        .tags("topicType", TopicType.EQ_LAUNCH.name(), "eventTopic", "event_eq-launch")
+        .counter()
+        .count();
+  }
+}
@@ -0,0 +1,225 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.event.OutboxConfig.BackpressurePolicy;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+import uk.gov.ons.ctp.common.event.model.CaseUpdate;
+import uk.gov.ons.ctp.common.event.model.EqLaunch;
+import uk.gov.ons.ctp.common.event.model.EqLaunchEvent;
+import uk.gov.ons.ctp.common.event.persistence.FirestoreEventPersistence;
+
+/** EventPublisher tests for outbox mode. */
+@ExtendWith(MockitoExtension.class)
+public class EventPublisherOutboxTest {
+
+  @Mock private EventSender sender;
+  @Mock private FirestoreEventPersistence eventPersistence;
+
+  @Captor private ArgumentCaptor<EqLaunchEvent> eqLaunchedEventCaptor;
+
+  private OutboxConfig outboxConfig = new OutboxConfig();
+  private EventPublisher eventPublisher;
+  private EqLaunch eqLaunch;
+
+  private CountDownLatch senderStarted = new CountDownLatch(1);
+  private CountDownLatch releaseSender = new CountDownLatch(1);
+
+  @BeforeEach
+  public void setup() {
+    eqLaunch = FixtureHelper.loadPackageFixtures(EqLaunch[].class).get(0);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    releaseSender.countDown();
+    eventPublisher.close();
+  }
+
+  @Test
+  public void shouldPublishFromWorkerThread() throws Exception {
+    createPublisher(4, 2, BackpressurePolicy.BLOCK);
+
+    UUID messageId = send();
+
+    verify(sender, timeout(5000))
+        .sendEvent(eq(EventTopic.EQ_LAUNCH), eqLaunchedEventCaptor.capture());
+    assertEquals(messageId, eqLaunchedEventCaptor.getValue().getHeader().getMessageId());
+  }
+
+  @Test
+  public void shouldPersistWhenWorkerPublishFails() throws Exception {
+    createPublisher(4, 1, BackpressurePolicy.BLOCK);
+    doThrow(new RuntimeException("Publish fail")).when(sender).sendEvent(any(), any());
+
+    send();
+
+    verify(eventPersistence, timeout(5000)).persistEvent(eq(TopicType.EQ_LAUNCH), any());
+  }
+
+  @Test
+  public void shouldFailFastWhenFull() throws Exception {
+    createPublisher(1, 1, BackpressurePolicy.FAIL_FAST);
+    fillOutbox();
+
+    assertThrows(EventPublishException.class, this::send);
+  }
+
+  @Test
+  public void shouldSpillToPersistenceWhenFull() throws Exception {
+    createPublisher(1, 1, BackpressurePolicy.SPILL);
+    fillOutbox();
+
+    UUID messageId = send();
+
+    ArgumentCaptor<EqLaunchEvent> persisted = ArgumentCaptor.forClass(EqLaunchEvent.class);
+    verify(eventPersistence).persistEvent(eq(TopicType.EQ_LAUNCH), persisted.capture());
+    assertEquals(messageId, persisted.getValue().getHeader().getMessageId());
+  }
+
+  @Test
+  public void shouldPublishQueuedEventsOnClose() throws Exception {
+    createPublisher(10, 1, BackpressurePolicy.BLOCK);
+    fillOutbox();
+    send();
+
+    releaseSender.countDown();
+    eventPublisher.close();
+
+    verify(sender, times(3)).sendEvent(any(), any());
+    assertThrows(EventPublishException.class, this::send);
+  }
+
+  @Test
+  public void shouldPublishEventsForSameCaseInOrderWhenOrderedByKey() throws Exception {
+    outboxConfig.setOrderedByKey(true);
+    createPublisher(100, 4, BackpressurePolicy.BLOCK);
+    Map<String, List<String>> published = new ConcurrentHashMap<>();
+    doAnswer(
+            invocation -> {
+              CaseUpdate caseUpdate =
+                  invocation.<CaseEvent>getArgument(1).getPayload().getCaseUpdate();
+              published
+                  .computeIfAbsent(
+                      caseUpdate.getCaseId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                  .add(caseUpdate.getSurveyId());
+              return null;
+            })
+        .when(sender)
+        .sendEvent(any(), any());
+
+    for (int i = 0; i < 40; i++) {
+      CaseUpdate caseUpdate = FixtureHelper.loadPackageFixtures(CaseUpdate[].class).get(0);
+      caseUpdate.setCaseId("case-" + (i % 4));
+      caseUpdate.setSurveyId(String.format("%02d", i));
+      eventPublisher.sendEvent(
+          TopicType.CASE_UPDATE, Source.RESPONDENT_HOME, Channel.RH, caseUpdate);
+    }
+    eventPublisher.close();
+
+    assertEquals(4, published.size());
+    for (List<String> sequence : published.values()) {
+      List<String> sorted = new ArrayList<>(sequence);
+      Collections.sort(sorted);
+      assertEquals(10, sequence.size());
+      assertEquals(sorted, sequence);
+    }
+  }
+
+  @Test
+  public void shouldPublishEveryAcceptedEventWhenClosedWhileSending() throws Exception {
+    createPublisher(1000, 2, BackpressurePolicy.BLOCK);
+    AtomicInteger published = new AtomicInteger();
+    doAnswer(invocation -> published.incrementAndGet()).when(sender).sendEvent(any(), any());
+    AtomicInteger accepted = new AtomicInteger();
+    AtomicBoolean running = new AtomicBoolean(true);
+    List<Thread> producers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread producer =
+          new Thread(
+              () -> {
+                while (running.get()) {
+                  try {
+                    send();
+                    accepted.incrementAndGet();
+                  } catch (EventPublishException e) {
+                    running.set(false);
+                  }
+                }
+              });
+      producers.add(producer);
+      producer.start();
+    }
+
+    Thread.sleep(50);
+    eventPublisher.close();
+    running.set(false);
+    for (Thread producer : producers) {
+      producer.join();
+    }
+
+    assertEquals(accepted.get(), published.get());
+  }
+
+  private void createPublisher(int capacity, int workers, BackpressurePolicy policy) {
+    outboxConfig.setCapacity(capacity);
+    outboxConfig.setWorkerCount(workers);
+    outboxConfig.setBackpressurePolicy(policy);
+    eventPublisher =
+        EventPublisher.builder()
+            .eventSender(sender)
+            .eventPersistence(eventPersistence)
+            .outboxConfig(outboxConfig)
+            .build();
+  }
+
+  /** Block the single worker in the sender, then queue one more event. */
+  private void fillOutbox() throws Exception {
+    doAnswer(
+            invocation -> {
+              senderStarted.countDown();
+              releaseSender.await();
+              return null;
+            })
+        .when(sender)
+        .sendEvent(any(), any());
+    send();
+    assertTrue(senderStarted.await(5, TimeUnit.SECONDS));
+    send();
+  }
+
+  private UUID send() {
+    return eventPublisher.sendEvent(
+        TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+  }
+}
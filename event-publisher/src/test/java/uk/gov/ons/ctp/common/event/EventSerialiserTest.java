@@ -0,0 +1,99 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.google.common.reflect.ClassPath;
+import com.google.protobuf.ByteString;
+import java.lang.reflect.Array;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.jackson.CustomDateSerialiser;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+public class EventSerialiserTest {
+
+  private ObjectMapper mapper = new CustomObjectMapper();
+  private ObjectMapper reflectiveMapper = reflectiveMapper();
+  private EventSerialiser serialiser = new EventSerialiser();
+
+  @Test
+  public void shouldSerialiseAllEventsAsObjectMapperDoes() throws Exception {
+    ClassPath cp = ClassPath.from(this.getClass().getClassLoader());
+    var classInfos = cp.getTopLevelClasses(this.getClass().getPackageName() + ".model");
+    for (var inf : classInfos) {
+      String className = inf.getSimpleName();
+      if (className.endsWith("Event") && !className.equals("GenericEvent")) {
+        @SuppressWarnings("unchecked")
+        var clazz = (Class<? extends GenericEvent>) inf.load();
+        verifySerialisation(clazz);
+      }
+    }
+  }
+
+  @Test
+  public void shouldUseGeneratedAccessors() {
+    assertTrue(
+        EventObjectMapper.get().getRegisteredModuleIds().contains(BlackbirdModule.class.getName()));
+  }
+
+  @Test
+  public void shouldSerialiseLargeEvent() throws Exception {
+    CaseEvent event = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+    Map<String, String> sample = new HashMap<>();
+    for (int i = 0; i < 5000; i++) {
+      sample.put("attribute" + i, "value-" + i + "-éü");
+    }
+    event.getPayload().getCaseUpdate().setSample(sample);
+
+    // serialise twice, so the second uses the larger buffer size hint
+    for (int i = 0; i < 2; i++) {
+      ByteString bytes = serialiser.toByteString(event);
+      assertEquals(mapper.writeValueAsString(event), bytes.toStringUtf8());
+    }
+  }
+
+  private <T extends GenericEvent> void verifySerialisation(Class<T> clazz) throws Exception {
+    @SuppressWarnings("unchecked")
+    var arrClazz = (Class<T[]>) Array.newInstance(clazz, 0).getClass();
+    GenericEvent event = FixtureHelper.loadPackageFixtures(arrClazz).get(0);
+
+    ByteString bytes = serialiser.toByteString(event);
+
+    assertEquals(
+        mapper.writeValueAsString(event),
+        bytes.toStringUtf8(),
+        "Unexpected JSON for class: " + clazz.getSimpleName());
+    assertEquals(
+        reflectiveMapper.writeValueAsString(event),
+        bytes.toStringUtf8(),
+        "JSON differs from reflective serialisation for class: " + clazz.getSimpleName());
+  }
+
+  /** The configuration of CustomObjectMapper, without the modules found on the classpath. */
+  private static ObjectMapper reflectiveMapper() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    objectMapper.registerModule(new Jdk8Module());
+    objectMapper.registerModule(new ParameterNamesModule());
+    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    SimpleModule module = new SimpleModule();
+    module.addSerializer(Date.class, new CustomDateSerialiser());
+    objectMapper.registerModule(module);
+    return objectMapper;
+  }
+}
@@ -0,0 +1,152 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.domain.Channel;
+import uk.gov.ons.ctp.common.domain.Source;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+import uk.gov.ons.ctp.common.event.model.EqLaunch;
+import uk.gov.ons.ctp.common.event.persistence.EventPersistence;
+
+@ExtendWith(MockitoExtension.class)
+public class InMemoryEventSenderTest {
+
+  @Mock private EventPersistence eventPersistence;
+
+  private InMemorySenderConfig config = new InMemorySenderConfig();
+  private InMemoryEventSender sender;
+  private CaseEvent event;
+
+  @BeforeEach
+  public void setup() {
+    sender = new InMemoryEventSender(config);
+    event = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    sender.close();
+  }
+
+  @Test
+  public void shouldDeliverToEverySubscription() {
+    InMemorySubscription first = sender.subscribe(EventTopic.CASE_UPDATE);
+    InMemorySubscription second = sender.subscribe(EventTopic.CASE_UPDATE);
+    InMemorySubscription other = sender.subscribe(EventTopic.FULFILMENT);
+
+    sender.sendEvent(EventTopic.CASE_UPDATE, event);
+
+    List<PubsubMessage> messages = first.pull(10);
+    assertEquals(1, messages.size());
+    assertEquals(
+        event.getHeader().getMessageId().toString(),
+        messages.get(0).getAttributesOrThrow(PubSubMessageFactory.MESSAGE_ID));
+    assertEquals(event.getPayload().getCaseUpdate().getCaseId(), messages.get(0).getOrderingKey());
+    assertEquals(1, second.backlog());
+    assertEquals(0, other.backlog());
+    assertEquals(1, sender.getPublishedCount(EventTopic.CASE_UPDATE));
+  }
+
+  @Test
+  public void shouldStopDeliveringOnceClosed() {
+    InMemorySubscription subscription = sender.subscribe(EventTopic.CASE_UPDATE);
+    subscription.close();
+
+    sender.sendEvent(EventTopic.CASE_UPDATE, event);
+
+    assertEquals(0, subscription.backlog());
+    assertEquals(1, sender.getPublishedCount(EventTopic.CASE_UPDATE));
+  }
+
+  @Test
+  public void shouldFailWhenSubscriptionFull() {
+    config.setQueueCapacity(1);
+    sender = new InMemoryEventSender(config);
+    sender.subscribe(EventTopic.CASE_UPDATE);
+
+    sender.sendEvent(EventTopic.CASE_UPDATE, event);
+    assertThrows(
+        EventPublishException.class, () -> sender.sendEvent(EventTopic.CASE_UPDATE, event));
+  }
+
+  @Test
+  public void shouldPushToHandler() throws Exception {
+    CountDownLatch received = new CountDownLatch(3);
+    sender.subscribe(EventTopic.CASE_UPDATE, message -> received.countDown());
+
+    for (int i = 0; i < 3; i++) {
+      sender.sendEvent(EventTopic.CASE_UPDATE, event);
+    }
+
+    assertTrue(received.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldDelayAsyncSend() throws Exception {
+    sender.setLatencyMillis(200);
+    InMemorySubscription subscription = sender.subscribe(EventTopic.CASE_UPDATE);
+
+    CompletableFuture<Void> future = sender.sendEventAsync(EventTopic.CASE_UPDATE, event);
+    assertFalse(future.isDone());
+
+    future.get(5, TimeUnit.SECONDS);
+    assertEquals(1, subscription.backlog());
+  }
+
+  @Test
+  public void shouldNotSleepOnCallerWhenJitterRollsZero() throws Exception {
+    sender.setLatencyMillis(0);
+    sender.setLatencyJitterMillis(1);
+    InMemorySubscription subscription = sender.subscribe(EventTopic.CASE_UPDATE);
+
+    // an interrupted caller fails any send that sleeps, so every send must succeed
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    Thread.currentThread().interrupt();
+    try {
+      for (int i = 0; i < 50; i++) {
+        futures.add(sender.sendEventAsync(EventTopic.CASE_UPDATE, event));
+      }
+    } finally {
+      Thread.interrupted();
+    }
+
+    for (CompletableFuture<Void> future : futures) {
+      future.get(5, TimeUnit.SECONDS);
+    }
+    assertEquals(50, subscription.backlog());
+  }
+
+  @Test
+  public void shouldExercisePersistenceFallback() throws Exception {
+    sender.setFailureRate(1.0);
+    EventPublisher publisher = EventPublisher.create(sender, eventPersistence, null);
+    EqLaunch eqLaunch = FixtureHelper.loadPackageFixtures(EqLaunch[].class).get(0);
+
+    for (int i = 0; i < 5; i++) {
+      publisher.sendEvent(TopicType.EQ_LAUNCH, Source.RESPONDENT_HOME, Channel.RH, eqLaunch);
+    }
+
+    verify(eventPersistence, times(5)).persistEvent(eq(TopicType.EQ_LAUNCH), any());
+    assertEquals(0, sender.getPublishedCount(EventTopic.EQ_LAUNCH));
+  }
+}
@@ -0,0 +1,208 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class KeyedExecutorTest {
+
+  private KeyedExecutor executor;
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldRunTasksForSameKeyInOrder() throws Exception {
+    executor = new KeyedExecutor("test", 4, 1000);
+    Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      String key = "case-" + (i % 10);
+      int sequence = i;
+      executor.execute(
+          key,
+          () ->
+              seen.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>()))
+                  .add(sequence));
+    }
+
+    executor.close();
+
+    assertEquals(10, seen.size());
+    for (List<Integer> sequences : seen.values()) {
+      assertEquals(100, sequences.size());
+      for (int i = 1; i < sequences.size(); i++) {
+        assertTrue(sequences.get(i - 1) < sequences.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void shouldRunDifferentKeysInParallel() throws Exception {
+    executor = new KeyedExecutor("test", 4, 10);
+    String first = "a";
+    String second = keyOnOtherLane(first);
+    CountDownLatch bothRunning = new CountDownLatch(2);
+    CountDownLatch done = new CountDownLatch(2);
+    Runnable task =
+        () -> {
+          bothRunning.countDown();
+          try {
+            if (bothRunning.await(5, TimeUnit.SECONDS)) {
+              done.countDown();
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+
+    executor.execute(first, task);
+    executor.execute(second, task);
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldRefuseOfferWhenLaneFull() throws Exception {
+    executor = new KeyedExecutor("test", 1, 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(
+        "a",
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    assertTrue(executor.offer("a", () -> {}));
+    assertFalse(executor.offer("a", () -> {}));
+    assertEquals(1, executor.size());
+    release.countDown();
+  }
+
+  @Test
+  public void shouldCarryOnAfterFailedTask() throws Exception {
+    executor = new KeyedExecutor("test", 1, 10);
+    AtomicInteger ran = new AtomicInteger();
+
+    executor.execute(
+        "a",
+        () -> {
+          throw new IllegalStateException("failed");
+        });
+    executor.execute("a", ran::incrementAndGet);
+    executor.execute(null, ran::incrementAndGet);
+    executor.close();
+
+    assertEquals(2, ran.get());
+  }
+
+  @Test
+  public void shouldRejectTasksAfterShutdown() throws Exception {
+    executor = new KeyedExecutor("test", 2, 10);
+    executor.shutdown();
+
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertThrows(RejectedExecutionException.class, () -> executor.offer("a", () -> {}));
+  }
+
+  @Test
+  public void shouldRunEveryAcceptedTaskWhenShutDownWhileSubmitting() throws Exception {
+    executor = new KeyedExecutor("test", 2, 10);
+    AtomicInteger accepted = new AtomicInteger();
+    AtomicInteger ran = new AtomicInteger();
+    List<Thread> producers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      String key = "case-" + i;
+      Thread producer =
+          new Thread(
+              () -> {
+                try {
+                  while (true) {
+                    executor.execute(key, ran::incrementAndGet);
+                    accepted.incrementAndGet();
+                  }
+                } catch (RejectedExecutionException | InterruptedException e) {
+                  // shut down
+                }
+              });
+      producer.start();
+      producers.add(producer);
+    }
+    Thread.sleep(50);
+
+    executor.shutdown();
+    for (Thread producer : producers) {
+      producer.join(5000);
+      assertFalse(producer.isAlive());
+    }
+
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(accepted.get(), ran.get());
+  }
+
+  @Test
+  public void shouldRejectTaskWaitingForSpaceOnShutdown() throws Exception {
+    executor = new KeyedExecutor("test", 1, 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(
+        "a",
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    executor.execute("a", () -> {});
+
+    CountDownLatch rejected = new CountDownLatch(1);
+    Thread waiting =
+        new Thread(
+            () -> {
+              try {
+                executor.execute("a", () -> {});
+              } catch (RejectedExecutionException e) {
+                rejected.countDown();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    waiting.start();
+    executor.shutdown();
+
+    assertTrue(rejected.await(5, TimeUnit.SECONDS));
+    release.countDown();
+  }
+
+  private String keyOnOtherLane(String key) {
+    for (int i = 0; ; i++) {
+      String other = key + i;
+      if (executor.laneOf(other) != executor.laneOf(key)) {
+        return other;
+      }
+    }
+  }
+}
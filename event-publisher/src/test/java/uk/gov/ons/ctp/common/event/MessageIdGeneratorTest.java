@@ -0,0 +1,37 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class MessageIdGeneratorTest {
+
+  @Test
+  public void shouldGenerateRandomIds() {
+    UUID id = MessageIdGenerator.RANDOM.generate(System.currentTimeMillis());
+
+    assertEquals(4, id.version());
+  }
+
+  @Test
+  public void shouldGenerateTimeOrderedIds() {
+    Set<UUID> ids = new HashSet<>();
+    UUID previous = null;
+    for (long time = 1_600_000_000_000L; time < 1_600_000_001_000L; time++) {
+      UUID id = MessageIdGenerator.TIME_ORDERED.generate(time);
+      assertEquals(7, id.version());
+      assertEquals(2, id.variant());
+      assertEquals(time, id.getMostSignificantBits() >>> 16);
+      if (previous != null) {
+        assertTrue(id.toString().compareTo(previous.toString()) > 0);
+      }
+      ids.add(id);
+      previous = id;
+    }
+    assertEquals(1000, ids.size());
+  }
+}
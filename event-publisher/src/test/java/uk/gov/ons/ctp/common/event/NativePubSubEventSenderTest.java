@@ -0,0 +1,128 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+
+@ExtendWith(MockitoExtension.class)
+public class NativePubSubEventSenderTest {
+
+  @Mock private Publisher publisher;
+  @Captor private ArgumentCaptor<PubsubMessage> messageCaptor;
+
+  private int createCount;
+  private NativePubSubEventSender sender;
+  private CaseEvent event;
+
+  @BeforeEach
+  public void setup() {
+    PublisherPool pool =
+        new PublisherPool(
+            topic -> {
+              createCount++;
+              return publisher;
+            },
+            5);
+    sender = new NativePubSubEventSender(pool, true);
+    event = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+  }
+
+  @Test
+  public void shouldReusePublisherAcrossSends() throws Exception {
+    when(publisher.publish(any())).thenReturn(ApiFutures.immediateFuture("1"));
+
+    sender.sendEvent(EventTopic.CASE_UPDATE, event);
+    sender.sendEvent(EventTopic.CASE_UPDATE, event);
+    sender.sendEvent(EventTopic.CASE_UPDATE, event);
+
+    assertEquals(1, createCount);
+    verify(publisher, times(3)).publish(any(PubsubMessage.class));
+
+    sender.close();
+    verify(publisher).shutdown();
+  }
+
+  @Test
+  public void shouldCompleteAsyncSendWhenAcknowledged() throws Exception {
+    SettableApiFuture<String> ack = SettableApiFuture.create();
+    when(publisher.publish(any())).thenReturn(ack);
+
+    CompletableFuture<Void> future = sender.sendEventAsync(EventTopic.CASE_UPDATE, event);
+    assertFalse(future.isDone());
+
+    ack.set("1");
+    assertTrue(future.isDone());
+    assertFalse(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void shouldFailAsyncSendWhenPublishFails() {
+    when(publisher.publish(any()))
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("Publish fail")));
+
+    CompletableFuture<Void> future = sender.sendEventAsync(EventTopic.CASE_UPDATE, event);
+
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertEquals("Publish fail", e.getCause().getMessage());
+  }
+
+  @Test
+  public void shouldPublishWithAttributesAndOrderingKey() throws Exception {
+    when(publisher.publish(any())).thenReturn(ApiFutures.immediateFuture("1"));
+
+    sender.sendEvent(EventTopic.CASE_UPDATE, event);
+
+    verify(publisher).publish(messageCaptor.capture());
+    PubsubMessage message = messageCaptor.getValue();
+    assertEquals(event.getPayload().getCaseUpdate().getCaseId(), message.getOrderingKey());
+    assertEquals("CASE_UPDATE", message.getAttributesOrThrow(PubSubMessageFactory.TOPIC_TYPE));
+    assertEquals(
+        event.getHeader().getMessageId().toString(),
+        message.getAttributesOrThrow(PubSubMessageFactory.MESSAGE_ID));
+  }
+
+  @Test
+  public void shouldResumeOrderingKeyWhenPublishFails() {
+    when(publisher.publish(any()))
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("Publish fail")));
+
+    CompletableFuture<Void> future = sender.sendEventAsync(EventTopic.CASE_UPDATE, event);
+
+    assertTrue(future.isCompletedExceptionally());
+    verify(publisher).resumePublish(event.getPayload().getCaseUpdate().getCaseId());
+  }
+
+  @Test
+  public void shouldFlushBatchAfterBulkSend() throws Exception {
+    when(publisher.publish(any())).thenReturn(ApiFutures.immediateFuture("1"));
+
+    List<CompletableFuture<Void>> futures =
+        sender.sendEventsAsync(EventTopic.CASE_UPDATE, List.of(event, event, event));
+
+    assertEquals(3, futures.size());
+    verify(publisher, times(3)).publish(any(PubsubMessage.class));
+    verify(publisher).publishAllOutstanding();
+  }
+}
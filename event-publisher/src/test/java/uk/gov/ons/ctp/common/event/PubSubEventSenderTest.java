@@ -13,7 +13,10 @@ import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import com.google.common.reflect.ClassPath;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.lang.reflect.Array;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,6 +27,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.util.concurrent.ListenableFuture;
 import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
 import uk.gov.ons.ctp.common.event.model.GenericEvent;
 import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 
@@ -78,6 +82,65 @@ public class PubSubEventSenderTest {
     }
   }
 
+  @Test
+  public void shouldSendEventAsync() throws Exception {
+    GenericEvent event = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+
+    sender.sendEventAsync(ANY_TOPIC, event).get();
+
+    verify(template).publish(eq(ANY_TOPIC.getTopic()), pubsubMsgCaptor.capture());
+    JsonNode node = mapper.readTree(pubsubMsgCaptor.getValue().getData().toStringUtf8());
+    assertEquals(FixtureHelper.loadPackageObjectNode("CaseEvent"), node);
+  }
+
+  @Test
+  public void shouldSendAttributesWithoutOrderingKeyByDefault() throws Exception {
+    CaseEvent event = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+
+    sender.sendEvent(ANY_TOPIC, event);
+
+    verify(template).publish(eq(ANY_TOPIC.getTopic()), pubsubMsgCaptor.capture());
+    PubsubMessage message = pubsubMsgCaptor.getValue();
+    assertEquals("", message.getOrderingKey());
+    assertEquals(
+        Map.of(
+            PubSubMessageFactory.TOPIC_TYPE, "CASE_UPDATE",
+            PubSubMessageFactory.SOURCE, "RESPONDENT_HOME",
+            PubSubMessageFactory.CHANNEL, "RH",
+            PubSubMessageFactory.MESSAGE_ID, "191f7c80-4774-4e1b-a52c-ef8c209b90e4",
+            PubSubMessageFactory.CORRELATION_ID, "3883af91-0052-4497-9805-3238544fcf8a"),
+        message.getAttributesMap());
+  }
+
+  @Test
+  public void shouldSendOrderingKeyWhenOrderingEnabled() throws Exception {
+    sender = new PubSubEventSender(template, ANY_TIMEOUT, true);
+    CaseEvent event = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+
+    sender.sendEvent(ANY_TOPIC, event);
+
+    verify(template).publish(eq(ANY_TOPIC.getTopic()), pubsubMsgCaptor.capture());
+    assertEquals(
+        event.getPayload().getCaseUpdate().getCaseId(),
+        pubsubMsgCaptor.getValue().getOrderingKey());
+  }
+
+  @Test
+  public void shouldTimeSerialisationOnceBound() throws Exception {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    sender.bindTo(registry);
+
+    sender.sendEvent(ANY_TOPIC, FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0));
+
+    assertEquals(
+        1,
+        registry
+            .get(PublisherMetrics.SERIALISE)
+            .tag("topicType", TopicType.CASE_UPDATE.name())
+            .timer()
+            .count());
+  }
+
   private <T extends GenericEvent> void verifyEventSentIsExpectedJson(Class<T> clazz)
       throws Exception {
     @SuppressWarnings("unchecked")
@@ -0,0 +1,123 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheckConfig;
+import uk.gov.ons.ctp.common.event.claimcheck.FileSystemBlobStore;
+import uk.gov.ons.ctp.common.event.model.CollectionExerciseUpdateEvent;
+import uk.gov.ons.ctp.common.event.model.EqLaunchEvent;
+import uk.gov.ons.ctp.common.event.model.FulfilmentEvent;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.model.InvalidCaseEvent;
+import uk.gov.ons.ctp.common.event.model.NewCaseEvent;
+import uk.gov.ons.ctp.common.event.model.RefusalEvent;
+import uk.gov.ons.ctp.common.event.model.SurveyUpdateEvent;
+import uk.gov.ons.ctp.common.event.model.UacEvent;
+
+public class PubSubMessageFactoryTest {
+
+  private PubSubMessageFactory factory = new PubSubMessageFactory(new EventSerialiser(), true);
+
+  @Test
+  public void shouldKeyCaseEventsByCaseId() {
+    FulfilmentEvent fulfilment = load(FulfilmentEvent[].class);
+    assertOrderingKey(fulfilment.getPayload().getFulfilmentRequest().getCaseId(), fulfilment);
+
+    RefusalEvent refusal = load(RefusalEvent[].class);
+    assertOrderingKey(refusal.getPayload().getRefusal().getCaseId().toString(), refusal);
+
+    UacEvent uac = load(UacEvent[].class);
+    assertOrderingKey(uac.getPayload().getUacUpdate().getCaseId(), uac);
+
+    NewCaseEvent newCase = load(NewCaseEvent[].class);
+    assertOrderingKey(newCase.getPayload().getNewCase().getCaseId().toString(), newCase);
+
+    InvalidCaseEvent invalidCase = load(InvalidCaseEvent[].class);
+    assertOrderingKey(
+        invalidCase.getPayload().getInvalidCase().getCaseId().toString(), invalidCase);
+  }
+
+  @Test
+  public void shouldKeySurveyAndCollectionExerciseEvents() {
+    SurveyUpdateEvent survey = load(SurveyUpdateEvent[].class);
+    assertOrderingKey(survey.getPayload().getSurveyUpdate().getSurveyId(), survey);
+
+    CollectionExerciseUpdateEvent collex = load(CollectionExerciseUpdateEvent[].class);
+    assertOrderingKey(
+        collex.getPayload().getCollectionExerciseUpdate().getCollectionExerciseId(), collex);
+  }
+
+  @Test
+  public void shouldNotKeyUnorderedEvents() {
+    assertOrderingKey("", load(EqLaunchEvent[].class));
+  }
+
+  @Test
+  public void shouldNotKeyWhenOrderingDisabled() {
+    factory = new PubSubMessageFactory(new EventSerialiser(), false);
+    assertOrderingKey("", load(FulfilmentEvent[].class));
+  }
+
+  @Test
+  public void shouldOmitAttributesMissingFromHeader() {
+    FulfilmentEvent event = load(FulfilmentEvent[].class);
+    event.getHeader().setCorrelationId(null);
+    event.getHeader().setChannel(null);
+
+    PubsubMessage message = factory.toMessage(event);
+
+    assertEquals("FULFILMENT", message.getAttributesOrThrow(PubSubMessageFactory.TOPIC_TYPE));
+    assertFalse(message.containsAttributes(PubSubMessageFactory.CORRELATION_ID));
+    assertFalse(message.containsAttributes(PubSubMessageFactory.CHANNEL));
+  }
+
+  @Test
+  public void shouldClaimCheckOversizedEvents(@TempDir Path directory) throws Exception {
+    ClaimCheckConfig config = new ClaimCheckConfig();
+    config.setThresholdBytes(100);
+    ClaimCheck claimCheck = new ClaimCheck(new FileSystemBlobStore(directory), config);
+    factory.setClaimCheck(claimCheck);
+    SurveyUpdateEvent event = load(SurveyUpdateEvent[].class);
+    ByteString inline = new EventSerialiser().toByteString(event);
+
+    PubsubMessage message = factory.toMessage(event);
+
+    assertTrue(message.containsAttributes(PubSubMessageFactory.CLAIM_CHECK));
+    assertTrue(message.getData().size() < inline.size());
+    assertEquals("SURVEY_UPDATE", message.getAttributesOrThrow(PubSubMessageFactory.TOPIC_TYPE));
+    assertEquals(inline, PubSubMessageFactory.bodyOf(message, claimCheck));
+    assertThrows(EventPublishException.class, () -> PubSubMessageFactory.bodyOf(message, null));
+  }
+
+  @Test
+  public void shouldSendSmallEventsInline(@TempDir Path directory) throws Exception {
+    ClaimCheck claimCheck =
+        new ClaimCheck(new FileSystemBlobStore(directory), new ClaimCheckConfig());
+    factory.setClaimCheck(claimCheck);
+
+    PubsubMessage message = factory.toMessage(load(FulfilmentEvent[].class));
+
+    assertFalse(message.containsAttributes(PubSubMessageFactory.CLAIM_CHECK));
+    assertEquals(message.getData(), PubSubMessageFactory.bodyOf(message, claimCheck));
+  }
+
+  private void assertOrderingKey(String expected, GenericEvent event) {
+    assertEquals(expected, factory.toMessage(event).getOrderingKey());
+  }
+
+  private static <T extends GenericEvent> T load(Class<T[]> clazz) {
+    List<T> events = FixtureHelper.loadPackageFixtures(clazz);
+    return events.get(0);
+  }
+}
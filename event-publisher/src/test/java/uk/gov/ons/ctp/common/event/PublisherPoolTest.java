@@ -0,0 +1,129 @@
+package uk.gov.ons.ctp.common.event;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.pubsub.v1.Publisher;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PublisherPoolTest {
+
+  private Map<EventTopic, Publisher> created = new EnumMap<>(EventTopic.class);
+  private AtomicInteger createCount = new AtomicInteger();
+  private PublisherPool pool;
+
+  @BeforeEach
+  public void setup() {
+    pool =
+        new PublisherPool(
+            topic -> {
+              createCount.incrementAndGet();
+              Publisher publisher = mock(Publisher.class);
+              created.put(topic, publisher);
+              return publisher;
+            },
+            5);
+  }
+
+  @Test
+  public void shouldCreatePublisherLazilyAndReuseIt() {
+    Publisher first = pool.get(EventTopic.CASE_UPDATE);
+    Publisher second = pool.get(EventTopic.CASE_UPDATE);
+    assertSame(first, second);
+    assertSame(created.get(EventTopic.CASE_UPDATE), first);
+    assertSame(1, createCount.get());
+  }
+
+  @Test
+  public void shouldCreatePublisherPerTopic() {
+    Publisher caseUpdate = pool.get(EventTopic.CASE_UPDATE);
+    Publisher uacUpdate = pool.get(EventTopic.UAC_UPDATE);
+    assertNotSame(caseUpdate, uacUpdate);
+    assertSame(2, createCount.get());
+  }
+
+  @Test
+  public void shouldShutdownAllPublishersOnClose() throws Exception {
+    Publisher caseUpdate = pool.get(EventTopic.CASE_UPDATE);
+    Publisher uacUpdate = pool.get(EventTopic.UAC_UPDATE);
+    when(caseUpdate.awaitTermination(anyLong(), any())).thenReturn(true);
+
+    pool.close();
+
+    verify(caseUpdate).shutdown();
+    verify(caseUpdate).awaitTermination(eq(5L), any());
+    verify(uacUpdate).shutdown();
+    verify(uacUpdate).awaitTermination(eq(5L), any());
+  }
+
+  @Test
+  public void shouldRejectUseAfterClose() throws Exception {
+    pool.close();
+    assertThrows(EventPublishException.class, () -> pool.get(EventTopic.CASE_UPDATE));
+  }
+
+  @Test
+  public void shouldShutdownPublisherCreatedWhileClosing() throws Exception {
+    CountDownLatch creating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Publisher publisher = mock(Publisher.class);
+    PublisherPool slowPool =
+        new PublisherPool(
+            topic -> {
+              creating.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              return publisher;
+            },
+            5);
+
+    CompletableFuture<Publisher> getter =
+        CompletableFuture.supplyAsync(() -> slowPool.get(EventTopic.CASE_UPDATE));
+    assertTrue(creating.await(5, TimeUnit.SECONDS));
+    CompletableFuture<Void> closer =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                slowPool.close();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    release.countDown();
+
+    assertSame(publisher, getter.get(5, TimeUnit.SECONDS));
+    closer.get(5, TimeUnit.SECONDS);
+    verify(publisher).shutdown();
+    assertThrows(EventPublishException.class, () -> slowPool.get(EventTopic.CASE_UPDATE));
+  }
+
+  @Test
+  public void shouldWrapPublisherCreationFailure() {
+    PublisherPool failingPool =
+        new PublisherPool(
+            topic -> {
+              throw new IOException("no channel");
+            },
+            5);
+    assertThrows(EventPublishException.class, () -> failingPool.get(EventTopic.CASE_UPDATE));
+  }
+}
@@ -0,0 +1,80 @@
+package uk.gov.ons.ctp.common.event.claimcheck;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.ons.ctp.common.event.EventPublishException;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck.Ticket;
+
+public class ClaimCheckTest {
+
+  @TempDir Path directory;
+
+  private FileSystemBlobStore blobStore;
+  private ClaimCheck claimCheck;
+  private byte[] data = "{\"large\":\"event\"}".getBytes(StandardCharsets.UTF_8);
+
+  @BeforeEach
+  public void setup() throws Exception {
+    ClaimCheckConfig config = new ClaimCheckConfig();
+    config.setThresholdBytes(10);
+    blobStore = new FileSystemBlobStore(directory.resolve("blobs"));
+    claimCheck = new ClaimCheck(blobStore, config);
+  }
+
+  @Test
+  public void shouldCheckContentInAndOut() {
+    Ticket ticket = claimCheck.checkIn(data);
+
+    assertEquals(64, ticket.getSha256().length());
+    assertArrayEquals(data, claimCheck.checkOut(ticket));
+  }
+
+  @Test
+  public void shouldReuseBlobForSameContent() throws Exception {
+    Ticket first = claimCheck.checkIn(data);
+    Ticket second = claimCheck.checkIn(data);
+
+    assertEquals(first, second);
+    try (var files = Files.walk(directory)) {
+      assertEquals(1, files.filter(Files::isRegularFile).count());
+    }
+  }
+
+  @Test
+  public void shouldRejectContentNotMatchingHash() throws Exception {
+    Ticket ticket = claimCheck.checkIn(data);
+    blobStore.delete(ticket.getReference());
+    blobStore.put(ticket.getReference(), "tampered".getBytes(StandardCharsets.UTF_8));
+
+    assertThrows(EventPublishException.class, () -> claimCheck.checkOut(ticket));
+  }
+
+  @Test
+  public void shouldFailWhenBlobMissing() {
+    Ticket ticket = new Ticket("missing", "0");
+
+    assertThrows(EventPublishException.class, () -> claimCheck.checkOut(ticket));
+  }
+
+  @Test
+  public void shouldOnlyCheckInOversizedContent() {
+    assertFalse(claimCheck.isOversized(10));
+    assertTrue(claimCheck.isOversized(11));
+  }
+
+  @Test
+  public void shouldRejectKeysOutsideDirectory() {
+    assertThrows(IllegalArgumentException.class, () -> blobStore.get("../escape"));
+    assertThrows(IllegalArgumentException.class, () -> blobStore.get(".."));
+  }
+}
@@ -0,0 +1,149 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
+import uk.gov.ons.ctp.common.event.EventPublishException;
+import uk.gov.ons.ctp.common.event.EventPublisher;
+import uk.gov.ons.ctp.common.event.TopicType;
+
+@ExtendWith(MockitoExtension.class)
+public class EventBackupReplayerTest {
+  private static final String SCHEMA = "testing-backup";
+  private static final String CHECKPOINT_SCHEMA = SCHEMA + "-checkpoint";
+
+  @Mock private RetryableCloudDataStore cloudDataStore;
+  @Mock private EventPublisher eventPublisher;
+
+  private EventReplayConfig config = new EventReplayConfig();
+  private EventBackupReplayer replayer;
+  private List<EventBackupData> backups = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() throws Exception {
+    config.setPageSize(2);
+    config.setParallelism(2);
+    config.setPermitsPerSecond(1000);
+    replayer = new EventBackupReplayer(cloudDataStore, SCHEMA, eventPublisher, config);
+    for (int i = 0; i < 3; i++) {
+      backups.add(
+          new EventBackupData(TopicType.CASE_UPDATE, 1000L + i, null, "id-" + i, "{}", null, null));
+    }
+  }
+
+  @Test
+  public void shouldReplayAllPagesAndMarkSent() throws Exception {
+    mockPages();
+
+    ReplayResult result = replayer.replay();
+
+    assertEquals(3, result.getReplayed());
+    assertTrue(result.isComplete());
+    for (EventBackupData backup : backups) {
+      verify(eventPublisher).sendEvent(backup);
+      verify(cloudDataStore).storeObject(SCHEMA, backup.getId(), backup, backup.getId());
+      assertTrue(backup.getMessageSentDateTimeInMillis() != null);
+    }
+    verify(cloudDataStore)
+        .storeObject(CHECKPOINT_SCHEMA, "replay", new ReplayCheckpoint(1002L, "id-2"), "replay");
+  }
+
+  @Test
+  public void shouldDeleteOnSuccess() throws Exception {
+    config.setDeleteOnSuccess(true);
+    mockPages();
+
+    replayer.replay();
+
+    for (EventBackupData backup : backups) {
+      verify(cloudDataStore).deleteObject(SCHEMA, backup.getId());
+      verify(cloudDataStore, never()).storeObject(eq(SCHEMA), any(), any(), any());
+    }
+  }
+
+  @Test
+  public void shouldSkipBackupsAlreadySent() throws Exception {
+    backups.get(1).setMessageSentDateTimeInMillis(2000L);
+    mockPages();
+
+    ReplayResult result = replayer.replay();
+
+    assertEquals(2, result.getReplayed());
+    assertEquals(1, result.getSkipped());
+    verify(eventPublisher, never()).sendEvent(backups.get(1));
+  }
+
+  @Test
+  public void shouldStopAndCheckpointBeforeFailure() throws Exception {
+    when(cloudDataStore.listPage(
+            EventBackupData.class, SCHEMA, "messageFailureDateTimeInMillis", null, null, 2))
+        .thenReturn(backups.subList(0, 2));
+    mockNoCheckpoint();
+    when(eventPublisher.sendEvent(any(EventBackupData.class)))
+        .thenAnswer(
+            invocation -> {
+              if (invocation.getArgument(0) == backups.get(1)) {
+                throw new EventPublishException("Failed to publish event");
+              }
+              return null;
+            });
+
+    ReplayResult result = replayer.replay();
+
+    assertFalse(result.isComplete());
+    assertEquals(1, result.getReplayed());
+    assertEquals(1, result.getFailed());
+    verify(cloudDataStore)
+        .storeObject(CHECKPOINT_SCHEMA, "replay", new ReplayCheckpoint(1000L, "id-0"), "replay");
+  }
+
+  @Test
+  public void shouldResumeFromCheckpoint() throws Exception {
+    when(cloudDataStore.retrieveObject(ReplayCheckpoint.class, CHECKPOINT_SCHEMA, "replay"))
+        .thenReturn(Optional.of(new ReplayCheckpoint(1001L, "id-1")));
+    when(cloudDataStore.listPage(
+            EventBackupData.class, SCHEMA, "messageFailureDateTimeInMillis", 1001L, "id-1", 2))
+        .thenReturn(backups.subList(2, 3));
+
+    ReplayResult result = replayer.replay();
+
+    assertEquals(1, result.getReplayed());
+    verify(eventPublisher).sendEvent(backups.get(2));
+  }
+
+  @Test
+  public void shouldResetCheckpoint() throws Exception {
+    replayer.resetCheckpoint();
+    verify(cloudDataStore).deleteObject(CHECKPOINT_SCHEMA, "replay");
+  }
+
+  private void mockNoCheckpoint() throws Exception {
+    when(cloudDataStore.retrieveObject(ReplayCheckpoint.class, CHECKPOINT_SCHEMA, "replay"))
+        .thenReturn(Optional.empty());
+  }
+
+  private void mockPages() throws Exception {
+    mockNoCheckpoint();
+    when(cloudDataStore.listPage(
+            EventBackupData.class, SCHEMA, "messageFailureDateTimeInMillis", null, null, 2))
+        .thenReturn(backups.subList(0, 2));
+    when(cloudDataStore.listPage(
+            EventBackupData.class, SCHEMA, "messageFailureDateTimeInMillis", 1001L, "id-1", 2))
+        .thenReturn(backups.subList(2, 3));
+  }
+}
@@ -3,13 +3,19 @@ package uk.gov.ons.ctp.common.event.persistence;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -19,6 +25,10 @@ import org.springframework.test.util.ReflectionTestUtils;
 import uk.gov.ons.ctp.common.FixtureHelper;
 import uk.gov.ons.ctp.common.cloud.RetryableCloudDataStore;
 import uk.gov.ons.ctp.common.event.TopicType;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheck.Ticket;
+import uk.gov.ons.ctp.common.event.claimcheck.ClaimCheckConfig;
+import uk.gov.ons.ctp.common.event.claimcheck.FileSystemBlobStore;
 import uk.gov.ons.ctp.common.event.model.FulfilmentEvent;
 import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
 
@@ -73,4 +83,49 @@ public class FirestoreEventPersistenceTest {
 
     assertEquals(event, sentEvent);
   }
+
+  @Test
+  public void testPersistOversizedEventToBlobStore(@TempDir Path directory) throws Exception {
+    ClaimCheckConfig config = new ClaimCheckConfig();
+    config.setThresholdBytes(100);
+    ClaimCheck claimCheck = new ClaimCheck(new FileSystemBlobStore(directory), config);
+    persistence.setClaimCheck(claimCheck);
+    FulfilmentEvent event = FixtureHelper.loadClassFixtures(FulfilmentEvent[].class).get(0);
+
+    persistence.persistEvent(TopicType.FULFILMENT, event);
+
+    ArgumentCaptor<EventBackupData> eventBackupCapture =
+        ArgumentCaptor.forClass(EventBackupData.class);
+    Mockito.verify(cloudDataStore)
+        .storeObject(eq("testing-backupcollection"), any(), eventBackupCapture.capture(), any());
+    EventBackupData storedData = eventBackupCapture.getValue();
+    assertNull(storedData.getEvent());
+    byte[] eventJson =
+        claimCheck.checkOut(
+            new Ticket(storedData.getEventReference(), storedData.getEventSha256()));
+    assertEquals(event, objectMapper.readValue(eventJson, FulfilmentEvent.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPersistEvents() throws Exception {
+    FulfilmentEvent event1 = FixtureHelper.loadClassFixtures(FulfilmentEvent[].class).get(0);
+    FulfilmentEvent event2 = FixtureHelper.loadClassFixtures(FulfilmentEvent[].class).get(0);
+    event2.getHeader().setMessageId(UUID.randomUUID());
+
+    ArgumentCaptor<Map<String, EventBackupData>> backupsCapture =
+        ArgumentCaptor.forClass(Map.class);
+
+    persistence.persistEvents(TopicType.UAC_AUTHENTICATION, List.of(event1, event2));
+
+    Mockito.verify(cloudDataStore)
+        .storeObjects(eq("testing-backupcollection"), backupsCapture.capture());
+    Map<String, EventBackupData> backups = backupsCapture.getValue();
+    assertEquals(2, backups.size());
+    for (FulfilmentEvent event : List.of(event1, event2)) {
+      EventBackupData storedData = backups.get(event.getHeader().getMessageId().toString());
+      assertEquals(TopicType.UAC_AUTHENTICATION, storedData.getTopicType());
+      assertEquals(event, objectMapper.readValue(storedData.getEvent(), FulfilmentEvent.class));
+    }
+  }
 }
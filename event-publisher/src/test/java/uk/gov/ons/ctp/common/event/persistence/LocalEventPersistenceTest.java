@@ -0,0 +1,128 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.EventPublisher;
+import uk.gov.ons.ctp.common.event.EventSender;
+import uk.gov.ons.ctp.common.event.TopicType;
+import uk.gov.ons.ctp.common.event.model.FulfilmentEvent;
+import uk.gov.ons.ctp.common.jackson.CustomObjectMapper;
+
+public class LocalEventPersistenceTest {
+
+  @TempDir Path dir;
+
+  private LocalEventLogConfig config;
+  private LocalEventPersistence persistence;
+  private FulfilmentEvent event;
+  private List<EventBackupData> forwarded = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() throws Exception {
+    config = new LocalEventLogConfig();
+    config.setDirectory(dir.toString());
+    config.setSegmentSizeBytes(64 * 1024);
+    config.setFsyncPolicy(LocalEventLogConfig.FsyncPolicy.NEVER);
+    persistence = new LocalEventPersistence(config);
+    event = FixtureHelper.loadClassFixtures(FulfilmentEvent[].class).get(0);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    persistence.close();
+  }
+
+  @Test
+  public void shouldForwardPersistedEvent() throws Exception {
+    long startTime = System.currentTimeMillis();
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+
+    assertEquals(1, persistence.drain(forwarded::add));
+
+    EventBackupData data = forwarded.get(0);
+    assertEquals(TopicType.UAC_AUTHENTICATION, data.getTopicType());
+    assertEquals(event.getHeader().getMessageId().toString(), data.getId());
+    assertTrue(data.getMessageFailureDateTimeInMillis() >= startTime);
+    assertEquals(event, new CustomObjectMapper().readValue(data.getEvent(), FulfilmentEvent.class));
+  }
+
+  @Test
+  public void shouldRetryFromFailedEvent() throws Exception {
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+
+    int[] calls = {0};
+    EventBackupForwarder failSecond =
+        data -> {
+          if (++calls[0] == 2) {
+            throw new RuntimeException("Pub/Sub still down");
+          }
+          forwarded.add(data);
+        };
+
+    // first run forwards one then fails, the rest follow in a later run
+    assertEquals(1, persistence.drain(failSecond));
+    assertEquals(2, persistence.drain(failSecond));
+    assertEquals(3, forwarded.size());
+  }
+
+  @Test
+  public void shouldNotForwardAgainAfterRestart() throws Exception {
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+    persistence.drain(forwarded::add);
+    persistence.close();
+
+    persistence = new LocalEventPersistence(config);
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+    persistence.drain(forwarded::add);
+
+    assertEquals(2, forwarded.size());
+  }
+
+  @Test
+  public void shouldDrainInBackground() throws Exception {
+    config.setDrainIntervalMillis(10);
+    CountDownLatch latch = new CountDownLatch(2);
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+    persistence.startDraining(data -> latch.countDown());
+    persistence.persistEvent(TopicType.UAC_AUTHENTICATION, event);
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldNotSpinWhenRepublishedEventIsLoggedAgain() throws Exception {
+    EventSender failingSender = mock(EventSender.class);
+    doThrow(new RuntimeException("Pub/Sub still down")).when(failingSender).sendEvent(any(), any());
+    EventPublisher publisher = EventPublisher.create(failingSender, persistence, null);
+    persistence.persistEvent(TopicType.FULFILMENT, event);
+
+    int forwarded =
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(5), () -> persistence.drain(publisher::sendEvent));
+
+    // the event was logged again, and is only tried again on the next run
+    assertEquals(1, forwarded);
+    assertEquals(1, persistence.drain(publisher::sendEvent));
+    verify(failingSender, times(2)).sendEvent(any(), any());
+  }
+}
@@ -0,0 +1,146 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.ons.ctp.common.event.persistence.MappedEventLog.Entry;
+import uk.gov.ons.ctp.common.event.persistence.MappedEventLog.Position;
+
+public class MappedEventLogTest {
+  private static final int SEGMENT_SIZE = 64;
+
+  @TempDir Path dir;
+
+  @Test
+  public void shouldReadBackAppendedRecords() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, true);
+    log.append(bytes("one"));
+    log.append(bytes("two"));
+
+    List<Entry> entries = log.read(log.loadCheckpoint(), 10);
+
+    assertEquals(List.of("one", "two"), text(entries));
+    assertTrue(log.read(entries.get(1).getNext(), 10).isEmpty());
+  }
+
+  @Test
+  public void shouldRollSegmentsAndDeleteOnCheckpoint() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    for (int i = 0; i < 10; i++) {
+      log.append(bytes("record-" + i + "-padding"));
+    }
+    assertTrue(log.segmentCount() > 1);
+
+    List<Entry> entries = log.read(log.loadCheckpoint(), 100);
+    assertEquals(10, entries.size());
+    assertEquals("record-9-padding", text(entries).get(9));
+
+    log.saveCheckpoint(entries.get(9).getNext());
+    assertEquals(1, log.segmentCount());
+  }
+
+  @Test
+  public void shouldResumeFromCheckpointAfterReopen() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    log.append(bytes("one"));
+    log.append(bytes("two"));
+    Position afterFirst = log.read(log.loadCheckpoint(), 1).get(0).getNext();
+    log.saveCheckpoint(afterFirst);
+    log.close();
+
+    MappedEventLog reopened = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    reopened.append(bytes("three"));
+
+    assertEquals(afterFirst, reopened.loadCheckpoint());
+    assertEquals(List.of("two", "three"), text(reopened.read(reopened.loadCheckpoint(), 10)));
+  }
+
+  @Test
+  public void shouldStopAtCorruptRecord() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    log.append(bytes("good"));
+    log.append(bytes("bad"));
+    log.close();
+
+    Path segment;
+    try (var files = Files.list(dir)) {
+      segment = files.filter(p -> p.toString().endsWith(".log")).findFirst().get();
+    }
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      int badData = MappedEventLog.RECORD_HEADER_SIZE * 2 + 4;
+      file.seek(badData);
+      file.write('x');
+    }
+
+    MappedEventLog reopened = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    assertEquals(2, reopened.segmentCount());
+    assertEquals(List.of("good"), text(reopened.read(reopened.loadCheckpoint(), 10)));
+  }
+
+  @Test
+  public void shouldCarryOnWritingLastSegmentAfterReopen() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    log.append(bytes("one"));
+    Position end = log.endPosition();
+    log.close();
+
+    MappedEventLog reopened = new MappedEventLog(dir, SEGMENT_SIZE, false);
+
+    assertEquals(1, reopened.segmentCount());
+    assertEquals(end, reopened.endPosition());
+    reopened.append(bytes("two"));
+    assertEquals(1, reopened.segmentCount());
+    assertEquals(List.of("one", "two"), text(reopened.read(reopened.loadCheckpoint(), 10)));
+  }
+
+  @Test
+  public void shouldStartNewSegmentWhenLastIsFullAfterReopen() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    log.append(new byte[SEGMENT_SIZE - MappedEventLog.RECORD_HEADER_SIZE]);
+    log.close();
+
+    MappedEventLog reopened = new MappedEventLog(dir, SEGMENT_SIZE, false);
+
+    assertEquals(2, reopened.segmentCount());
+    assertEquals(new Position(1, 0), reopened.endPosition());
+  }
+
+  @Test
+  public void shouldIgnoreStrayFilesInDirectory() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    log.append(bytes("one"));
+    log.close();
+    Files.writeString(dir.resolve("events-old.log"), "stray");
+
+    MappedEventLog reopened = new MappedEventLog(dir, SEGMENT_SIZE, false);
+
+    assertEquals(1, reopened.segmentCount());
+    assertEquals(List.of("one"), text(reopened.read(reopened.loadCheckpoint(), 10)));
+  }
+
+  @Test
+  public void shouldRejectRecordLargerThanSegment() throws Exception {
+    MappedEventLog log = new MappedEventLog(dir, SEGMENT_SIZE, false);
+    assertThrows(IOException.class, () -> log.append(new byte[SEGMENT_SIZE]));
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> text(List<Entry> entries) {
+    return entries.stream()
+        .map(e -> new String(e.getData(), StandardCharsets.UTF_8))
+        .collect(Collectors.toList());
+  }
+}
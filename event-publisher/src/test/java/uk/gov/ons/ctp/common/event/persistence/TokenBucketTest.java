@@ -0,0 +1,36 @@
+package uk.gov.ons.ctp.common.event.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+
+  @Test
+  public void shouldAllowBurstWithoutWaiting() throws Exception {
+    TokenBucket bucket = new TokenBucket(1, 5);
+    long start = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      bucket.acquire();
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+  }
+
+  @Test
+  public void shouldLimitRateOnceBurstIsUsed() throws Exception {
+    TokenBucket bucket = new TokenBucket(50, 1);
+    long start = System.nanoTime();
+    for (int i = 0; i < 6; i++) {
+      bucket.acquire();
+    }
+    // first token is immediate, the other five are 20ms apart
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+  }
+
+  @Test
+  public void shouldRejectInvalidRate() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+  }
+}
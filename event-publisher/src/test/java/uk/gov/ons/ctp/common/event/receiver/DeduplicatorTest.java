@@ -0,0 +1,119 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+
+public class DeduplicatorTest {
+
+  private DeduplicationConfig config = new DeduplicationConfig();
+  private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private CaseEvent caseEvent;
+
+  @BeforeEach
+  public void setup() {
+    caseEvent = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+  }
+
+  @Test
+  public void shouldHandleEventOnlyOnce() throws Exception {
+    Deduplicator deduplicator = new Deduplicator(config, registry);
+    List<CaseEvent> handled = new ArrayList<>();
+    EventHandler<CaseEvent> handler = deduplicator.wrap(handled::add);
+
+    handler.handle(caseEvent);
+    handler.handle(caseEvent);
+
+    assertEquals(List.of(caseEvent), handled);
+    assertEquals(0.5, deduplicator.getHitRate());
+    assertEquals(1, count("miss"));
+    assertEquals(1, count("window"));
+  }
+
+  @Test
+  public void shouldNotRecordEventWhenHandlerFails() throws Exception {
+    Deduplicator deduplicator = new Deduplicator(config);
+    List<CaseEvent> handled = new ArrayList<>();
+    EventHandler<CaseEvent> failing =
+        deduplicator.wrap(
+            e -> {
+              throw new IllegalStateException("failed");
+            });
+
+    assertThrows(IllegalStateException.class, () -> failing.handle(caseEvent));
+    deduplicator.<CaseEvent>wrap(handled::add).handle(caseEvent);
+
+    assertEquals(List.of(caseEvent), handled);
+  }
+
+  @Test
+  public void shouldIgnoreMissingMessageId() {
+    Deduplicator deduplicator = new Deduplicator(config);
+    deduplicator.record(null);
+
+    assertFalse(deduplicator.isDuplicate(null));
+    assertEquals(0, deduplicator.getHitRate());
+  }
+
+  @Test
+  public void shouldForgetOldestIdsBeyondWindow() {
+    config.setWindowSize(2);
+    Deduplicator deduplicator = new Deduplicator(config);
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    deduplicator.record(first);
+    deduplicator.record(second);
+    assertTrue(deduplicator.isDuplicate(first));
+
+    deduplicator.record(UUID.randomUUID());
+
+    assertTrue(deduplicator.isDuplicate(first));
+    assertFalse(deduplicator.isDuplicate(second));
+  }
+
+  @Test
+  public void shouldCatchIdsBeyondWindowWithBloomFilter() {
+    config.setWindowSize(1);
+    config.setBloomFilterEnabled(true);
+    config.setBloomInitialCapacity(100);
+    Deduplicator deduplicator = new Deduplicator(config, registry);
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      UUID id = UUID.randomUUID();
+      ids.add(id);
+      deduplicator.record(id);
+    }
+
+    for (UUID id : ids) {
+      assertTrue(deduplicator.isDuplicate(id));
+    }
+    assertEquals(999, count("bloom"));
+  }
+
+  @Test
+  public void shouldDropOldestBloomFilter() {
+    ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.001, 2);
+    UUID first = UUID.randomUUID();
+    filter.put(first);
+    for (int i = 0; i < 100; i++) {
+      filter.put(UUID.randomUUID());
+    }
+
+    assertEquals(2, filter.filterCount());
+    assertFalse(filter.mightContain(first));
+  }
+
+  private double count(String result) {
+    return registry.counter(Deduplicator.METRIC, "result", result).count();
+  }
+}
@@ -0,0 +1,420 @@
+package uk.gov.ons.ctp.common.event.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.ons.ctp.common.FixtureHelper;
+import uk.gov.ons.ctp.common.event.EventSerialiser;
+import uk.gov.ons.ctp.common.event.PubSubMessageFactory;
+import uk.gov.ons.ctp.common.event.TopicType;
+import uk.gov.ons.ctp.common.event.model.CaseEvent;
+import uk.gov.ons.ctp.common.event.model.CaseUpdate;
+import uk.gov.ons.ctp.common.event.model.GenericEvent;
+import uk.gov.ons.ctp.common.event.model.UacEvent;
+
+public class EventReceiverTest {
+
+  private FakeMessageSource source = new FakeMessageSource();
+  private ReceiverConfig config = new ReceiverConfig();
+  private PubSubMessageFactory messageFactory =
+      new PubSubMessageFactory(new EventSerialiser(), false);
+  private EventReceiver receiver;
+  private CaseEvent caseEvent;
+  private UacEvent uacEvent;
+
+  @BeforeEach
+  public void setup() {
+    config.setAckFlushIntervalMillis(10);
+    config.setPullRetryDelayMillis(10);
+    receiver = new EventReceiver(source, config);
+    caseEvent = FixtureHelper.loadPackageFixtures(CaseEvent[].class).get(0);
+    uacEvent = FixtureHelper.loadPackageFixtures(UacEvent[].class).get(0);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    receiver.close();
+  }
+
+  @Test
+  public void shouldDispatchByTopicTypeAndAck() throws Exception {
+    List<GenericEvent> received = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(2);
+    receiver
+        .register(
+            TopicType.CASE_UPDATE,
+            CaseEvent.class,
+            e -> {
+              received.add(e);
+              done.countDown();
+            })
+        .register(
+            TopicType.UAC_UPDATE,
+            UacEvent.class,
+            e -> {
+              received.add(e);
+              done.countDown();
+            });
+    source.add("1", messageFactory.toMessage(caseEvent));
+    source.add("2", messageFactory.toMessage(uacEvent));
+
+    receiver.start();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertTrue(received.contains(caseEvent));
+    assertTrue(received.contains(uacEvent));
+    assertAcked(List.of("1", "2"), List.of());
+  }
+
+  @Test
+  public void shouldNackWhenHandlerFails() throws Exception {
+    receiver.register(
+        TopicType.CASE_UPDATE,
+        CaseEvent.class,
+        e -> {
+          throw new IllegalStateException("handler failed");
+        });
+    source.add("1", messageFactory.toMessage(caseEvent));
+
+    receiver.start();
+
+    assertAcked(List.of(), List.of("1"));
+  }
+
+  @Test
+  public void shouldAckUnreadableOrUnhandledMessages() throws Exception {
+    receiver.register(TopicType.CASE_UPDATE, CaseEvent.class, e -> {});
+    source.add("bad-json", message("CASE_UPDATE", "not json"));
+    source.add("no-handler", messageFactory.toMessage(uacEvent));
+    source.add("ok", messageFactory.toMessage(caseEvent));
+
+    receiver.start();
+
+    assertAcked(List.of("bad-json", "no-handler", "ok"), List.of());
+  }
+
+  @Test
+  public void shouldAckMessageWithUnknownTopicType() throws Exception {
+    receiver.register(TopicType.CASE_UPDATE, CaseEvent.class, e -> {});
+    source.add(
+        "unknown",
+        messageFactory.toMessage(caseEvent).toBuilder()
+            .putAttributes(PubSubMessageFactory.TOPIC_TYPE, "NOT_A_TOPIC_TYPE")
+            .build());
+
+    receiver.start();
+
+    assertAcked(List.of("unknown"), List.of());
+  }
+
+  @Test
+  public void shouldUseOnlyHandlerWhenNoTopicTypeAttribute() throws Exception {
+    CountDownLatch done = new CountDownLatch(1);
+    receiver.register(TopicType.CASE_UPDATE, CaseEvent.class, e -> done.countDown());
+    source.add(
+        "1",
+        PubsubMessage.newBuilder().setData(new EventSerialiser().toByteString(caseEvent)).build());
+
+    receiver.start();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertAcked(List.of("1"), List.of());
+  }
+
+  @Test
+  public void shouldLimitOutstandingMessages() throws Exception {
+    config.setConcurrency(4);
+    config.setMaxOutstandingMessages(2);
+    receiver = new EventReceiver(source, config);
+
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(10);
+    receiver.register(
+        TopicType.CASE_UPDATE,
+        CaseEvent.class,
+        e -> {
+          maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+          Thread.sleep(20);
+          active.decrementAndGet();
+          done.countDown();
+        });
+    for (int i = 0; i < 10; i++) {
+      source.add(String.valueOf(i), messageFactory.toMessage(caseEvent));
+    }
+
+    receiver.start();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertTrue(maxActive.get() <= 2, "Too many outstanding: " + maxActive.get());
+    assertTrue(source.maxPull <= 2);
+  }
+
+  @Test
+  public void shouldHandleEventsForSameCaseInOrder() throws Exception {
+    config.setConcurrency(4);
+    config.setOrderedByKey(true);
+    receiver = new EventReceiver(source, config);
+
+    Map<String, List<String>> handled = new ConcurrentHashMap<>();
+    CountDownLatch done = new CountDownLatch(40);
+    List<String> ackIds = new ArrayList<>();
+    receiver.register(
+        TopicType.CASE_UPDATE,
+        CaseEvent.class,
+        e -> {
+          CaseUpdate caseUpdate = e.getPayload().getCaseUpdate();
+          handled
+              .computeIfAbsent(
+                  caseUpdate.getCaseId(), k -> Collections.synchronizedList(new ArrayList<>()))
+              .add(caseUpdate.getSurveyId());
+          done.countDown();
+        });
+    for (int i = 0; i < 40; i++) {
+      CaseUpdate caseUpdate = caseEvent.getPayload().getCaseUpdate();
+      caseUpdate.setCaseId("case-" + (i % 4));
+      caseUpdate.setSurveyId(String.format("%02d", i));
+      source.add(String.valueOf(i), messageFactory.toMessage(caseEvent));
+      ackIds.add(String.valueOf(i));
+    }
+
+    receiver.start();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(4, handled.size());
+    for (List<String> sequence : handled.values()) {
+      List<String> sorted = new ArrayList<>(sequence);
+      Collections.sort(sorted);
+      assertEquals(sorted, sequence);
+    }
+    assertAcked(ackIds, List.of());
+  }
+
+  @Test
+  public void shouldHoldKeyUntilNackedEventIsRedelivered() throws Exception {
+    config.setOrderedByKey(true);
+    receiver = new EventReceiver(source, config);
+
+    List<String> handled = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger failures = new AtomicInteger(1);
+    CountDownLatch done = new CountDownLatch(2);
+    receiver.register(
+        TopicType.CASE_UPDATE,
+        CaseEvent.class,
+        e -> {
+          if (failures.getAndDecrement() > 0) {
+            throw new IllegalStateException("handler failed");
+          }
+          handled.add(e.getPayload().getCaseUpdate().getSurveyId());
+          done.countDown();
+        });
+    PubsubMessage first = caseMessage("m1", "01");
+    PubsubMessage second = caseMessage("m2", "02");
+    source.add("1", first);
+    source.add("2", second);
+
+    receiver.start();
+    assertAcked(List.of(), List.of("1", "2"));
+
+    source.add("1-again", first);
+    source.add("2-again", second);
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("01", "02"), handled);
+    assertAcked(List.of("1-again", "2-again"), List.of("1", "2"));
+  }
+
+  @Test
+  public void shouldNotHoldKeyForUnreadableMessage() throws Exception {
+    config.setOrderedByKey(true);
+    receiver = new EventReceiver(source, config);
+
+    CountDownLatch done = new CountDownLatch(1);
+    receiver.register(TopicType.CASE_UPDATE, CaseEvent.class, e -> done.countDown());
+    source.add(
+        "1",
+        caseMessage("m1", "01").toBuilder().setData(ByteString.copyFromUtf8("not json")).build());
+    source.add("2", caseMessage("m2", "02"));
+
+    receiver.start();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertAcked(List.of("1", "2"), List.of());
+  }
+
+  @Test
+  public void shouldExtendLeaseUntilHandled() throws Exception {
+    config.setAckDeadlineSeconds(30);
+    config.setAckExtensionIntervalMillis(20);
+    receiver = new EventReceiver(source, config);
+    CountDownLatch release = new CountDownLatch(1);
+    receiver.register(TopicType.CASE_UPDATE, CaseEvent.class, e -> release.await());
+    source.add("1", messageFactory.toMessage(caseEvent));
+
+    receiver.start();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline && source.extensions("1") < 3) {
+      Thread.sleep(10);
+    }
+    assertTrue(source.extensions("1") >= 3);
+    assertEquals(30, source.ackDeadlineSeconds);
+
+    release.countDown();
+    assertAcked(List.of("1"), List.of());
+    long extensions = source.extensions("1");
+    Thread.sleep(100);
+    assertEquals(extensions, source.extensions("1"));
+  }
+
+  @Test
+  public void shouldStopExtendingLeaseAfterMaxExtension() throws Exception {
+    config.setAckExtensionIntervalMillis(20);
+    config.setMaxAckExtensionSeconds(0);
+    receiver = new EventReceiver(source, config);
+    CountDownLatch release = new CountDownLatch(1);
+    receiver.register(TopicType.CASE_UPDATE, CaseEvent.class, e -> release.await());
+    source.add("1", messageFactory.toMessage(caseEvent));
+
+    receiver.start();
+    Thread.sleep(200);
+
+    assertEquals(1, source.extensions("1"));
+    release.countDown();
+    assertAcked(List.of("1"), List.of());
+  }
+
+  @Test
+  public void shouldNackMessagePulledWhileClosing() throws Exception {
+    config.setShutdownTimeoutSeconds(1);
+    config.setAckBatchSize(1);
+    CountDownLatch pulling = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FakeMessageSource slowSource =
+        new FakeMessageSource() {
+          @Override
+          public List<ReceivedMessage> pull(int maxMessages) throws InterruptedException {
+            pulling.countDown();
+            // ignores interrupts, like a pull stuck in the network
+            while (release.getCount() > 0) {
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                // keep waiting
+              }
+            }
+            return super.pull(maxMessages);
+          }
+        };
+    slowSource.add("1", messageFactory.toMessage(caseEvent));
+    receiver = new EventReceiver(slowSource, config);
+    receiver.register(TopicType.CASE_UPDATE, CaseEvent.class, e -> {});
+    receiver.start();
+    assertTrue(pulling.await(5, TimeUnit.SECONDS));
+
+    receiver.close();
+    release.countDown();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline && slowSource.nacked.isEmpty()) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of("1"), List.copyOf(slowSource.nacked));
+    assertTrue(slowSource.acked.isEmpty());
+  }
+
+  @Test
+  public void shouldRejectMismatchedEventClass() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> receiver.register(TopicType.CASE_UPDATE, UacEvent.class, e -> {}));
+  }
+
+  private void assertAcked(List<String> acked, List<String> nacked) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline
+        && source.acked.size() + source.nacked.size() < acked.size() + nacked.size()) {
+      Thread.sleep(10);
+    }
+    assertEquals(acked.size(), source.acked.size());
+    assertTrue(source.acked.containsAll(acked));
+    assertEquals(nacked.size(), source.nacked.size());
+    assertTrue(source.nacked.containsAll(nacked));
+  }
+
+  private PubsubMessage caseMessage(String messageId, String surveyId) {
+    caseEvent.getPayload().getCaseUpdate().setSurveyId(surveyId);
+    return messageFactory.toMessage(caseEvent).toBuilder().setMessageId(messageId).build();
+  }
+
+  private static PubsubMessage message(String topicType, String data) {
+    return PubsubMessage.newBuilder()
+        .putAttributes(PubSubMessageFactory.TOPIC_TYPE, topicType)
+        .setData(ByteString.copyFromUtf8(data))
+        .build();
+  }
+
+  private static class FakeMessageSource implements MessageSource {
+    private final Queue<ReceivedMessage> messages = new ConcurrentLinkedQueue<>();
+    private final Queue<String> acked = new ConcurrentLinkedQueue<>();
+    private final Queue<String> nacked = new ConcurrentLinkedQueue<>();
+    private final Queue<String> extended = new ConcurrentLinkedQueue<>();
+    private volatile int ackDeadlineSeconds;
+    private volatile int maxPull;
+
+    void add(String ackId, PubsubMessage message) {
+      messages.add(ReceivedMessage.newBuilder().setAckId(ackId).setMessage(message).build());
+    }
+
+    @Override
+    public List<ReceivedMessage> pull(int maxMessages) throws InterruptedException {
+      maxPull = Math.max(maxPull, maxMessages);
+      List<ReceivedMessage> pulled = new ArrayList<>();
+      ReceivedMessage message;
+      while (pulled.size() < maxMessages && (message = messages.poll()) != null) {
+        pulled.add(message);
+      }
+      if (pulled.isEmpty()) {
+        Thread.sleep(5);
+      }
+      return pulled;
+    }
+
+    @Override
+    public void ack(List<String> ackIds) {
+      acked.addAll(ackIds);
+    }
+
+    @Override
+    public void nack(List<String> ackIds) {
+      nacked.addAll(ackIds);
+    }
+
+    @Override
+    public void modifyAckDeadline(List<String> ackIds, int ackDeadlineSeconds) {
+      this.ackDeadlineSeconds = ackDeadlineSeconds;
+      extended.addAll(ackIds);
+    }
+
+    long extensions(String ackId) {
+      return extended.stream().filter(ackId::equals).count();
+    }
+  }
+}
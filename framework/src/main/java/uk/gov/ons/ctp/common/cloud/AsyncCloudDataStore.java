@@ -0,0 +1,91 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import uk.gov.ons.ctp.common.error.CTPException;
+
+/**
+ * Abstraction for a document data store in the cloud, whose operations return without waiting for
+ * the store. This lets independent reads and writes be made at the same time.
+ *
+ * <p>Writes are retried on contention with the same exponential backoff as {@link
+ * RetryableCloudDataStore}, configured by {@link RetryConfig}. The wait between attempts is
+ * scheduled rather than slept, so no thread is held while backing off.
+ *
+ * <p>A failed operation completes its future exceptionally with a {@link CTPException}, which
+ * {@link CompletableFuture#join()} wraps in a {@link java.util.concurrent.CompletionException}.
+ */
+public interface AsyncCloudDataStore {
+
+  /**
+   * Write object to cloud collection. If the collection already holds an object with the specified
+   * key then the contents of the value will be overwritten.
+   *
+   * @param schema the name of the collection that the object will be added to.
+   * @param key key for the object within the collection.
+   * @param value the object to be written to the collection.
+   * @return a future completed once the object is written, or the retries are exhausted.
+   */
+  CompletableFuture<Void> storeObject(final String schema, final String key, final Object value);
+
+  /**
+   * Write many objects to a cloud collection in batches, overwriting any objects which already
+   * exist with the same keys. Each batch is retried on its own. Batches already sent are not
+   * stopped when another fails, so some of the objects may have been written.
+   *
+   * @param schema the name of the collection that the objects will be added to.
+   * @param values the objects to be written, by key.
+   * @return a future completed once every batch is written, or as soon as one has failed.
+   */
+  CompletableFuture<Void> storeObjects(final String schema, final Map<String, ?> values);
+
+  /**
+   * Read an object.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema the name of the collection which holds the object.
+   * @param key identifies the object within the collection.
+   * @return a future of the object, which is empty if it was not found.
+   */
+  <T> CompletableFuture<Optional<T>> retrieveObject(
+      Class<T> target, final String schema, final String key);
+
+  /**
+   * Read many objects in a single request.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema the name of the collection which holds the objects.
+   * @param keys identify the objects within the collection.
+   * @return a future of the objects which were found, by key, in the order of the keys.
+   */
+  <T> CompletableFuture<Map<String, T>> retrieveObjects(
+      Class<T> target, final String schema, final Collection<String> keys);
+
+  /**
+   * Runs an object search. This returns objects whose field is equal to the search value.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to search.
+   * @param fieldPathElements is an array of strings that describe the path to the search field. eg,
+   *     [ "case", "addresss", "postcode" ]
+   * @param searchValue is the value that the field must equal for it to be returned as a result.
+   * @return a future of the list of results.
+   */
+  <T> CompletableFuture<List<T>> search(
+      Class<T> target, final String schema, String[] fieldPathElements, String searchValue);
+
+  /**
+   * Delete an object. No error is given if the object doesn't exist.
+   *
+   * @param schema the name of the collection which holds the object.
+   * @param key identifies the object within the collection.
+   * @return a future completed once the object is deleted.
+   */
+  CompletableFuture<Void> deleteObject(final String schema, final String key);
+}
@@ -0,0 +1,315 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+
+/**
+ * Firestore implementation of {@link AsyncCloudDataStore}.
+ *
+ * <p>Each operation hands back a future as soon as its request is sent, and the result is converted
+ * on the Firestore callback thread. A write which fails with a contention error, as recognised by
+ * {@link FirestoreDataStore}, is sent again after a delay scheduled on a single timer thread. The
+ * delays follow {@link RetryConfig}, as for {@link RetryableCloudDataStoreImpl}.
+ */
+@Slf4j
+@Service
+public class AsyncFirestoreDataStore implements AsyncCloudDataStore, AutoCloseable {
+  private final FirestoreProvider provider;
+  private final RetryConfig retryConfig;
+  private final ScheduledExecutorService scheduler;
+
+  /** Converts the result of a Firestore request. */
+  private interface Conversion<V, R> {
+    R apply(V value) throws CTPException;
+  }
+
+  @Autowired
+  public AsyncFirestoreDataStore(FirestoreProvider provider, RetryConfig retryConfig) {
+    this.provider = provider;
+    this.retryConfig = retryConfig;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "cloud-data-store-retry");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public CompletableFuture<Void> storeObject(
+      final String schema, final String key, final Object value) {
+    log.info("Saving object to Firestore", kv("schema", schema), kv("key", key));
+    return withRetry(
+        schema,
+        "object with key " + key,
+        () -> provider.get().collection(schema).document(key).set(value));
+  }
+
+  @Override
+  public CompletableFuture<Void> storeObjects(final String schema, final Map<String, ?> values) {
+    log.info("Saving objects to Firestore", kv("schema", schema), kv("count", values.size()));
+
+    List<Map<String, Object>> batches = new ArrayList<>();
+    Map<String, Object> batch = new LinkedHashMap<>();
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      batch.put(entry.getKey(), entry.getValue());
+      if (batch.size() == FirestoreDataStore.MAX_BATCH_SIZE) {
+        batches.add(batch);
+        batch = new LinkedHashMap<>();
+      }
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+
+    List<CompletableFuture<Void>> commits = new ArrayList<>();
+    for (Map<String, Object> objects : batches) {
+      // a write batch can only be committed once, so each attempt builds its own
+      commits.add(
+          withRetry(
+              schema,
+              "batch of " + objects.size() + " objects",
+              () -> {
+                Firestore firestore = provider.get();
+                CollectionReference collection = firestore.collection(schema);
+                WriteBatch writeBatch = firestore.batch();
+                objects.forEach((key, value) -> writeBatch.set(collection.document(key), value));
+                return writeBatch.commit();
+              }));
+    }
+    // fail as soon as any batch fails, rather than waiting for the retries of the others
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    for (CompletableFuture<Void> commit : commits) {
+      commit.whenComplete(
+          (v, e) -> {
+            if (e != null) {
+              result.completeExceptionally(e);
+            }
+          });
+    }
+    CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0]))
+        .thenRun(() -> result.complete(null));
+    return result;
+  }
+
+  @Override
+  public <T> CompletableFuture<Optional<T>> retrieveObject(
+      Class<T> target, final String schema, final String key) {
+    log.info("Fetching object from Firestore", kv("schema", schema), kv("key", key));
+    return adapt(
+        () -> provider.get().collection(schema).document(key).get(),
+        document ->
+            document.exists()
+                ? Optional.of(FirestoreDataStore.toObject(target, document))
+                : Optional.empty(),
+        "Failed to read object from Firestore. Schema: " + schema + " with key " + key);
+  }
+
+  @Override
+  public <T> CompletableFuture<Map<String, T>> retrieveObjects(
+      Class<T> target, final String schema, final Collection<String> keys) {
+    log.info("Fetching objects from Firestore", kv("schema", schema), kv("count", keys.size()));
+    if (keys.isEmpty()) {
+      return CompletableFuture.completedFuture(new LinkedHashMap<>());
+    }
+    return adapt(
+        () -> {
+          Firestore firestore = provider.get();
+          CollectionReference collection = firestore.collection(schema);
+          return firestore.getAll(
+              keys.stream().distinct().map(collection::document).toArray(DocumentReference[]::new));
+        },
+        documents -> {
+          Map<String, T> results = new LinkedHashMap<>();
+          for (DocumentSnapshot document : documents) {
+            if (document.exists()) {
+              results.put(document.getId(), FirestoreDataStore.toObject(target, document));
+            }
+          }
+          return results;
+        },
+        "Failed to read objects from Firestore. Schema: " + schema + " count " + keys.size());
+  }
+
+  @Override
+  public <T> CompletableFuture<List<T>> search(
+      Class<T> target, final String schema, String[] fieldPathElements, String searchValue) {
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Searching Firestore",
+          kv("schema", schema),
+          kv("fieldPathElements", fieldPathElements),
+          kv("searchValue", searchValue),
+          kv("target", target));
+    }
+    FieldPath fieldPath = FieldPath.of(fieldPathElements);
+    return adapt(
+        () -> provider.get().collection(schema).whereEqualTo(fieldPath, searchValue).get(),
+        querySnapshot -> {
+          List<T> results = new ArrayList<>();
+          for (QueryDocumentSnapshot document : querySnapshot.getDocuments()) {
+            results.add(FirestoreDataStore.toObject(target, document));
+          }
+          return results;
+        },
+        "Failed to search schema '" + schema + "' by field '" + fieldPath + "'");
+  }
+
+  @Override
+  public CompletableFuture<Void> deleteObject(final String schema, final String key) {
+    log.info("Deleting object from Firestore", kv("schema", schema), kv("key", key));
+    return adapt(
+        () -> provider.get().collection(schema).document(key).delete(),
+        writeResult -> null,
+        "Failed to delete object from Firestore. Schema: " + schema + " with key " + key);
+  }
+
+  /**
+   * Stop scheduling retries. Retries already scheduled still run, but any further contention fails
+   * the write.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdown();
+  }
+
+  private <V, R> CompletableFuture<R> adapt(
+      Supplier<ApiFuture<V>> request, Conversion<V, R> conversion, String failureMessage) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    ApiFuture<V> future;
+    try {
+      future = request.get();
+    } catch (Exception e) {
+      fail(result, failureMessage, e);
+      return result;
+    }
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<V>() {
+          @Override
+          public void onSuccess(V value) {
+            try {
+              result.complete(conversion.apply(value));
+            } catch (CTPException e) {
+              result.completeExceptionally(e);
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            fail(result, failureMessage, t);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return result;
+  }
+
+  private <V> CompletableFuture<Void> withRetry(
+      String schema, String description, Supplier<ApiFuture<V>> write) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    attempt(schema, description, write, 1, retryConfig.firstDelay(), result);
+    return result;
+  }
+
+  private <V> void attempt(
+      String schema,
+      String description,
+      Supplier<ApiFuture<V>> write,
+      int attempt,
+      long delay,
+      CompletableFuture<Void> result) {
+    String failureMessage = "Failed to store " + description + " in Firestore. Schema: " + schema;
+    ApiFuture<V> future;
+    try {
+      future = write.get();
+    } catch (Exception e) {
+      fail(result, failureMessage, e);
+      return;
+    }
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<V>() {
+          @Override
+          public void onSuccess(V value) {
+            if (attempt > 1) {
+              log.info(
+                  "Firestore store successful after retries",
+                  kv("schema", schema),
+                  kv("description", description),
+                  kv("attempts", attempt));
+            }
+            result.complete(null);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            if (!FirestoreDataStore.isRetryableFirestoreException(t)) {
+              fail(result, failureMessage, t);
+            } else if (attempt >= retryConfig.getMaxAttempts()) {
+              fail(
+                  result,
+                  "Retries exhausted for storage of " + description + ". Schema: " + schema,
+                  t);
+            } else {
+              log.info(
+                  "Firestore contention detected, will retry",
+                  kv("schema", schema),
+                  kv("description", description),
+                  kv("attempt", attempt),
+                  kv("delay", delay));
+              try {
+                scheduler.schedule(
+                    () ->
+                        attempt(
+                            schema,
+                            description,
+                            write,
+                            attempt + 1,
+                            retryConfig.nextDelay(delay),
+                            result),
+                    delay,
+                    TimeUnit.MILLISECONDS);
+              } catch (RejectedExecutionException e) {
+                fail(result, failureMessage, t);
+              }
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private static void fail(CompletableFuture<?> result, String failureMessage, Throwable t) {
+    log.error(
+        failureMessage, kv("exceptionChain", FirestoreDataStore.describeExceptionChain(t)), t);
+    result.completeExceptionally(new CTPException(Fault.SYSTEM_ERROR, t, failureMessage));
+  }
+}
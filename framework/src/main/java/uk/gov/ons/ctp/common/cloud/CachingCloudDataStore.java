@@ -0,0 +1,338 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.ons.ctp.common.error.CTPException;
+
+/**
+ * Decorator for {@link RetryableCloudDataStore} which caches the objects read from some schemas. It
+ * is intended for reference data, such as surveys, which is read far more often than it changes.
+ *
+ * <p>Each cached schema has its own time to live and size limit, and least useful objects are
+ * evicted first once the limit is reached. Objects read by key and the results of searches are
+ * cached. Listing and streaming are not cached. A missing object, or a search with no results, is
+ * only cached if {@code cacheMissing} is set for the schema.
+ *
+ * <p>Storing or deleting an object through this store removes that object, and every cached search
+ * of its schema, from the cache. Changes made any other way, such as by another instance of the
+ * service, are only seen once the cached copy expires, unless {@link #invalidate(String, String)}
+ * is called.
+ *
+ * <p>Cached objects are shared between callers, so must not be modified.
+ *
+ * <p>Once bound to a meter registry, the hits, misses and evictions of each cache are recorded as
+ * the standard {@code cache.*} meters, tagged with the schema and whether the cache holds objects
+ * or searches.
+ *
+ * <pre>
+ * &#64;Bean
+ * &#64;Primary
+ * public RetryableCloudDataStore cachingCloudDataStore(
+ *     RetryableCloudDataStoreImpl cloudDataStore, CloudCacheConfig config) {
+ *   return new CachingCloudDataStore(cloudDataStore, config);
+ * }
+ * </pre>
+ */
+@Slf4j
+public class CachingCloudDataStore implements RetryableCloudDataStore, MeterBinder {
+  private final RetryableCloudDataStore cloudDataStore;
+  private final Map<String, SchemaCache> caches = new HashMap<>();
+
+  private static class SchemaCache {
+    private final boolean cacheMissing;
+    private final Cache<String, Optional<?>> objects;
+    private final Cache<SearchKey, List<?>> searches;
+
+    SchemaCache(CloudCacheConfig.Schema config, Ticker ticker) {
+      cacheMissing = config.isCacheMissing();
+      objects = newCache(config, ticker);
+      searches = newCache(config, ticker);
+    }
+
+    private static <K, V> Cache<K, V> newCache(CloudCacheConfig.Schema config, Ticker ticker) {
+      return Caffeine.newBuilder()
+          .expireAfterWrite(config.getTtlSeconds(), TimeUnit.SECONDS)
+          .maximumSize(config.getMaxSize())
+          .ticker(ticker)
+          .recordStats()
+          .build();
+    }
+  }
+
+  @Value
+  private static class SearchKey {
+    Class<?> target;
+    List<String> fieldPath;
+    String searchValue;
+  }
+
+  /** Carries a failure to read from the store out of a cache loader. */
+  private static class LoadFailure extends RuntimeException {
+    private static final long serialVersionUID = 3817462959181093614L;
+
+    LoadFailure(CTPException cause) {
+      super(cause);
+    }
+
+    CTPException getFailure() {
+      return (CTPException) getCause();
+    }
+  }
+
+  public CachingCloudDataStore(RetryableCloudDataStore cloudDataStore, CloudCacheConfig config) {
+    this(cloudDataStore, config, Ticker.systemTicker());
+  }
+
+  CachingCloudDataStore(
+      RetryableCloudDataStore cloudDataStore, CloudCacheConfig config, Ticker ticker) {
+    this.cloudDataStore = cloudDataStore;
+    config.getSchemas().forEach((schema, c) -> caches.put(schema, new SchemaCache(c, ticker)));
+    log.info("CloudDataStore cache configuration: {}", config);
+  }
+
+  @Override
+  public void storeObject(
+      final String schema, final String key, final Object value, final String id)
+      throws CTPException {
+    try {
+      cloudDataStore.storeObject(schema, key, value, id);
+    } finally {
+      invalidate(schema, key);
+    }
+  }
+
+  @Override
+  public void storeObjects(final String schema, final Map<String, ?> values) throws CTPException {
+    try {
+      cloudDataStore.storeObjects(schema, values);
+    } finally {
+      invalidateAll(schema, values.keySet());
+    }
+  }
+
+  @Override
+  public Map<String, StoreOutcome> storeEach(final String schema, final Map<String, ?> values) {
+    try {
+      return cloudDataStore.storeEach(schema, values);
+    } finally {
+      invalidateAll(schema, values.keySet());
+    }
+  }
+
+  @Override
+  public <T> Optional<T> retrieveObject(Class<T> target, final String schema, final String key)
+      throws CTPException {
+    SchemaCache cache = caches.get(schema);
+    if (cache == null) {
+      return cloudDataStore.retrieveObject(target, schema, key);
+    }
+
+    Optional<?> value;
+    try {
+      value =
+          cache.objects.get(
+              key,
+              k -> {
+                try {
+                  return cloudDataStore.retrieveObject(target, schema, k);
+                } catch (CTPException e) {
+                  throw new LoadFailure(e);
+                }
+              });
+    } catch (LoadFailure e) {
+      throw e.getFailure();
+    }
+    if (value.isEmpty() && !cache.cacheMissing) {
+      cache.objects.asMap().remove(key, value);
+    }
+    if (!isUsable(target, value)) {
+      // cached as another class, so read it again rather than fail
+      return cloudDataStore.retrieveObject(target, schema, key);
+    }
+    return value.map(target::cast);
+  }
+
+  @Override
+  public <T> Map<String, T> retrieveObjects(
+      Class<T> target, final String schema, final Collection<String> keys) throws CTPException {
+    SchemaCache cache = caches.get(schema);
+    if (cache == null) {
+      return cloudDataStore.retrieveObjects(target, schema, keys);
+    }
+
+    Map<String, Optional<?>> cached = cache.objects.getAllPresent(keys);
+    List<String> misses = new ArrayList<>();
+    for (String key : keys) {
+      if (!isUsable(target, cached.get(key)) && !misses.contains(key)) {
+        misses.add(key);
+      }
+    }
+    Map<String, T> loaded =
+        misses.isEmpty() ? Map.of() : cloudDataStore.retrieveObjects(target, schema, misses);
+    for (String key : misses) {
+      T value = loaded.get(key);
+      if (value != null) {
+        cache.objects.put(key, Optional.of(value));
+      } else if (cache.cacheMissing) {
+        cache.objects.put(key, Optional.empty());
+      }
+    }
+
+    Map<String, T> results = new LinkedHashMap<>();
+    for (String key : keys) {
+      Optional<?> value = loaded.containsKey(key) ? Optional.of(loaded.get(key)) : cached.get(key);
+      if (value != null && value.isPresent() && target.isInstance(value.get())) {
+        results.put(key, target.cast(value.get()));
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public <T> List<T> list(Class<T> target, String schema) throws CTPException {
+    return cloudDataStore.list(target, schema);
+  }
+
+  @Override
+  public <T> List<T> listPage(
+      Class<T> target,
+      String schema,
+      String orderByField,
+      Object startAfterValue,
+      String startAfterKey,
+      int pageSize)
+      throws CTPException {
+    return cloudDataStore.listPage(
+        target, schema, orderByField, startAfterValue, startAfterKey, pageSize);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> List<T> search(
+      Class<T> target, final String schema, String[] fieldPathElements, String searchValue)
+      throws CTPException {
+    SchemaCache cache = caches.get(schema);
+    if (cache == null) {
+      return cloudDataStore.search(target, schema, fieldPathElements, searchValue);
+    }
+
+    SearchKey searchKey = new SearchKey(target, List.of(fieldPathElements), searchValue);
+    List<?> results;
+    try {
+      results =
+          cache.searches.get(
+              searchKey,
+              k -> {
+                try {
+                  return List.copyOf(
+                      cloudDataStore.search(target, schema, fieldPathElements, searchValue));
+                } catch (CTPException e) {
+                  throw new LoadFailure(e);
+                }
+              });
+    } catch (LoadFailure e) {
+      throw e.getFailure();
+    }
+    if (results.isEmpty() && !cache.cacheMissing) {
+      cache.searches.asMap().remove(searchKey, results);
+    }
+    return (List<T>) results;
+  }
+
+  @Override
+  public <T> Stream<T> stream(Class<T> target, String schema, int pageSize) throws CTPException {
+    return cloudDataStore.stream(target, schema, pageSize);
+  }
+
+  @Override
+  public <T> Stream<T> streamSearch(
+      Class<T> target, String schema, String[] fieldPathElements, String searchValue, int pageSize)
+      throws CTPException {
+    return cloudDataStore.streamSearch(target, schema, fieldPathElements, searchValue, pageSize);
+  }
+
+  @Override
+  public void deleteObject(final String schema, final String key) throws CTPException {
+    try {
+      cloudDataStore.deleteObject(schema, key);
+    } finally {
+      invalidate(schema, key);
+    }
+  }
+
+  @Override
+  public Set<String> getCollectionNames() {
+    return cloudDataStore.getCollectionNames();
+  }
+
+  /**
+   * Remove an object, and every cached search of its schema, from the cache. This is only needed
+   * when the object was changed other than through this store.
+   *
+   * @param schema the name of the collection which holds the object.
+   * @param key identifies the object within the collection.
+   */
+  public void invalidate(final String schema, final String key) {
+    SchemaCache cache = caches.get(schema);
+    if (cache != null) {
+      cache.objects.invalidate(key);
+      cache.searches.invalidateAll();
+    }
+  }
+
+  /**
+   * Remove everything cached for a schema.
+   *
+   * @param schema the name of the collection.
+   */
+  public void invalidateAll(final String schema) {
+    SchemaCache cache = caches.get(schema);
+    if (cache != null) {
+      log.info("Clearing cloud data store cache", kv("schema", schema));
+      cache.objects.invalidateAll();
+      cache.searches.invalidateAll();
+    }
+  }
+
+  private void invalidateAll(final String schema, final Collection<String> keys) {
+    SchemaCache cache = caches.get(schema);
+    if (cache != null) {
+      cache.objects.invalidateAll(keys);
+      cache.searches.invalidateAll();
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    caches.forEach(
+        (schema, cache) -> {
+          new CaffeineCacheMetrics(cache.objects, schema, Tags.of("type", "object"))
+              .bindTo(registry);
+          new CaffeineCacheMetrics(cache.searches, schema, Tags.of("type", "search"))
+              .bindTo(registry);
+        });
+  }
+
+  private static boolean isUsable(Class<?> target, Optional<?> value) {
+    return value != null && (value.isEmpty() || target.isInstance(value.get()));
+  }
+}
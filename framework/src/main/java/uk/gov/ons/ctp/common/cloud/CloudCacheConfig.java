@@ -0,0 +1,40 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * Configuration of a {@link CachingCloudDataStore}. Only the schemas listed are cached, each with
+ * its own limits.
+ *
+ * <pre>
+ * cloud-storage:
+ *   cache:
+ *     schemas:
+ *       survey:
+ *         ttl-seconds: 300
+ *         max-size: 100
+ *       collection-exercise:
+ *         ttl-seconds: 300
+ *         max-size: 500
+ *         cache-missing: true
+ * </pre>
+ */
+@Data
+public class CloudCacheConfig {
+  /** Cache settings by schema. */
+  private Map<String, Schema> schemas = new HashMap<>();
+
+  @Data
+  public static class Schema {
+    /** How long an object is cached after it is read. */
+    private int ttlSeconds = 60;
+
+    /** The most objects to cache, beyond which the least useful are evicted. */
+    private long maxSize = 1000;
+
+    /** Whether to also cache that there is no object with a key. */
+    private boolean cacheMissing;
+  }
+}
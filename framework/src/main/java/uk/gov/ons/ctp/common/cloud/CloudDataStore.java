@@ -1,8 +1,12 @@
 package uk.gov.ons.ctp.common.cloud;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 import uk.gov.ons.ctp.common.error.CTPException;
 
 /**
@@ -16,14 +20,139 @@ public interface CloudDataStore {
   void storeObject(final String schema, final String key, final Object value)
       throws CTPException, DataStoreContentionException;
 
+  /**
+   * Write many objects, overwriting any which already exist with the same keys. Stores which can
+   * write in batches should override this, since by default each object is written on its own.
+   *
+   * @param schema the name of the collection that the objects will be added to.
+   * @param values the objects to be written, by key.
+   * @throws CTPException if an object could not be written.
+   * @throws DataStoreContentionException if an object could not be written because of contention.
+   */
+  default void storeObjects(final String schema, final Map<String, ?> values)
+      throws CTPException, DataStoreContentionException {
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      storeObject(schema, entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Write many objects, each with its own write, and report the outcome for each one. By default
+   * the objects are written one at a time with {@link #storeObject}.
+   *
+   * @param schema the name of the collection that the objects will be added to.
+   * @param values the objects to be written, by key.
+   * @return the outcome for each key, in the order of the values.
+   */
+  default Map<String, StoreOutcome> storeEach(final String schema, final Map<String, ?> values) {
+    Map<String, StoreOutcome> outcomes = new LinkedHashMap<>();
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      StoreOutcome outcome;
+      try {
+        storeObject(schema, entry.getKey(), entry.getValue());
+        outcome = StoreOutcome.STORED;
+      } catch (DataStoreContentionException e) {
+        outcome = StoreOutcome.CONTENDED;
+      } catch (Exception e) {
+        outcome = StoreOutcome.FAILED;
+      }
+      outcomes.put(entry.getKey(), outcome);
+    }
+    return outcomes;
+  }
+
   <T> Optional<T> retrieveObject(Class<T> target, final String schema, final String key)
       throws CTPException;
 
+  /**
+   * Read many objects. Stores which can read many objects in one request should override this,
+   * since by default each object is read on its own.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema the name of the collection which holds the objects.
+   * @param keys identify the objects within the collection.
+   * @return the objects which were found, by key, in the order of the keys. Keys with no object are
+   *     left out.
+   * @throws CTPException if an object could not be read.
+   */
+  default <T> Map<String, T> retrieveObjects(
+      Class<T> target, final String schema, final Collection<String> keys) throws CTPException {
+    Map<String, T> results = new LinkedHashMap<>();
+    for (String key : keys) {
+      if (!results.containsKey(key)) {
+        retrieveObject(target, schema, key).ifPresent(value -> results.put(key, value));
+      }
+    }
+    return results;
+  }
+
   <T> List<T> search(Class<T> target, final String schema, String[] fieldPath, String searchValue)
       throws CTPException;
 
   <T> List<T> list(Class<T> target, final String schema) throws CTPException;
 
+  /**
+   * List a page of objects, ordered by a field and then by key. Stores which cannot page must leave
+   * this unsupported.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to list.
+   * @param orderByField the name of the field to order by.
+   * @param startAfterValue the field value of the last object in the previous page, or null for the
+   *     first page.
+   * @param startAfterKey the key of the last object in the previous page.
+   * @param pageSize the maximum number of objects to return.
+   * @return the page of results, which is empty when there are no more objects.
+   * @throws CTPException if anything goes wrong.
+   */
+  default <T> List<T> listPage(
+      Class<T> target,
+      final String schema,
+      String orderByField,
+      Object startAfterValue,
+      String startAfterKey,
+      int pageSize)
+      throws CTPException {
+    throw new UnsupportedOperationException("Paged listing is not supported by this data store");
+  }
+
+  /**
+   * Stream all objects in a schema. Stores which can read a page at a time should override this,
+   * since by default every object is listed before the stream is returned.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to list.
+   * @param pageSize the number of objects to read at a time.
+   * @return a stream of the objects.
+   * @throws CTPException if the objects could not be read.
+   */
+  default <T> Stream<T> stream(Class<T> target, final String schema, int pageSize)
+      throws CTPException {
+    return list(target, schema).stream();
+  }
+
+  /**
+   * Stream the objects whose field is equal to the search value. By default every result is read
+   * before the stream is returned, as for {@link #stream}.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to search.
+   * @param fieldPath describes the path to the search field.
+   * @param searchValue is the value that the field must equal for it to be returned as a result.
+   * @param pageSize the number of objects to read at a time.
+   * @return a stream of the results.
+   * @throws CTPException if the results could not be read.
+   */
+  default <T> Stream<T> streamSearch(
+      Class<T> target, final String schema, String[] fieldPath, String searchValue, int pageSize)
+      throws CTPException {
+    return search(target, schema, fieldPath, searchValue).stream();
+  }
+
   void deleteObject(final String schema, final String key) throws CTPException;
 
   Set<String> getCollectionNames();
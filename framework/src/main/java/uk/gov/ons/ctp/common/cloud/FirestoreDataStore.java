@@ -4,29 +4,50 @@ import static java.util.stream.Collectors.toList;
 import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
 import io.grpc.Status;
 import io.grpc.Status.Code;
 import io.grpc.StatusRuntimeException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import uk.gov.ons.ctp.common.error.CTPException;
 import uk.gov.ons.ctp.common.error.CTPException.Fault;
+import uk.gov.ons.ctp.common.error.UncheckedCTPException;
 
 @Slf4j
 @Service
 public class FirestoreDataStore implements CloudDataStore {
 
+  static final int MAX_BATCH_SIZE = 500;
+  static final int MAX_WRITES_IN_FLIGHT = 500;
+
   @Autowired private FirestoreProvider provider;
 
   /**
@@ -77,11 +98,150 @@ public class FirestoreDataStore implements CloudDataStore {
     }
   }
 
+  /**
+   * Write many objects to a Firestore collection, using batched writes of up to {@value
+   * #MAX_BATCH_SIZE} objects. Any existing objects with the same keys are overwritten.
+   *
+   * <p>Each batch is committed atomically, but a failure part way through leaves the earlier
+   * batches written.
+   *
+   * @param schema - holds the name of the collection that the objects will be added to.
+   * @param values - the objects to be written, by key.
+   * @throws CTPException if any failure was detected interacting with Firestore.
+   * @throws DataStoreContentionException if the objects were not all stored but should be retried
+   *     with an exponential backoff.
+   */
+  @Override
+  public void storeObjects(final String schema, final Map<String, ?> values)
+      throws CTPException, DataStoreContentionException {
+    log.info("Saving objects to Firestore", kv("schema", schema), kv("count", values.size()));
+
+    Firestore firestore = provider.get();
+    CollectionReference collection = firestore.collection(schema);
+    List<ApiFuture<List<WriteResult>>> commits = new ArrayList<>();
+    WriteBatch batch = firestore.batch();
+    int batchSize = 0;
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      batch.set(collection.document(entry.getKey()), entry.getValue());
+      if (++batchSize == MAX_BATCH_SIZE) {
+        commits.add(batch.commit());
+        batch = firestore.batch();
+        batchSize = 0;
+      }
+    }
+    if (batchSize > 0) {
+      commits.add(batch.commit());
+    }
+
+    // Wait for Firestore to complete all the batches
+    try {
+      for (ApiFuture<List<WriteResult>> commit : commits) {
+        commit.get();
+      }
+      log.info("Firestore batch save completed", kv("schema", schema), kv("count", values.size()));
+    } catch (Exception e) {
+      log.error(
+          "Failed to create objects in Firestore",
+          kv("schema", schema),
+          kv("count", values.size()),
+          kv("exceptionChain", describeExceptionChain(e)),
+          e);
+
+      if (isRetryableFirestoreException(e)) {
+        log.info("Firestore contention detected", kv("schema", schema));
+        throw new DataStoreContentionException(
+            "Firestore contention on schema '" + schema + "'", e);
+      }
+
+      String failureMessage =
+          "Failed to create objects in Firestore. Schema: " + schema + " count " + values.size();
+      throw new CTPException(Fault.SYSTEM_ERROR, e, failureMessage);
+    }
+  }
+
+  /**
+   * Write many objects to a Firestore collection, each with its own write, and report the outcome
+   * for each one. Any existing objects with the same keys are overwritten.
+   *
+   * <p>Unlike {@link #storeObjects}, a failure to write one object does not affect the others, so
+   * objects which failed because of contention can be written again on their own. Up to {@value
+   * #MAX_WRITES_IN_FLIGHT} writes are sent at a time, without waiting for the earlier ones to
+   * complete.
+   *
+   * @param schema - holds the name of the collection that the objects will be added to.
+   * @param values - the objects to be written, by key.
+   * @return the outcome for each key, in the order of the values.
+   */
+  @Override
+  public Map<String, StoreOutcome> storeEach(final String schema, final Map<String, ?> values) {
+    log.info(
+        "Saving objects individually to Firestore",
+        kv("schema", schema),
+        kv("count", values.size()));
+
+    CollectionReference collection = provider.get().collection(schema);
+    Map<String, StoreOutcome> outcomes = new LinkedHashMap<>();
+    Deque<Map.Entry<String, ApiFuture<WriteResult>>> inFlight = new ArrayDeque<>();
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      if (inFlight.size() == MAX_WRITES_IN_FLIGHT) {
+        Map.Entry<String, ApiFuture<WriteResult>> write = inFlight.removeFirst();
+        outcomes.put(write.getKey(), outcomeOf(schema, write.getKey(), write.getValue()));
+      }
+      ApiFuture<WriteResult> result;
+      try {
+        result = collection.document(entry.getKey()).set(entry.getValue());
+      } catch (Exception e) {
+        log.error(
+            "Failed to create object in Firestore",
+            kv("schema", schema),
+            kv("key", entry.getKey()),
+            e);
+        outcomes.put(entry.getKey(), StoreOutcome.FAILED);
+        continue;
+      }
+      inFlight.add(Map.entry(entry.getKey(), result));
+    }
+    for (Map.Entry<String, ApiFuture<WriteResult>> write : inFlight) {
+      outcomes.put(write.getKey(), outcomeOf(schema, write.getKey(), write.getValue()));
+    }
+
+    if (log.isInfoEnabled()) {
+      log.info(
+          "Firestore individual save completed",
+          kv("schema", schema),
+          kv("count", values.size()),
+          kv("stored", outcomes.values().stream().filter(o -> o == StoreOutcome.STORED).count()));
+    }
+    return outcomes;
+  }
+
+  private StoreOutcome outcomeOf(String schema, String key, ApiFuture<WriteResult> result) {
+    try {
+      result.get();
+      return StoreOutcome.STORED;
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (isRetryableFirestoreException(e)) {
+        log.info("Firestore contention detected", kv("schema", schema), kv("key", key));
+        return StoreOutcome.CONTENDED;
+      }
+      log.error(
+          "Failed to create object in Firestore",
+          kv("schema", schema),
+          kv("key", key),
+          kv("exceptionChain", describeExceptionChain(e)),
+          e);
+      return StoreOutcome.FAILED;
+    }
+  }
+
   // This method supports logging which aims to protect against future unexpected changes in
   // how google throw exceptions for retryable operations. If Google change Firestore behaviour
   // and we don't detect a retryable operation then we want our logging to be good enough to
   // allow a code fix.
-  private String describeExceptionChain(Throwable e) {
+  static String describeExceptionChain(Throwable e) {
     StringBuilder builder = new StringBuilder();
 
     while (e != null) {
@@ -92,7 +252,7 @@ public class FirestoreDataStore implements CloudDataStore {
     return builder.toString().trim();
   }
 
-  private boolean isRetryableFirestoreException(Exception e) {
+  static boolean isRetryableFirestoreException(Throwable e) {
     boolean retryable = false;
 
     // Traverse the exception chain looking for a StatusRuntimeException
@@ -132,43 +292,97 @@ public class FirestoreDataStore implements CloudDataStore {
    * @param key - identifies the object within the collection.
    * @return - Optional containing the object if it was found, otherwise the optional will contain
    *     null.
+   * @throws CTPException if the object could not be read or converted.
    */
   @Override
   public <T> Optional<T> retrieveObject(Class<T> target, final String schema, final String key)
       throws CTPException {
     log.info("Fetching object from Firestore", kv("schema", schema), kv("key", key));
 
-    // Submit read request to firestore
-    FieldPath fieldPathForId = FieldPath.documentId();
-    List<T> documents = runSearch(target, schema, fieldPathForId, key);
+    DocumentSnapshot document;
+    try {
+      // Read the document directly, rather than querying the collection for its id. An invalid
+      // key is rejected when building the reference, so that is done here too
+      document = provider.get().collection(schema).document(key).get().get();
+    } catch (Exception e) {
+      log.error("Failed to read object from Firestore", kv("schema", schema), kv("key", key), e);
+      String failureMessage =
+          "Failed to read object from Firestore. Schema: " + schema + " with key " + key;
+      throw new CTPException(Fault.SYSTEM_ERROR, e, failureMessage);
+    }
 
-    // Squash results down to single document
-    Optional<T> result = null;
-    if (documents.isEmpty()) {
-      result = Optional.empty();
+    if (!document.exists()) {
       if (log.isDebugEnabled()) {
-        log.debug("Search didn't find any objects");
+        log.debug("Object not found", kv("schema", schema), kv("key", key));
       }
-    } else if (documents.size() == 1) {
-      result = Optional.of(documents.get(0));
-      log.info("Search found single result", kv("schema", schema), kv("key", key));
-    } else {
+      return Optional.empty();
+    }
+    log.info("Object found", kv("schema", schema), kv("key", key));
+    return Optional.of(toObject(target, document));
+  }
+
+  /**
+   * Read many objects from Firestore in a single request.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema - is the name of the collection which holds the objects.
+   * @param keys - identify the objects within the collection.
+   * @return the objects which were found, by key, in the order of the keys. Keys with no object are
+   *     left out.
+   * @throws CTPException if the objects could not be read or converted.
+   */
+  @Override
+  public <T> Map<String, T> retrieveObjects(
+      Class<T> target, final String schema, final Collection<String> keys) throws CTPException {
+    log.info("Fetching objects from Firestore", kv("schema", schema), kv("count", keys.size()));
+
+    Map<String, T> results = new LinkedHashMap<>();
+    if (keys.isEmpty()) {
+      return results;
+    }
+
+    List<DocumentSnapshot> documents;
+    try {
+      Firestore firestore = provider.get();
+      CollectionReference collection = firestore.collection(schema);
+      DocumentReference[] references =
+          keys.stream().distinct().map(collection::document).toArray(DocumentReference[]::new);
+      documents = firestore.getAll(references).get();
+    } catch (Exception e) {
       log.error(
-          "Firestore found more than one result object",
-          kv("resultsSize", documents.size()),
+          "Failed to read objects from Firestore",
           kv("schema", schema),
-          kv("key", key));
+          kv("count", keys.size()),
+          e);
       String failureMessage =
-          "Firestore returned more than 1 result object. Returned "
-              + documents.size()
-              + " objects for Schema '"
-              + schema
-              + "' with key '"
-              + key
-              + "'";
-      throw new CTPException(Fault.SYSTEM_ERROR, failureMessage);
+          "Failed to read objects from Firestore. Schema: " + schema + " count " + keys.size();
+      throw new CTPException(Fault.SYSTEM_ERROR, e, failureMessage);
+    }
+
+    // getAll returns the documents in the order they were asked for
+    for (DocumentSnapshot document : documents) {
+      if (document.exists()) {
+        results.put(document.getId(), toObject(target, document));
+      }
+    }
+    log.info(
+        "Firestore objects found",
+        kv("schema", schema),
+        kv("count", keys.size()),
+        kv("found", results.size()));
+    return results;
+  }
+
+  static <T> T toObject(Class<T> target, DocumentSnapshot document) throws CTPException {
+    try {
+      return document.toObject(target);
+    } catch (Exception e) {
+      log.error("Failed to convert Firestore result to Java object", kv("target", target), e);
+      String failureMessage =
+          "Failed to convert Firestore result to Java object. Target class '" + target + "'";
+      throw new CTPException(Fault.SYSTEM_ERROR, e, failureMessage);
     }
-    return result;
   }
 
   /**
@@ -201,6 +415,180 @@ public class FirestoreDataStore implements CloudDataStore {
     }
   }
 
+  /**
+   * List a page of objects from the given schema, ordered by a field and then by document id. The
+   * next page is read by passing the field value and key of the last object in the previous page.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to list.
+   * @param orderByField the name of the field to order by.
+   * @param startAfterValue the field value of the last object in the previous page, or null for the
+   *     first page.
+   * @param startAfterKey the key of the last object in the previous page.
+   * @param pageSize the maximum number of objects to return.
+   * @return the page of results, which is empty when there are no more objects.
+   * @throws CTPException if anything goes wrong.
+   */
+  @Override
+  public <T> List<T> listPage(
+      Class<T> target,
+      String schema,
+      String orderByField,
+      Object startAfterValue,
+      String startAfterKey,
+      int pageSize)
+      throws CTPException {
+    log.debug(
+        "Listing page of items in Firestore",
+        kv("schema", schema),
+        kv("orderByField", orderByField),
+        kv("startAfterKey", startAfterKey));
+    try {
+      Query query =
+          provider.get().collection(schema).orderBy(orderByField).orderBy(FieldPath.documentId());
+      if (startAfterValue != null) {
+        query = query.startAfter(startAfterValue, startAfterKey);
+      }
+      QuerySnapshot querySnapshot = query.limit(pageSize).get().get();
+      return querySnapshot.getDocuments().stream().map(d -> d.toObject(target)).collect(toList());
+    } catch (Exception e) {
+      log.error(
+          "Failed to list page of Firestore items", kv("target", target), kv("schema", schema), e);
+      String failureMessage =
+          "Failed to list page of Firestore items. Target class: '"
+              + target
+              + "', schema: '"
+              + schema
+              + "'";
+      throw new CTPException(Fault.SYSTEM_ERROR, e, failureMessage);
+    }
+  }
+
+  /**
+   * Stream all objects found in the given schema, ordered by document id. The objects are read a
+   * page at a time as the stream is consumed, so the whole schema is never held in memory.
+   *
+   * <p>The first page is read straight away. A failure to read a later page is thrown from the
+   * stream as an {@link UncheckedCTPException}.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to list.
+   * @param pageSize the number of objects to read at a time.
+   * @return a lazily evaluated stream of the objects.
+   * @throws CTPException if the first page could not be read.
+   */
+  @Override
+  public <T> Stream<T> stream(Class<T> target, String schema, int pageSize) throws CTPException {
+    log.debug("Streaming all items in Firestore", kv("schema", schema), kv("target", target));
+    return streamPages(target, schema, provider.get().collection(schema), pageSize);
+  }
+
+  /**
+   * Stream the objects whose field is equal to the search value, ordered by document id. The
+   * objects are read a page at a time as the stream is consumed, as for {@link #stream}.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to search.
+   * @param fieldPathElements is an array of strings that describe the path to the search field.
+   * @param searchValue is the value that the field must equal for it to be returned as a result.
+   * @param pageSize the number of objects to read at a time.
+   * @return a lazily evaluated stream of the results.
+   * @throws CTPException if the first page could not be read.
+   */
+  @Override
+  public <T> Stream<T> streamSearch(
+      Class<T> target, String schema, String[] fieldPathElements, String searchValue, int pageSize)
+      throws CTPException {
+    log.debug(
+        "Streaming Firestore search",
+        kv("schema", schema),
+        kv("fieldPathElements", fieldPathElements),
+        kv("target", target));
+    Query query =
+        provider
+            .get()
+            .collection(schema)
+            .whereEqualTo(FieldPath.of(fieldPathElements), searchValue);
+    return streamPages(target, schema, query, pageSize);
+  }
+
+  private <T> Stream<T> streamPages(Class<T> target, String schema, Query query, int pageSize)
+      throws CTPException {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+    }
+    DocumentPages<T> pages =
+        new DocumentPages<>(target, schema, query.orderBy(FieldPath.documentId()), pageSize);
+    pages.readPage();
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Iterates over the results of a query a page at a time, using the last document of each page as
+   * the cursor for the next. Each page is let go once the next one is read.
+   */
+  private class DocumentPages<T> implements Iterator<T> {
+    private final Class<T> target;
+    private final String schema;
+    private final Query query;
+    private final int pageSize;
+    private List<QueryDocumentSnapshot> page;
+    private int index;
+
+    DocumentPages(Class<T> target, String schema, Query query, int pageSize) {
+      this.target = target;
+      this.schema = schema;
+      this.query = query;
+      this.pageSize = pageSize;
+    }
+
+    void readPage() throws CTPException {
+      Query pageQuery = page == null ? query : query.startAfter(page.get(page.size() - 1));
+      try {
+        page = pageQuery.limit(pageSize).get().get().getDocuments();
+        index = 0;
+      } catch (Exception e) {
+        log.error("Failed to read page of Firestore items", kv("schema", schema), e);
+        String failureMessage =
+            "Failed to read page of Firestore items. Target class: '"
+                + target
+                + "', schema: '"
+                + schema
+                + "'";
+        throw new CTPException(Fault.SYSTEM_ERROR, e, failureMessage);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (index == page.size() && page.size() == pageSize) {
+        try {
+          readPage();
+        } catch (CTPException e) {
+          throw new UncheckedCTPException(e);
+        }
+      }
+      return index < page.size();
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        return toObject(target, page.get(index++));
+      } catch (CTPException e) {
+        throw new UncheckedCTPException(e);
+      }
+    }
+  }
+
   /**
    * Runs a firestore object search. This returns objects whose field is equal to the search value.
    *
@@ -12,4 +12,24 @@ public class RetryConfig {
   private String multiplier; // String type to handle floats without rounding
   private int max;
   private int maxAttempts;
+
+  /**
+   * Get the delay before the first retry.
+   *
+   * @return the delay in milliseconds.
+   */
+  public long firstDelay() {
+    return Math.min(initial, max);
+  }
+
+  /**
+   * Get the delay before the next retry, following the same exponential backoff as the {@code
+   * Retryable} annotated methods.
+   *
+   * @param delay the delay before the previous retry, in milliseconds.
+   * @return the delay in milliseconds.
+   */
+  public long nextDelay(long delay) {
+    return Math.min((long) (delay * Double.parseDouble(multiplier)), max);
+  }
 }
@@ -1,11 +1,16 @@
 package uk.gov.ons.ctp.common.cloud;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.EnableRetry;
 import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.UncheckedCTPException;
 
 /**
  * Abstraction for a document data store in the cloud, with robust retry capability during store
@@ -50,6 +55,64 @@ public interface RetryableCloudDataStore {
   void storeObject(final String schema, final String key, final Object value, final String id)
       throws CTPException;
 
+  /**
+   * Write many objects to a cloud collection, overwriting any objects which already exist with the
+   * same keys. The objects are written in batches, which is much cheaper than writing them one at a
+   * time.
+   *
+   * <p>The implementation will employ a retry strategy if contention errors are detected. A retry
+   * writes every object again, which is harmless since each write replaces the whole object.
+   *
+   * <p>By default each object is written on its own with {@link #storeObject}, so stores which can
+   * write in batches should override this.
+   *
+   * @param schema the name of the collection that the objects will be added to.
+   * @param values the objects to be written, by key.
+   * @throws CTPException an error has occurred, that could not be rectified by the retry strategy.
+   */
+  default void storeObjects(final String schema, final Map<String, ?> values) throws CTPException {
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      storeObject(schema, entry.getKey(), entry.getValue(), entry.getKey());
+    }
+  }
+
+  /**
+   * Write many objects to a cloud collection, each with its own write, and report the outcome for
+   * each one. Any objects which already exist with the same keys are overwritten.
+   *
+   * <p>The writes are pipelined rather than made one at a time, and the retry strategy applies to
+   * each object on its own: only the objects which hit contention are written again, with the same
+   * backoff as {@link #storeObject}. Unlike {@link #storeObjects}, a failure does not stop the
+   * other objects being written.
+   *
+   * <p>By default the objects are written one at a time with {@link #storeObject}.
+   *
+   * @param schema the name of the collection that the objects will be added to.
+   * @param values the objects to be written, by key.
+   * @return the outcome for each key, in the order of the values. {@link StoreOutcome#CONTENDED}
+   *     means the retries were exhausted.
+   */
+  default Map<String, StoreOutcome> storeEach(final String schema, final Map<String, ?> values) {
+    Map<String, StoreOutcome> outcomes = new LinkedHashMap<>();
+    for (Map.Entry<String, ?> entry : values.entrySet()) {
+      StoreOutcome outcome;
+      try {
+        storeObject(schema, entry.getKey(), entry.getValue(), entry.getKey());
+        outcome = StoreOutcome.STORED;
+      } catch (CTPException e) {
+        // retries exhausted on contention are reported with the contention as the cause
+        outcome =
+            e.getCause() instanceof DataStoreContentionException
+                ? StoreOutcome.CONTENDED
+                : StoreOutcome.FAILED;
+      } catch (RuntimeException e) {
+        outcome = StoreOutcome.FAILED;
+      }
+      outcomes.put(entry.getKey(), outcome);
+    }
+    return outcomes;
+  }
+
   /**
    * Read an object.
    *
@@ -63,6 +126,31 @@ public interface RetryableCloudDataStore {
   <T> Optional<T> retrieveObject(Class<T> target, final String schema, final String key)
       throws CTPException;
 
+  /**
+   * Read many objects in a single request, which is much cheaper than reading them one at a time.
+   *
+   * <p>By default each object is read on its own with {@link #retrieveObject}, so stores which can
+   * read many objects in one request should override this.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema the name of the collection which holds the objects.
+   * @param keys identify the objects within the collection.
+   * @return the objects which were found, by key, in the order of the keys. Keys with no object are
+   *     left out.
+   * @throws CTPException on error
+   */
+  default <T> Map<String, T> retrieveObjects(
+      Class<T> target, final String schema, final Collection<String> keys) throws CTPException {
+    Map<String, T> results = new LinkedHashMap<>();
+    for (String key : keys) {
+      if (!results.containsKey(key)) {
+        retrieveObject(target, schema, key).ifPresent(value -> results.put(key, value));
+      }
+    }
+    return results;
+  }
+
   /**
    * List all objects found in the given schema.
    *
@@ -74,6 +162,33 @@ public interface RetryableCloudDataStore {
    */
   <T> List<T> list(Class<T> target, final String schema) throws CTPException;
 
+  /**
+   * List a page of objects from the given schema, ordered by a field and then by key. The next page
+   * is read by passing the field value and key of the last object in the previous page.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to list.
+   * @param orderByField the name of the field to order by.
+   * @param startAfterValue the field value of the last object in the previous page, or null for the
+   *     first page.
+   * @param startAfterKey the key of the last object in the previous page.
+   * @param pageSize the maximum number of objects to return.
+   * @return the page of results, which is empty when there are no more objects.
+   * @throws CTPException if anything goes wrong.
+   * @throws UnsupportedOperationException if the store cannot page, which is the default.
+   */
+  default <T> List<T> listPage(
+      Class<T> target,
+      final String schema,
+      String orderByField,
+      Object startAfterValue,
+      String startAfterKey,
+      int pageSize)
+      throws CTPException {
+    throw new UnsupportedOperationException("Paged listing is not supported by this data store");
+  }
+
   /**
    * Runs an object search. This returns objects whose field is equal to the search value.
    *
@@ -90,6 +205,65 @@ public interface RetryableCloudDataStore {
       Class<T> target, final String schema, String[] fieldPathElements, String searchValue)
       throws CTPException;
 
+  /**
+   * Stream all objects found in the given schema. The objects are read a page at a time as the
+   * stream is consumed, so memory use does not grow with the size of the schema. Unlike {@link
+   * #list}, the first objects are available as soon as the first page has been read.
+   *
+   * <p>A failure to read a page after the first is thrown from the stream as an {@link
+   * UncheckedCTPException}.
+   *
+   * <p>By default every object is read with {@link #list} before the stream is returned, so stores
+   * which can read a page at a time should override this.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to list.
+   * @param pageSize the number of objects to read at a time.
+   * @return a lazily evaluated stream of the objects, in key order.
+   * @throws CTPException if the first page could not be read.
+   */
+  default <T> Stream<T> stream(Class<T> target, final String schema, int pageSize)
+      throws CTPException {
+    return list(target, schema).stream();
+  }
+
+  /**
+   * Stream the objects whose field is equal to the search value, reading them a page at a time as
+   * for {@link #stream}. By default every result is read with {@link #search} before the stream is
+   * returned.
+   *
+   * @param <T> The object type that results should be returned in.
+   * @param target the class of the object type that results should be returned in.
+   * @param schema is the schema to search.
+   * @param fieldPathElements is an array of strings that describe the path to the search field.
+   * @param searchValue is the value that the field must equal for it to be returned as a result.
+   * @param pageSize the number of objects to read at a time.
+   * @return a lazily evaluated stream of the results, in key order.
+   * @throws CTPException if the first page could not be read.
+   */
+  default <T> Stream<T> streamSearch(
+      Class<T> target,
+      final String schema,
+      String[] fieldPathElements,
+      String searchValue,
+      int pageSize)
+      throws CTPException {
+    return search(target, schema, fieldPathElements, searchValue).stream();
+  }
+
+  /**
+   * Delete an object. No error is thrown if the object doesn't exist.
+   *
+   * @param schema the name of the collection which holds the object.
+   * @param key identifies the object within the collection.
+   * @throws CTPException on error
+   * @throws UnsupportedOperationException if the store cannot delete, which is the default.
+   */
+  default void deleteObject(final String schema, final String key) throws CTPException {
+    throw new UnsupportedOperationException("Deletion is not supported by this data store");
+  }
+
   /**
    * Get the names of top level cloud collections.
    *
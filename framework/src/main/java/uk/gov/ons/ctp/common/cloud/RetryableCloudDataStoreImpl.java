@@ -2,9 +2,13 @@ package uk.gov.ons.ctp.common.cloud;
 
 import static uk.gov.ons.ctp.common.log.ScopedStructuredArguments.kv;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.retry.annotation.Backoff;
@@ -50,17 +54,65 @@ public class RetryableCloudDataStoreImpl implements RetryableCloudDataStore {
     }
   }
 
+  @Override
+  public void storeObjects(final String schema, final Map<String, ?> values) throws CTPException {
+    try {
+      retrier.storeAll(schema, values);
+    } catch (DataStoreContentionException e) {
+      log.error(
+          "Retries exhausted for batch storage",
+          kv("schema", schema),
+          kv("count", values.size()),
+          e);
+      throw new CTPException(
+          Fault.SYSTEM_ERROR, e, "Retries exhausted for batch storage of " + values.size());
+    }
+  }
+
+  @Override
+  public Map<String, StoreOutcome> storeEach(final String schema, final Map<String, ?> values) {
+    Map<String, StoreOutcome> outcomes = retrier.storeEach(schema, values);
+    long notStored = outcomes.values().stream().filter(o -> o != StoreOutcome.STORED).count();
+    if (notStored > 0) {
+      log.error(
+          "Failed to store some objects",
+          kv("schema", schema),
+          kv("count", values.size()),
+          kv("notStored", notStored));
+    }
+    return outcomes;
+  }
+
   @Override
   public <T> Optional<T> retrieveObject(Class<T> target, final String schema, final String key)
       throws CTPException {
     return cloudDataStore.retrieveObject(target, schema, key);
   }
 
+  @Override
+  public <T> Map<String, T> retrieveObjects(
+      Class<T> target, final String schema, final Collection<String> keys) throws CTPException {
+    return cloudDataStore.retrieveObjects(target, schema, keys);
+  }
+
   @Override
   public <T> List<T> list(Class<T> target, String schema) throws CTPException {
     return cloudDataStore.list(target, schema);
   }
 
+  @Override
+  public <T> List<T> listPage(
+      Class<T> target,
+      String schema,
+      String orderByField,
+      Object startAfterValue,
+      String startAfterKey,
+      int pageSize)
+      throws CTPException {
+    return cloudDataStore.listPage(
+        target, schema, orderByField, startAfterValue, startAfterKey, pageSize);
+  }
+
   @Override
   public <T> List<T> search(
       Class<T> target, final String schema, String[] fieldPathElements, String searchValue)
@@ -68,6 +120,23 @@ public class RetryableCloudDataStoreImpl implements RetryableCloudDataStore {
     return cloudDataStore.search(target, schema, fieldPathElements, searchValue);
   }
 
+  @Override
+  public <T> Stream<T> stream(Class<T> target, String schema, int pageSize) throws CTPException {
+    return cloudDataStore.stream(target, schema, pageSize);
+  }
+
+  @Override
+  public <T> Stream<T> streamSearch(
+      Class<T> target, String schema, String[] fieldPathElements, String searchValue, int pageSize)
+      throws CTPException {
+    return cloudDataStore.streamSearch(target, schema, fieldPathElements, searchValue, pageSize);
+  }
+
+  @Override
+  public void deleteObject(final String schema, final String key) throws CTPException {
+    cloudDataStore.deleteObject(schema, key);
+  }
+
   @Override
   public Set<String> getCollectionNames() {
     return cloudDataStore.getCollectionNames();
@@ -118,5 +187,58 @@ public class RetryableCloudDataStoreImpl implements RetryableCloudDataStore {
         throws CTPException, DataStoreContentionException {
       cloudDataStore.storeObject(schema, key, value);
     }
+
+    @Retryable(
+        label = "storeObjects",
+        include = DataStoreContentionException.class,
+        backoff =
+            @Backoff(
+                delayExpression = "#{@retryConfig.getInitial()}",
+                multiplierExpression = "#{@retryConfig.getMultiplier()}",
+                maxDelayExpression = "#{@retryConfig.getMax()}"),
+        maxAttemptsExpression = "#{@retryConfig.getMaxAttempts()}",
+        listeners = "cloudRetryListener")
+    public void storeAll(final String schema, final Map<String, ?> values)
+        throws CTPException, DataStoreContentionException {
+      cloudDataStore.storeObjects(schema, values);
+    }
+
+    /**
+     * Write objects individually, writing again only those which hit contention. The backoff
+     * between attempts follows the retry configuration, as for the annotated methods.
+     */
+    public Map<String, StoreOutcome> storeEach(final String schema, final Map<String, ?> values) {
+      Map<String, StoreOutcome> first = cloudDataStore.storeEach(schema, values);
+      Map<String, StoreOutcome> outcomes = new LinkedHashMap<>();
+      values.keySet().forEach(key -> outcomes.put(key, first.get(key)));
+      long delay = retryConfig.firstDelay();
+      for (int attempt = 2; attempt <= retryConfig.getMaxAttempts(); attempt++) {
+        Map<String, Object> contended = new LinkedHashMap<>();
+        outcomes.forEach(
+            (key, outcome) -> {
+              if (outcome == StoreOutcome.CONTENDED) {
+                contended.put(key, values.get(key));
+              }
+            });
+        if (contended.isEmpty()) {
+          break;
+        }
+        log.info(
+            "Retrying contended objects",
+            kv("schema", schema),
+            kv("count", contended.size()),
+            kv("attempt", attempt),
+            kv("delay", delay));
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+        outcomes.putAll(cloudDataStore.storeEach(schema, contended));
+        delay = retryConfig.nextDelay(delay);
+      }
+      return outcomes;
+    }
   }
 }
@@ -0,0 +1,11 @@
+package uk.gov.ons.ctp.common.cloud;
+
+/** The outcome of writing one object, when many are written individually. */
+public enum StoreOutcome {
+  /** The object was written. */
+  STORED,
+  /** The object was not written because of contention, so could be written again later. */
+  CONTENDED,
+  /** The object was not written, and writing it again is not expected to help. */
+  FAILED
+}
@@ -0,0 +1,24 @@
+package uk.gov.ons.ctp.common.error;
+
+/**
+ * Wraps a {@link CTPException} where a checked exception cannot be thrown, such as from a lazily
+ * evaluated stream.
+ */
+public class UncheckedCTPException extends RuntimeException {
+
+  private static final long serialVersionUID = 6930428614723075271L;
+
+  /**
+   * Constructor
+   *
+   * @param cause the CTPException to wrap.
+   */
+  public UncheckedCTPException(final CTPException cause) {
+    super(cause.getMessage(), cause);
+  }
+
+  @Override
+  public synchronized CTPException getCause() {
+    return (CTPException) super.getCause();
+  }
+}
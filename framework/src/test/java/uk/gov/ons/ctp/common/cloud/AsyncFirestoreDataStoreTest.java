@@ -0,0 +1,254 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.error.CTPException;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncFirestoreDataStoreTest extends CloudTestBase {
+
+  @Mock private Firestore firestore;
+  @Mock private FirestoreProvider provider;
+  @Mock private CollectionReference collection;
+  @Mock private DocumentReference document;
+
+  private RetryConfig retryConfig = new RetryConfig();
+  private AsyncFirestoreDataStore asyncDataStore;
+
+  @BeforeEach
+  public void setUp() {
+    retryConfig.setInitial(50);
+    retryConfig.setMultiplier("2");
+    retryConfig.setMax(100);
+    retryConfig.setMaxAttempts(3);
+    asyncDataStore = new AsyncFirestoreDataStore(provider, retryConfig);
+    when(provider.get()).thenReturn(firestore);
+    when(firestore.collection(TEST_SCHEMA)).thenReturn(collection);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    asyncDataStore.close();
+  }
+
+  @Test
+  public void shouldStoreObject() throws Exception {
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(document.set(CASE1)).thenReturn(ApiFutures.immediateFuture(null));
+
+    asyncDataStore.storeObject(TEST_SCHEMA, CASE1.getId(), CASE1).get(5, TimeUnit.SECONDS);
+
+    verify(document).set(CASE1);
+  }
+
+  @Test
+  public void shouldReturnBeforeStoreCompletes() throws Exception {
+    SettableApiFuture<WriteResult> write = SettableApiFuture.create();
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(document.set(CASE1)).thenReturn(write);
+
+    CompletableFuture<Void> result = asyncDataStore.storeObject(TEST_SCHEMA, CASE1.getId(), CASE1);
+    assertFalse(result.isDone());
+
+    write.set(null);
+    assertTrue(result.isDone());
+  }
+
+  @Test
+  public void shouldRetryStoreWithoutBlockingCaller() throws Exception {
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(document.set(CASE1))
+        .thenReturn(contention())
+        .thenReturn(contention())
+        .thenReturn(ApiFutures.immediateFuture(null));
+
+    CompletableFuture<Void> result = asyncDataStore.storeObject(TEST_SCHEMA, CASE1.getId(), CASE1);
+    assertFalse(result.isDone());
+
+    result.get(5, TimeUnit.SECONDS);
+    verify(document, times(3)).set(CASE1);
+  }
+
+  @Test
+  public void shouldFailWhenRetriesExhausted() throws Exception {
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(document.set(CASE1)).thenReturn(contention());
+
+    CompletableFuture<Void> result = asyncDataStore.storeObject(TEST_SCHEMA, CASE1.getId(), CASE1);
+
+    CTPException e = failureOf(result);
+    assertTrue(e.getMessage().contains("Retries exhausted"), e.getMessage());
+    verify(document, times(3)).set(CASE1);
+  }
+
+  @Test
+  public void shouldNotRetryOtherFailures() throws Exception {
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(document.set(CASE1))
+        .thenReturn(
+            ApiFutures.immediateFailedFuture(new StatusRuntimeException(Status.ALREADY_EXISTS)));
+
+    CTPException e = failureOf(asyncDataStore.storeObject(TEST_SCHEMA, CASE1.getId(), CASE1));
+
+    assertTrue(e.getMessage().contains("Failed to store object"), e.getMessage());
+    verify(document, times(1)).set(CASE1);
+  }
+
+  @Test
+  public void shouldRetryEachBatchOnItsOwn() throws Exception {
+    WriteBatch batch = Mockito.mock(WriteBatch.class);
+    when(firestore.batch()).thenReturn(batch);
+    when(collection.document(any())).thenReturn(document);
+    when(batch.commit()).thenReturn(contention()).thenReturn(ApiFutures.immediateFuture(List.of()));
+
+    asyncDataStore.storeObjects(TEST_SCHEMA, Map.of(CASE1.getId(), CASE1)).get(5, TimeUnit.SECONDS);
+
+    verify(firestore, times(2)).batch();
+    verify(batch, times(2)).set(document, CASE1);
+  }
+
+  @Test
+  public void shouldFailAsSoonAsOneBatchFails() throws Exception {
+    WriteBatch batch = Mockito.mock(WriteBatch.class);
+    when(firestore.batch()).thenReturn(batch);
+    when(collection.document(any())).thenReturn(document);
+    when(batch.commit())
+        .thenReturn(
+            ApiFutures.immediateFailedFuture(new StatusRuntimeException(Status.PERMISSION_DENIED)))
+        .thenReturn(SettableApiFuture.create());
+    Map<String, DummyCase> values = new LinkedHashMap<>();
+    for (int i = 0; i <= FirestoreDataStore.MAX_BATCH_SIZE; i++) {
+      values.put(String.valueOf(i), CASE1);
+    }
+
+    CTPException e = failureOf(asyncDataStore.storeObjects(TEST_SCHEMA, values));
+
+    assertTrue(e.getMessage().contains("Failed to store batch"), e.getMessage());
+    verify(batch, times(2)).commit();
+  }
+
+  @Test
+  public void shouldRetrieveObject() throws Exception {
+    DocumentSnapshot snapshot = Mockito.mock(DocumentSnapshot.class);
+    when(snapshot.exists()).thenReturn(true);
+    when(snapshot.toObject(DummyCase.class)).thenReturn(CASE1);
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(document.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+
+    Optional<DummyCase> result =
+        asyncDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()).join();
+
+    assertEquals(Optional.of(CASE1), result);
+  }
+
+  @Test
+  public void shouldRetrieveNothing() throws Exception {
+    DocumentSnapshot snapshot = Mockito.mock(DocumentSnapshot.class);
+    when(snapshot.exists()).thenReturn(false);
+    when(collection.document("unknown")).thenReturn(document);
+    when(document.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+
+    assertTrue(
+        asyncDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, "unknown").join().isEmpty());
+  }
+
+  @Test
+  public void shouldRetrieveObjects() throws Exception {
+    DocumentSnapshot found = Mockito.mock(DocumentSnapshot.class);
+    when(found.exists()).thenReturn(true);
+    when(found.getId()).thenReturn(CASE1.getId());
+    when(found.toObject(DummyCase.class)).thenReturn(CASE1);
+    DocumentSnapshot missing = Mockito.mock(DocumentSnapshot.class);
+    when(missing.exists()).thenReturn(false);
+    DocumentReference other = Mockito.mock(DocumentReference.class);
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(collection.document("unknown")).thenReturn(other);
+    when(firestore.getAll(document, other))
+        .thenReturn(ApiFutures.immediateFuture(List.of(found, missing)));
+
+    Map<String, DummyCase> result =
+        asyncDataStore
+            .retrieveObjects(DummyCase.class, TEST_SCHEMA, List.of(CASE1.getId(), "unknown"))
+            .join();
+
+    assertEquals(Map.of(CASE1.getId(), CASE1), result);
+  }
+
+  @Test
+  public void shouldSearch() throws Exception {
+    QueryDocumentSnapshot snapshot = Mockito.mock(QueryDocumentSnapshot.class);
+    when(snapshot.toObject(DummyCase.class)).thenReturn(CASE1);
+    QuerySnapshot querySnapshot = Mockito.mock(QuerySnapshot.class);
+    when(querySnapshot.getDocuments()).thenReturn(List.of(snapshot));
+    Query query = Mockito.mock(Query.class);
+    when(query.get()).thenReturn(ApiFutures.immediateFuture(querySnapshot));
+    when(collection.whereEqualTo(eq(FieldPath.of("contact", "surname")), eq("Smith")))
+        .thenReturn(query);
+
+    List<DummyCase> result =
+        asyncDataStore
+            .search(DummyCase.class, TEST_SCHEMA, new String[] {"contact", "surname"}, "Smith")
+            .join();
+
+    assertEquals(List.of(CASE1), result);
+  }
+
+  @Test
+  public void shouldFailToDelete() throws Exception {
+    when(collection.document(CASE1.getId())).thenReturn(document);
+    when(document.delete())
+        .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("fake Firestore")));
+
+    CTPException e = failureOf(asyncDataStore.deleteObject(TEST_SCHEMA, CASE1.getId()));
+
+    assertTrue(e.getMessage().contains("Failed to delete object"), e.getMessage());
+  }
+
+  private static <T> ApiFuture<T> contention() {
+    return ApiFutures.immediateFailedFuture(
+        new RuntimeException("e2", new StatusRuntimeException(Status.ABORTED)));
+  }
+
+  private static CTPException failureOf(CompletableFuture<?> result) {
+    CompletionException e = assertThrows(CompletionException.class, result::join);
+    assertTrue(e.getCause() instanceof CTPException, e.getCause().toString());
+    return (CTPException) e.getCause();
+  }
+}
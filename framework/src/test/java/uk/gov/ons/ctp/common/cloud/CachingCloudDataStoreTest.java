@@ -0,0 +1,218 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingCloudDataStoreTest extends CloudTestBase {
+  private static final String UNCACHED_SCHEMA = "UNCACHED_SCHEMA";
+  private static final String[] SURNAME = new String[] {"contact", "surname"};
+
+  @Mock private RetryableCloudDataStore cloudDataStore;
+
+  private CloudCacheConfig config = new CloudCacheConfig();
+  private CloudCacheConfig.Schema schemaConfig = new CloudCacheConfig.Schema();
+  private AtomicLong nanos = new AtomicLong();
+  private CachingCloudDataStore cachingDataStore;
+
+  @BeforeEach
+  public void setup() {
+    schemaConfig.setTtlSeconds(60);
+    schemaConfig.setMaxSize(100);
+    config.getSchemas().put(TEST_SCHEMA, schemaConfig);
+    createStore();
+  }
+
+  private void createStore() {
+    cachingDataStore = new CachingCloudDataStore(cloudDataStore, config, nanos::get);
+  }
+
+  @Test
+  public void shouldReadObjectOnceUntilExpired() throws Exception {
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+        .thenReturn(Optional.of(CASE1));
+
+    assertEquals(CASE1, retrieve(CASE1.getId()).get());
+    assertEquals(CASE1, retrieve(CASE1.getId()).get());
+    verify(cloudDataStore, times(1)).retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+    assertEquals(CASE1, retrieve(CASE1.getId()).get());
+    verify(cloudDataStore, times(2)).retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
+  }
+
+  @Test
+  public void shouldNotCacheMissingObjectByDefault() throws Exception {
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, "unknown"))
+        .thenReturn(Optional.empty());
+
+    assertTrue(retrieve("unknown").isEmpty());
+    assertTrue(retrieve("unknown").isEmpty());
+    verify(cloudDataStore, times(2)).retrieveObject(DummyCase.class, TEST_SCHEMA, "unknown");
+  }
+
+  @Test
+  public void shouldCacheMissingObjectWhenConfigured() throws Exception {
+    schemaConfig.setCacheMissing(true);
+    createStore();
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, "unknown"))
+        .thenReturn(Optional.empty());
+
+    assertTrue(retrieve("unknown").isEmpty());
+    assertTrue(retrieve("unknown").isEmpty());
+    verify(cloudDataStore, times(1)).retrieveObject(DummyCase.class, TEST_SCHEMA, "unknown");
+  }
+
+  @Test
+  public void shouldInvalidateOnStoreAndDelete() throws Exception {
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+        .thenReturn(Optional.of(CASE1));
+    when(cloudDataStore.search(DummyCase.class, TEST_SCHEMA, SURNAME, "Smith"))
+        .thenReturn(List.of(CASE1));
+
+    retrieve(CASE1.getId());
+    search("Smith");
+    cachingDataStore.storeObject(TEST_SCHEMA, CASE1.getId(), CASE1, "a case");
+    retrieve(CASE1.getId());
+    search("Smith");
+    cachingDataStore.deleteObject(TEST_SCHEMA, CASE1.getId());
+    retrieve(CASE1.getId());
+    search("Smith");
+    cachingDataStore.storeEach(TEST_SCHEMA, Map.of(CASE1.getId(), CASE1));
+    retrieve(CASE1.getId());
+    search("Smith");
+
+    verify(cloudDataStore).storeObject(TEST_SCHEMA, CASE1.getId(), CASE1, "a case");
+    verify(cloudDataStore).deleteObject(TEST_SCHEMA, CASE1.getId());
+    verify(cloudDataStore, times(4)).retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
+    verify(cloudDataStore, times(4)).search(DummyCase.class, TEST_SCHEMA, SURNAME, "Smith");
+  }
+
+  @Test
+  public void shouldInvalidateOnFailedStore() throws Exception {
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+        .thenReturn(Optional.of(CASE1));
+    doThrow(new CTPException(Fault.SYSTEM_ERROR))
+        .when(cloudDataStore)
+        .storeObjects(TEST_SCHEMA, Map.of(CASE1.getId(), CASE1));
+
+    retrieve(CASE1.getId());
+    assertThrows(
+        CTPException.class,
+        () -> cachingDataStore.storeObjects(TEST_SCHEMA, Map.of(CASE1.getId(), CASE1)));
+    retrieve(CASE1.getId());
+
+    verify(cloudDataStore, times(2)).retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
+  }
+
+  @Test
+  public void shouldCacheSearchResults() throws Exception {
+    when(cloudDataStore.search(DummyCase.class, TEST_SCHEMA, SURNAME, "Smith"))
+        .thenReturn(List.of(CASE1, CASE2));
+
+    assertEquals(List.of(CASE1, CASE2), search("Smith"));
+    assertEquals(List.of(CASE1, CASE2), search("Smith"));
+    verify(cloudDataStore, times(1)).search(DummyCase.class, TEST_SCHEMA, SURNAME, "Smith");
+  }
+
+  @Test
+  public void shouldReadOnlyUncachedObjectsInBulk() throws Exception {
+    schemaConfig.setCacheMissing(true);
+    createStore();
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+        .thenReturn(Optional.of(CASE1));
+    when(cloudDataStore.retrieveObjects(
+            DummyCase.class, TEST_SCHEMA, List.of(CASE2.getId(), "unknown")))
+        .thenReturn(Map.of(CASE2.getId(), CASE2));
+
+    retrieve(CASE1.getId());
+    List<String> keys = List.of(CASE2.getId(), "unknown", CASE1.getId());
+    Map<String, DummyCase> first =
+        cachingDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, keys);
+    Map<String, DummyCase> second =
+        cachingDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, keys);
+
+    assertEquals(List.of(CASE2.getId(), CASE1.getId()), List.copyOf(first.keySet()));
+    assertEquals(first, second);
+    verify(cloudDataStore, times(1)).retrieveObjects(any(), anyString(), any());
+  }
+
+  @Test
+  public void shouldPassThroughUncachedSchema() throws Exception {
+    when(cloudDataStore.retrieveObject(DummyCase.class, UNCACHED_SCHEMA, CASE1.getId()))
+        .thenReturn(Optional.of(CASE1));
+
+    cachingDataStore.retrieveObject(DummyCase.class, UNCACHED_SCHEMA, CASE1.getId());
+    cachingDataStore.retrieveObject(DummyCase.class, UNCACHED_SCHEMA, CASE1.getId());
+
+    verify(cloudDataStore, times(2))
+        .retrieveObject(DummyCase.class, UNCACHED_SCHEMA, CASE1.getId());
+  }
+
+  @Test
+  public void shouldNotCacheFailure() throws Exception {
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+        .thenThrow(new CTPException(Fault.SYSTEM_ERROR, "argh"))
+        .thenReturn(Optional.of(CASE1));
+
+    CTPException e = assertThrows(CTPException.class, () -> retrieve(CASE1.getId()));
+    assertEquals("argh", e.getMessage());
+    assertEquals(CASE1, retrieve(CASE1.getId()).get());
+  }
+
+  @Test
+  public void shouldRecordHitsAndMisses() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cachingDataStore.bindTo(registry);
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+        .thenReturn(Optional.of(CASE1));
+
+    retrieve(CASE1.getId());
+    retrieve(CASE1.getId());
+    retrieve(CASE1.getId());
+
+    assertEquals(2, gets(registry, "hit"));
+    assertEquals(1, gets(registry, "miss"));
+    verify(cloudDataStore, never()).search(any(), anyString(), any(), anyString());
+  }
+
+  private Optional<DummyCase> retrieve(String key) throws CTPException {
+    return cachingDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, key);
+  }
+
+  private List<DummyCase> search(String surname) throws CTPException {
+    return cachingDataStore.search(DummyCase.class, TEST_SCHEMA, SURNAME, surname);
+  }
+
+  private static double gets(SimpleMeterRegistry registry, String result) {
+    return registry
+        .get("cache.gets")
+        .tag("cache", TEST_SCHEMA)
+        .tag("type", "object")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+}
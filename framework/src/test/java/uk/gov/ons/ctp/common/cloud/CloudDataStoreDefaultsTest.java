@@ -0,0 +1,133 @@
+package uk.gov.ons.ctp.common.cloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.CTPException.Fault;
+
+/** Tests of the default methods of the data store interfaces. */
+@ExtendWith(MockitoExtension.class)
+public class CloudDataStoreDefaultsTest extends CloudTestBase {
+
+  @Mock private CloudDataStore cloudDataStore;
+  @Mock private RetryableCloudDataStore retryableCloudDataStore;
+
+  @Test
+  public void shouldStoreObjectsOneAtATime() throws Exception {
+    doCallRealMethod().when(cloudDataStore).storeObjects(any(), any());
+    doCallRealMethod().when(retryableCloudDataStore).storeObjects(any(), any());
+
+    cloudDataStore.storeObjects(TEST_SCHEMA, cases());
+    retryableCloudDataStore.storeObjects(TEST_SCHEMA, cases());
+
+    verify(cloudDataStore).storeObject(TEST_SCHEMA, CASE1.getId(), CASE1);
+    verify(cloudDataStore).storeObject(TEST_SCHEMA, CASE2.getId(), CASE2);
+    verify(retryableCloudDataStore).storeObject(TEST_SCHEMA, CASE1.getId(), CASE1, CASE1.getId());
+    verify(retryableCloudDataStore).storeObject(TEST_SCHEMA, CASE2.getId(), CASE2, CASE2.getId());
+  }
+
+  @Test
+  public void shouldRetrieveObjectsOneAtATime() throws Exception {
+    List<String> keys = List.of(CASE2.getId(), "unknown", CASE1.getId(), CASE2.getId());
+    when(cloudDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, keys)).thenCallRealMethod();
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
+        .thenReturn(Optional.of(CASE1));
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE2.getId()))
+        .thenReturn(Optional.of(CASE2));
+    when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, "unknown"))
+        .thenReturn(Optional.empty());
+
+    Map<String, DummyCase> results =
+        cloudDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, keys);
+
+    assertEquals(List.of(CASE2.getId(), CASE1.getId()), List.copyOf(results.keySet()));
+    assertEquals(CASE1, results.get(CASE1.getId()));
+    verify(cloudDataStore, times(1)).retrieveObject(DummyCase.class, TEST_SCHEMA, CASE2.getId());
+  }
+
+  @Test
+  public void shouldReportOutcomeOfEachStore() throws Exception {
+    DummyCase case3 = new DummyCase("3", CASE1.getContact());
+    Map<String, DummyCase> values = cases();
+    values.put(case3.getId(), case3);
+    when(cloudDataStore.storeEach(TEST_SCHEMA, values)).thenCallRealMethod();
+    doThrow(new DataStoreContentionException("contention", null))
+        .when(cloudDataStore)
+        .storeObject(TEST_SCHEMA, CASE1.getId(), CASE1);
+    doThrow(new CTPException(Fault.SYSTEM_ERROR, "failed"))
+        .when(cloudDataStore)
+        .storeObject(TEST_SCHEMA, CASE2.getId(), CASE2);
+
+    assertEquals(
+        Map.of(
+            CASE1.getId(), StoreOutcome.CONTENDED,
+            CASE2.getId(), StoreOutcome.FAILED,
+            case3.getId(), StoreOutcome.STORED),
+        cloudDataStore.storeEach(TEST_SCHEMA, values));
+  }
+
+  @Test
+  public void shouldReportExhaustedRetriesAsContended() throws Exception {
+    when(retryableCloudDataStore.storeEach(TEST_SCHEMA, cases())).thenCallRealMethod();
+    doThrow(
+            new CTPException(
+                Fault.SYSTEM_ERROR,
+                new DataStoreContentionException("contention", null),
+                "Retries exhausted"))
+        .when(retryableCloudDataStore)
+        .storeObject(TEST_SCHEMA, CASE1.getId(), CASE1, CASE1.getId());
+    doThrow(new IllegalStateException("failed"))
+        .when(retryableCloudDataStore)
+        .storeObject(TEST_SCHEMA, CASE2.getId(), CASE2, CASE2.getId());
+
+    assertEquals(
+        Map.of(CASE1.getId(), StoreOutcome.CONTENDED, CASE2.getId(), StoreOutcome.FAILED),
+        retryableCloudDataStore.storeEach(TEST_SCHEMA, cases()));
+  }
+
+  @Test
+  public void shouldStreamListAndSearchResults() throws Exception {
+    String[] surname = new String[] {"contact", "surname"};
+    when(retryableCloudDataStore.stream(any(), anyString(), anyInt())).thenCallRealMethod();
+    when(retryableCloudDataStore.streamSearch(any(), anyString(), any(), anyString(), anyInt()))
+        .thenCallRealMethod();
+    when(retryableCloudDataStore.list(DummyCase.class, TEST_SCHEMA))
+        .thenReturn(List.of(CASE1, CASE2));
+    when(retryableCloudDataStore.search(DummyCase.class, TEST_SCHEMA, surname, "Smith"))
+        .thenReturn(List.of(CASE2));
+
+    assertEquals(
+        List.of(CASE1, CASE2),
+        retryableCloudDataStore.stream(DummyCase.class, TEST_SCHEMA, 10)
+            .collect(Collectors.toList()));
+    assertEquals(
+        List.of(CASE2),
+        retryableCloudDataStore
+            .streamSearch(DummyCase.class, TEST_SCHEMA, surname, "Smith", 10)
+            .collect(Collectors.toList()));
+  }
+
+  private static Map<String, DummyCase> cases() {
+    Map<String, DummyCase> cases = new LinkedHashMap<>();
+    cases.put(CASE1.getId(), CASE1);
+    cases.put(CASE2.getId(), CASE2);
+    return cases;
+  }
+}
@@ -2,30 +2,39 @@ package uk.gov.ons.ctp.common.cloud;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -34,6 +43,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import uk.gov.ons.ctp.common.error.CTPException;
+import uk.gov.ons.ctp.common.error.UncheckedCTPException;
 
 @ExtendWith(MockitoExtension.class)
 public class FirestoreDataStoreTest extends CloudTestBase {
@@ -46,7 +56,7 @@ public class FirestoreDataStoreTest extends CloudTestBase {
   @BeforeEach
   public void setUp() {
     ReflectionTestUtils.setField(firestoreDataStore, "provider", provider);
-    when(provider.get()).thenReturn(firestore);
+    Mockito.lenient().when(provider.get()).thenReturn(firestore);
   }
 
   @Test
@@ -129,6 +139,82 @@ public class FirestoreDataStoreTest extends CloudTestBase {
     assertTrue(ctpExceptionCreated);
   }
 
+  @Test
+  public void shouldStoreObjectsInBatches() throws Exception {
+    Map<String, DummyCase> values = new LinkedHashMap<>();
+    for (int i = 0; i <= FirestoreDataStore.MAX_BATCH_SIZE; i++) {
+      values.put("key" + i, CASE1);
+    }
+    List<WriteBatch> batches = mockFirestoreBatches(TEST_SCHEMA, null);
+
+    firestoreDataStore.storeObjects(TEST_SCHEMA, values);
+
+    assertEquals(2, batches.size());
+    verify(batches.get(0), times(FirestoreDataStore.MAX_BATCH_SIZE)).set(any(), eq(CASE1));
+    verify(batches.get(1), times(1)).set(any(), eq(CASE1));
+    verify(batches.get(0)).commit();
+    verify(batches.get(1)).commit();
+  }
+
+  @Test
+  public void shouldDetectContentionWhenStoringObjects() throws Exception {
+    Exception firestoreException =
+        new ExecutionException(
+            "e3", new RuntimeException("e2", new StatusRuntimeException(Status.ABORTED)));
+    mockFirestoreBatches(TEST_SCHEMA, firestoreException);
+
+    DataStoreContentionException e =
+        assertThrows(
+            DataStoreContentionException.class,
+            () -> firestoreDataStore.storeObjects(TEST_SCHEMA, Map.of(CASE1.getId(), CASE1)));
+    assertTrue(e.getMessage().contains("contention on schema 'TEST_SCHEMA'"), e.getMessage());
+  }
+
+  @Test
+  public void shouldFailToStoreObjects() throws Exception {
+    mockFirestoreBatches(TEST_SCHEMA, new ExecutionException("fake Firestore exception", null));
+
+    CTPException e =
+        assertThrows(
+            CTPException.class,
+            () -> firestoreDataStore.storeObjects(TEST_SCHEMA, Map.of(CASE1.getId(), CASE1)));
+    assertTrue(e.getMessage().contains("Failed to create objects"), e.getMessage());
+  }
+
+  @Test
+  public void shouldStoreEachObjectWithItsOwnOutcome() throws Exception {
+    Map<String, Exception> failures = new LinkedHashMap<>();
+    failures.put("stored", null);
+    failures.put(
+        "contended",
+        new ExecutionException(
+            "e3", new RuntimeException("e2", new StatusRuntimeException(Status.ABORTED))));
+    failures.put("failed", new ExecutionException("fake Firestore exception", null));
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(firestore.collection(TEST_SCHEMA)).thenReturn(collectionReference);
+    Map<String, DummyCase> values = new LinkedHashMap<>();
+    for (Map.Entry<String, Exception> failure : failures.entrySet()) {
+      ApiFuture<WriteResult> apiFuture = genericMock(ApiFuture.class);
+      if (failure.getValue() == null) {
+        when(apiFuture.get()).thenReturn(null);
+      } else {
+        when(apiFuture.get()).thenThrow(failure.getValue());
+      }
+      DocumentReference documentReference = Mockito.mock(DocumentReference.class);
+      when(documentReference.set(CASE1)).thenReturn(apiFuture);
+      when(collectionReference.document(failure.getKey())).thenReturn(documentReference);
+      values.put(failure.getKey(), CASE1);
+    }
+
+    Map<String, StoreOutcome> outcomes = firestoreDataStore.storeEach(TEST_SCHEMA, values);
+
+    assertEquals(List.of("stored", "contended", "failed"), new ArrayList<>(outcomes.keySet()));
+    assertEquals(
+        List.of(StoreOutcome.STORED, StoreOutcome.CONTENDED, StoreOutcome.FAILED),
+        new ArrayList<>(outcomes.values()));
+    verify(firestore, never()).batch();
+  }
+
   @Test
   public void testRetrieveObject_found() throws Exception {
     mockFirestoreRetrieveObject(TEST_SCHEMA, CASE1.getId(), null, CASE1);
@@ -155,19 +241,74 @@ public class FirestoreDataStoreTest extends CloudTestBase {
   }
 
   @Test
-  public void testRetrieveObject_failsWithMultipleResultsFound() throws Exception {
-    // Force failure by making the retrieve return more than 1 result object
-    mockFirestoreRetrieveObject(TEST_SCHEMA, CASE1.getId(), null, CASE1, CASE1);
+  public void testRetrieveObject_failsWithFirestoreException() throws Exception {
+    mockFirestoreRetrieveObject(
+        TEST_SCHEMA, CASE1.getId(), new ExecutionException("fake Firestore exception", null));
+
+    CTPException e =
+        assertThrows(
+            CTPException.class,
+            () -> firestoreDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()));
+    assertTrue(e.getMessage().contains("Failed to read object"), e.getMessage());
+  }
 
-    // Verify that retrieveObject fails because of more than 1 result
-    boolean exceptionCaught = false;
-    try {
-      firestoreDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId());
-    } catch (CTPException e) {
-      assertTrue(e.getMessage().contains("Firestore returned more than 1"), e.getMessage());
-      exceptionCaught = true;
-    }
-    assertTrue(exceptionCaught);
+  @Test
+  public void shouldRetrieveObjectsInOneRequest() throws Exception {
+    String unknownId = UUID.randomUUID().toString();
+    mockFirestoreRetrieveObjects(
+        TEST_SCHEMA,
+        null,
+        Map.of(CASE1.getId(), CASE1, CASE2.getId(), CASE2),
+        CASE2.getId(),
+        unknownId,
+        CASE1.getId());
+
+    Map<String, DummyCase> cases =
+        firestoreDataStore.retrieveObjects(
+            DummyCase.class, TEST_SCHEMA, List.of(CASE2.getId(), unknownId, CASE1.getId()));
+
+    assertEquals(List.of(CASE2.getId(), CASE1.getId()), new ArrayList<>(cases.keySet()));
+    assertEquals(CASE1, cases.get(CASE1.getId()));
+    assertEquals(CASE2, cases.get(CASE2.getId()));
+  }
+
+  @Test
+  public void shouldRetrieveNoObjectsWithoutRequest() throws Exception {
+    Map<String, DummyCase> cases =
+        firestoreDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, List.of());
+
+    assertTrue(cases.isEmpty());
+    verify(provider, never()).get();
+  }
+
+  @Test
+  public void shouldFailToRetrieveObjects() throws Exception {
+    mockFirestoreRetrieveObjects(
+        TEST_SCHEMA, new ExecutionException("fake Firestore exception", null), Map.of(), "x");
+
+    CTPException e =
+        assertThrows(
+            CTPException.class,
+            () -> firestoreDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, List.of("x")));
+    assertTrue(e.getMessage().contains("Failed to read objects"), e.getMessage());
+  }
+
+  @Test
+  public void shouldFailToRetrieveWithInvalidKey() throws Exception {
+    CollectionReference collection = Mockito.mock(CollectionReference.class);
+    when(firestore.collection(TEST_SCHEMA)).thenReturn(collection);
+    when(collection.document("a/b")).thenThrow(new IllegalArgumentException("invalid path"));
+
+    CTPException e =
+        assertThrows(
+            CTPException.class,
+            () -> firestoreDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, "a/b"));
+    assertTrue(e.getMessage().contains("Failed to read object"), e.getMessage());
+    e =
+        assertThrows(
+            CTPException.class,
+            () -> firestoreDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, List.of("a/b")));
+    assertTrue(e.getMessage().contains("Failed to read objects"), e.getMessage());
   }
 
   @Test
@@ -199,6 +340,94 @@ public class FirestoreDataStoreTest extends CloudTestBase {
     assertEquals(CASE2, cases.get(1));
   }
 
+  @Test
+  public void shouldListFirstPage() throws Exception {
+    Query query = mockFirestoreListPage(TEST_SCHEMA, CASE1, CASE2);
+
+    List<DummyCase> cases =
+        firestoreDataStore.listPage(DummyCase.class, TEST_SCHEMA, "id", null, null, 2);
+
+    assertEquals(List.of(CASE1, CASE2), cases);
+    verify(query).orderBy(FieldPath.documentId());
+    verify(query).limit(2);
+    verify(query, never()).startAfter(any(), any());
+  }
+
+  @Test
+  public void shouldListPageAfterCursor() throws Exception {
+    Query query = mockFirestoreListPage(TEST_SCHEMA, CASE2);
+    when(query.startAfter("1", CASE1.getId())).thenReturn(query);
+
+    List<DummyCase> cases =
+        firestoreDataStore.listPage(DummyCase.class, TEST_SCHEMA, "id", "1", CASE1.getId(), 2);
+
+    assertEquals(List.of(CASE2), cases);
+    verify(query).startAfter("1", CASE1.getId());
+  }
+
+  @Test
+  public void shouldStreamPagesLazily() throws Exception {
+    DummyCase case3 = new DummyCase("3", new DummyContact("Ann", "Jones"));
+    Query query = Mockito.mock(Query.class);
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(firestore.collection(TEST_SCHEMA)).thenReturn(collectionReference);
+    when(collectionReference.orderBy(FieldPath.documentId())).thenReturn(query);
+    List<QueryDocumentSnapshot> firstPage = mockQueryPage(query, CASE1, CASE2);
+    Query nextQuery = Mockito.mock(Query.class);
+    when(query.startAfter(firstPage.get(1))).thenReturn(nextQuery);
+    mockQueryPage(nextQuery, case3);
+
+    Iterator<DummyCase> cases =
+        firestoreDataStore.stream(DummyCase.class, TEST_SCHEMA, 2).iterator();
+
+    assertEquals(CASE1, cases.next());
+    assertEquals(CASE2, cases.next());
+    verify(query, never()).startAfter(any(DocumentSnapshot.class));
+    assertEquals(case3, cases.next());
+    assertFalse(cases.hasNext());
+  }
+
+  @Test
+  public void shouldStreamSearchResults() throws Exception {
+    Query query = Mockito.mock(Query.class);
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(firestore.collection(TEST_SCHEMA)).thenReturn(collectionReference);
+    when(collectionReference.whereEqualTo(FieldPath.of("contact", "surname"), "Smith"))
+        .thenReturn(query);
+    when(query.orderBy(FieldPath.documentId())).thenReturn(query);
+    mockQueryPage(query, CASE1, CASE2);
+
+    List<DummyCase> cases =
+        firestoreDataStore
+            .streamSearch(
+                DummyCase.class, TEST_SCHEMA, new String[] {"contact", "surname"}, "Smith", 10)
+            .collect(Collectors.toList());
+
+    assertEquals(List.of(CASE1, CASE2), cases);
+  }
+
+  @Test
+  public void shouldFailToStreamLaterPage() throws Exception {
+    Query query = Mockito.mock(Query.class);
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(firestore.collection(TEST_SCHEMA)).thenReturn(collectionReference);
+    when(collectionReference.orderBy(FieldPath.documentId())).thenReturn(query);
+    List<QueryDocumentSnapshot> firstPage = mockQueryPage(query, CASE1);
+    Query nextQuery = Mockito.mock(Query.class);
+    when(query.startAfter(firstPage.get(0))).thenReturn(nextQuery);
+    ApiFuture<QuerySnapshot> apiFuture = genericMock(ApiFuture.class);
+    when(apiFuture.get()).thenThrow(new ExecutionException("fake Firestore exception", null));
+    when(nextQuery.limit(1)).thenReturn(nextQuery);
+    when(nextQuery.get()).thenReturn(apiFuture);
+
+    Iterator<DummyCase> cases =
+        firestoreDataStore.stream(DummyCase.class, TEST_SCHEMA, 1).iterator();
+
+    assertEquals(CASE1, cases.next());
+    UncheckedCTPException e = assertThrows(UncheckedCTPException.class, cases::hasNext);
+    assertTrue(e.getCause().getMessage().contains("Failed to read page"), e.getMessage());
+  }
+
   @Test
   public void testSearch_noResults() throws Exception {
     mockFirestoreSearch(TEST_SCHEMA, "Bob", null, null);
@@ -362,10 +591,92 @@ public class FirestoreDataStoreTest extends CloudTestBase {
     return apiFuture;
   }
 
+  private List<WriteBatch> mockFirestoreBatches(String expectedSchema, Exception exception)
+      throws InterruptedException, ExecutionException {
+    ApiFuture<List<WriteResult>> apiFuture = genericMock(ApiFuture.class);
+    if (exception == null) {
+      when(apiFuture.get()).thenReturn(null);
+    } else {
+      when(apiFuture.get()).thenThrow(exception);
+    }
+
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(firestore.collection(eq(expectedSchema))).thenReturn(collectionReference);
+
+    List<WriteBatch> batches = new ArrayList<>();
+    when(firestore.batch())
+        .thenAnswer(
+            invocation -> {
+              WriteBatch batch = Mockito.mock(WriteBatch.class);
+              Mockito.lenient().when(batch.commit()).thenReturn(apiFuture);
+              batches.add(batch);
+              return batch;
+            });
+    return batches;
+  }
+
   private void mockFirestoreRetrieveObject(
-      String expectedSchema, String expectedSearchValue, Exception exception, DummyCase... case1)
+      String expectedSchema, String expectedKey, Exception exception, DummyCase... case1)
+      throws InterruptedException, ExecutionException {
+    ApiFuture<DocumentSnapshot> apiFuture = genericMock(ApiFuture.class);
+    if (exception == null) {
+      DocumentSnapshot document =
+          case1.length == 0 ? missingDocument() : document(expectedKey, case1[0]);
+      when(apiFuture.get()).thenReturn(document);
+    } else {
+      when(apiFuture.get()).thenThrow(exception);
+    }
+
+    DocumentReference documentReference = Mockito.mock(DocumentReference.class);
+    when(documentReference.get()).thenReturn(apiFuture);
+
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(collectionReference.document(eq(expectedKey))).thenReturn(documentReference);
+
+    when(firestore.collection(eq(expectedSchema))).thenReturn(collectionReference);
+  }
+
+  private void mockFirestoreRetrieveObjects(
+      String expectedSchema,
+      Exception exception,
+      Map<String, DummyCase> found,
+      String... expectedKeys)
       throws InterruptedException, ExecutionException {
-    mockFirestoreSearch(expectedSchema, expectedSearchValue, exception, null, case1);
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(firestore.collection(eq(expectedSchema))).thenReturn(collectionReference);
+
+    List<DocumentReference> references = new ArrayList<>();
+    List<DocumentSnapshot> results = new ArrayList<>();
+    for (String key : expectedKeys) {
+      DocumentReference reference = Mockito.mock(DocumentReference.class);
+      when(collectionReference.document(key)).thenReturn(reference);
+      references.add(reference);
+      if (exception == null) {
+        results.add(found.containsKey(key) ? document(key, found.get(key)) : missingDocument());
+      }
+    }
+
+    ApiFuture<List<DocumentSnapshot>> apiFuture = genericMock(ApiFuture.class);
+    if (exception == null) {
+      when(apiFuture.get()).thenReturn(results);
+    } else {
+      when(apiFuture.get()).thenThrow(exception);
+    }
+    when(firestore.getAll(references.toArray(new DocumentReference[0]))).thenReturn(apiFuture);
+  }
+
+  private DocumentSnapshot document(String key, DummyCase caseObj) {
+    DocumentSnapshot document = Mockito.mock(DocumentSnapshot.class);
+    when(document.exists()).thenReturn(true);
+    Mockito.lenient().when(document.getId()).thenReturn(key);
+    when(document.toObject(eq(DummyCase.class))).thenReturn(caseObj);
+    return document;
+  }
+
+  private DocumentSnapshot missingDocument() {
+    DocumentSnapshot document = Mockito.mock(DocumentSnapshot.class);
+    when(document.exists()).thenReturn(false);
+    return document;
   }
 
   private void mockFirestoreList(
@@ -428,6 +739,47 @@ public class FirestoreDataStoreTest extends CloudTestBase {
     }
   }
 
+  private Query mockFirestoreListPage(String expectedSchema, DummyCase... resultData)
+      throws InterruptedException, ExecutionException {
+    List<QueryDocumentSnapshot> results = new ArrayList<>();
+    for (DummyCase caseObj : resultData) {
+      QueryDocumentSnapshot doc = Mockito.mock(QueryDocumentSnapshot.class);
+      when(doc.toObject(eq(DummyCase.class))).thenReturn(caseObj);
+      results.add(doc);
+    }
+    QuerySnapshot querySnapshot = Mockito.mock(QuerySnapshot.class);
+    when(querySnapshot.getDocuments()).thenReturn(results);
+    ApiFuture<QuerySnapshot> apiFuture = genericMock(ApiFuture.class);
+    when(apiFuture.get()).thenReturn(querySnapshot);
+
+    Query query = Mockito.mock(Query.class);
+    when(query.orderBy(FieldPath.documentId())).thenReturn(query);
+    when(query.limit(Mockito.anyInt())).thenReturn(query);
+    when(query.get()).thenReturn(apiFuture);
+
+    CollectionReference collectionReference = Mockito.mock(CollectionReference.class);
+    when(collectionReference.orderBy("id")).thenReturn(query);
+    when(firestore.collection(eq(expectedSchema))).thenReturn(collectionReference);
+    return query;
+  }
+
+  private List<QueryDocumentSnapshot> mockQueryPage(Query query, DummyCase... resultData)
+      throws InterruptedException, ExecutionException {
+    List<QueryDocumentSnapshot> results = new ArrayList<>();
+    for (DummyCase caseObj : resultData) {
+      QueryDocumentSnapshot doc = Mockito.mock(QueryDocumentSnapshot.class);
+      Mockito.lenient().when(doc.toObject(eq(DummyCase.class))).thenReturn(caseObj);
+      results.add(doc);
+    }
+    QuerySnapshot querySnapshot = Mockito.mock(QuerySnapshot.class);
+    when(querySnapshot.getDocuments()).thenReturn(results);
+    ApiFuture<QuerySnapshot> apiFuture = genericMock(ApiFuture.class);
+    when(apiFuture.get()).thenReturn(querySnapshot);
+    when(query.limit(Mockito.anyInt())).thenReturn(query);
+    when(query.get()).thenReturn(apiFuture);
+    return results;
+  }
+
   private ApiFuture<WriteResult> mockFirestoreForExpectedDelete(
       String expectedSchema, String expectedKey, Exception exception)
       throws InterruptedException, ExecutionException {
@@ -7,14 +7,18 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -69,6 +73,31 @@ public class RetryableCloudDataStoreTest extends CloudTestBase {
     assertEquals(mockResults, results);
   }
 
+  @Test
+  public void shouldListPage() throws Exception {
+    List<DummyCase> mockResults = List.of(CASE2);
+    when(cloudDataStore.listPage(DummyCase.class, TEST_SCHEMA, "id", "1", CASE1.getId(), 10))
+        .thenReturn(mockResults);
+    List<DummyCase> results =
+        retryDataStore.listPage(DummyCase.class, TEST_SCHEMA, "id", "1", CASE1.getId(), 10);
+    assertEquals(mockResults, results);
+  }
+
+  @Test
+  public void shouldStream() throws Exception {
+    when(cloudDataStore.stream(DummyCase.class, TEST_SCHEMA, 10))
+        .thenReturn(Stream.of(CASE1, CASE2));
+    List<DummyCase> results =
+        retryDataStore.stream(DummyCase.class, TEST_SCHEMA, 10).collect(Collectors.toList());
+    assertEquals(List.of(CASE1, CASE2), results);
+  }
+
+  @Test
+  public void shouldDeleteObject() throws Exception {
+    retryDataStore.deleteObject(TEST_SCHEMA, CASE1.getId());
+    verify(cloudDataStore).deleteObject(TEST_SCHEMA, CASE1.getId());
+  }
+
   @Test
   public void shouldRetrieveCase() throws Exception {
     when(cloudDataStore.retrieveObject(DummyCase.class, TEST_SCHEMA, CASE1.getId()))
@@ -87,6 +116,56 @@ public class RetryableCloudDataStoreTest extends CloudTestBase {
     assertTrue(retrievedCase.isEmpty());
   }
 
+  @Test
+  public void shouldRetrieveCases() throws Exception {
+    List<String> keys = List.of(CASE1.getId(), CASE2.getId());
+    Map<String, DummyCase> cases = Map.of(CASE1.getId(), CASE1, CASE2.getId(), CASE2);
+    when(cloudDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, keys)).thenReturn(cases);
+    assertEquals(cases, retryDataStore.retrieveObjects(DummyCase.class, TEST_SCHEMA, keys));
+  }
+
+  @Test
+  public void shouldStoreEachRetryingOnlyContendedObjects() throws Exception {
+    retryConfig.setInitial(1);
+    retryConfig.setMultiplier("2");
+    retryConfig.setMax(10);
+    retryConfig.setMaxAttempts(3);
+    Map<String, DummyCase> values = new LinkedHashMap<>();
+    values.put("a", CASE1);
+    values.put("b", CASE2);
+    values.put("c", CASE1);
+    when(cloudDataStore.storeEach(TEST_SCHEMA, values))
+        .thenReturn(
+            Map.of(
+                "a", StoreOutcome.STORED, "b", StoreOutcome.CONTENDED, "c", StoreOutcome.FAILED));
+    when(cloudDataStore.storeEach(TEST_SCHEMA, Map.of("b", CASE2)))
+        .thenReturn(Map.of("b", StoreOutcome.CONTENDED))
+        .thenReturn(Map.of("b", StoreOutcome.STORED));
+
+    Map<String, StoreOutcome> outcomes = retryDataStore.storeEach(TEST_SCHEMA, values);
+
+    assertEquals(List.of("a", "b", "c"), List.copyOf(outcomes.keySet()));
+    assertEquals(
+        List.of(StoreOutcome.STORED, StoreOutcome.STORED, StoreOutcome.FAILED),
+        List.copyOf(outcomes.values()));
+    verify(cloudDataStore, times(2)).storeEach(TEST_SCHEMA, Map.of("b", CASE2));
+  }
+
+  @Test
+  public void shouldReportContendedObjectsWhenRetriesExhausted() throws Exception {
+    retryConfig.setInitial(1);
+    retryConfig.setMultiplier("2");
+    retryConfig.setMax(10);
+    retryConfig.setMaxAttempts(2);
+    when(cloudDataStore.storeEach(TEST_SCHEMA, Map.of("a", CASE1)))
+        .thenReturn(Map.of("a", StoreOutcome.CONTENDED));
+
+    Map<String, StoreOutcome> outcomes = retryDataStore.storeEach(TEST_SCHEMA, Map.of("a", CASE1));
+
+    assertEquals(Map.of("a", StoreOutcome.CONTENDED), outcomes);
+    verify(cloudDataStore, times(2)).storeEach(TEST_SCHEMA, Map.of("a", CASE1));
+  }
+
   @Test
   public void shouldStore() throws Exception {
     retryDataStore.storeObject(TEST_SCHEMA, CASE1.getId(), CASE1, "a case");
@@ -106,4 +185,23 @@ public class RetryableCloudDataStoreTest extends CloudTestBase {
       assertEquals("Retries exhausted for storage of DummyCase: a case", e.getMessage());
     }
   }
+
+  @Test
+  public void shouldStoreObjects() throws Exception {
+    Map<String, DummyCase> values = Map.of(CASE1.getId(), CASE1, CASE2.getId(), CASE2);
+    retryDataStore.storeObjects(TEST_SCHEMA, values);
+    verify(cloudDataStore).storeObjects(TEST_SCHEMA, values);
+  }
+
+  @Test
+  public void shouldThrowCtpExceptionWhenBatchRetriesExhausted() throws Exception {
+    Map<String, DummyCase> values = Map.of(CASE1.getId(), CASE1);
+    doThrow(new DataStoreContentionException("argh", new Exception()))
+        .when(cloudDataStore)
+        .storeObjects(TEST_SCHEMA, values);
+    CTPException e =
+        assertThrows(CTPException.class, () -> retryDataStore.storeObjects(TEST_SCHEMA, values));
+    assertEquals(Fault.SYSTEM_ERROR, e.getFault());
+    assertEquals("Retries exhausted for batch storage of 1", e.getMessage());
+  }
 }
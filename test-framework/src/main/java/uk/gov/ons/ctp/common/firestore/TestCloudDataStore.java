@@ -6,14 +6,18 @@ import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteResult;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import uk.gov.ons.ctp.common.cloud.CloudDataStore;
 import uk.gov.ons.ctp.common.cloud.FirestoreDataStore;
 import uk.gov.ons.ctp.common.cloud.FirestoreProvider;
+import uk.gov.ons.ctp.common.cloud.StoreOutcome;
 import uk.gov.ons.ctp.common.error.CTPException;
 
 /** Access the Cloud data store for testing purposes. */
@@ -54,17 +58,64 @@ public class TestCloudDataStore implements CloudDataStore {
     return dataStore.retrieveObject(target, schema, key);
   }
 
+  @Override
+  public <T> Map<String, T> retrieveObjects(Class<T> target, String schema, Collection<String> keys)
+      throws CTPException {
+    return dataStore.retrieveObjects(target, schema, keys);
+  }
+
   @Override
   public <T> List<T> list(Class<T> target, String schema) throws CTPException {
     return dataStore.list(target, schema);
   }
 
+  @Override
+  public <T> List<T> listPage(
+      Class<T> target,
+      String schema,
+      String orderByField,
+      Object startAfterValue,
+      String startAfterKey,
+      int pageSize)
+      throws CTPException {
+    return dataStore.listPage(
+        target, schema, orderByField, startAfterValue, startAfterKey, pageSize);
+  }
+
   @Override
   public <T> List<T> search(Class<T> target, String schema, String[] fieldPath, String searchValue)
       throws CTPException {
     return dataStore.search(target, schema, fieldPath, searchValue);
   }
 
+  @Override
+  public <T> Stream<T> stream(Class<T> target, String schema, int pageSize) throws CTPException {
+    return dataStore.stream(target, schema, pageSize);
+  }
+
+  @Override
+  public <T> Stream<T> streamSearch(
+      Class<T> target, String schema, String[] fieldPathElements, String searchValue, int pageSize)
+      throws CTPException {
+    return dataStore.streamSearch(target, schema, fieldPathElements, searchValue, pageSize);
+  }
+
+  @Override
+  public void storeObjects(String schema, Map<String, ?> values) throws CTPException {
+    try {
+      dataStore.storeObjects(schema, values);
+    } catch (CTPException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public Map<String, StoreOutcome> storeEach(String schema, Map<String, ?> values) {
+    return dataStore.storeEach(schema, values);
+  }
+
   @Override
   public void storeObject(String schema, String key, Object value) throws CTPException {
     try {